@@ -0,0 +1,287 @@
+// Copyright (c) 2025 Synadia Communications Inc. All Rights Reserved.
+// See LICENSE and NOTICE file for details.
+
+package io.synadia.bp;
+
+import io.nats.client.api.PublishAck;
+import io.nats.client.impl.Headers;
+import org.jspecify.annotations.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static io.nats.client.support.Validator.validateNotNull;
+
+/**
+ * Groups individually published messages into atomic batches automatically.
+ * A batch is committed once it has maxMessages messages, once its data reaches maxBytes,
+ * or lingerMillis after its first message, whichever comes first.
+ * Each message's future completes with the PublishAck of its batch's commit, or exceptionally if the batch fails.
+ * <p>
+ * Messages are added to the batch as they are published, except the latest one, which is held back
+ * so it can be the commit when the batch is done. Adds don't wait for flow control acks, see {@link BatchPublisher#addAsync}.
+ * Batches run on a {@link BatchPublisherPool}, which limits the commits outstanding at once.
+ * <p>
+ * The publisher is thread safe. Messages from all threads go to the current batch in the order they are published.
+ * Publishing never waits on the server: the adds and commits are handed, in order, to the publisher's own sender thread,
+ * which is the one that waits on flow control. So it is safe to publish from a future's callback,
+ * but nothing holds back a caller that publishes faster than the server acks, for instance by waiting on its futures.
+ */
+public class AutoBatchPublisher implements AutoCloseable {
+    public static final int DEFAULT_MAX_MESSAGES = 100;
+    public static final int MAX_MESSAGES_LIMIT = 1000; // the server's batch limit
+    public static final long DEFAULT_MAX_BYTES = 1024 * 1024;
+    public static final long DEFAULT_LINGER_MILLIS = 5;
+
+    private final BatchPublisherPool pool;
+    private final int maxMessages;
+    private final long maxBytes;
+    private final long lingerMillis;
+    private final ScheduledExecutorService scheduler;
+    private final boolean ownScheduler;
+    private final ExecutorService sender;
+    private final Object lock;
+
+    private BatchPublisher current;
+    private List<CompletableFuture<PublishAck>> currentFutures;
+    private long currentBytes;
+    private Held held;
+    private ScheduledFuture<?> lingerTask;
+    private boolean closed;
+
+    private static class Held {
+        final String subject;
+        final Headers headers;
+        final byte[] data;
+
+        Held(String subject, Headers headers, byte[] data) {
+            this.subject = subject;
+            this.headers = headers;
+            this.data = data;
+        }
+    }
+
+    private AutoBatchPublisher(Builder b) {
+        pool = b.pool;
+        maxMessages = b.maxMessages;
+        maxBytes = b.maxBytes;
+        lingerMillis = b.lingerMillis;
+        ownScheduler = b.scheduler == null;
+        scheduler = ownScheduler
+            ? Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "auto-batch-linger");
+                t.setDaemon(true);
+                return t;
+            })
+            : b.scheduler;
+        sender = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "auto-batch-sender");
+            t.setDaemon(true);
+            return t;
+        });
+        lock = new Object();
+    }
+
+    public int getMaxMessages() {
+        return maxMessages;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public long getLingerMillis() {
+        return lingerMillis;
+    }
+
+    public BatchPublisherPool getPool() {
+        return pool;
+    }
+
+    public CompletableFuture<PublishAck> publish(String subject, byte[] data) {
+        return publish(subject, null, data);
+    }
+
+    /**
+     * Publish a message as part of the current batch, starting a batch if there isn't one
+     * @param subject the subject
+     * @param headers the headers, may be null. They must not be changed until the future completes.
+     * @param data the data. It must not be changed until the future completes.
+     * @return the future for the PublishAck of the batch
+     */
+    public CompletableFuture<PublishAck> publish(String subject, Headers headers, byte[] data) {
+        CompletableFuture<PublishAck> future = new CompletableFuture<>();
+        synchronized (lock) {
+            if (closed) {
+                future.completeExceptionally(new IllegalStateException("Auto batch publisher is closed."));
+                return future;
+            }
+            if (current == null) {
+                BatchPublisher batch = pool.acquire();
+                current = batch;
+                currentFutures = new ArrayList<>();
+                currentBytes = 0;
+                lingerTask = scheduler.schedule(() -> lingerExpired(batch), lingerMillis, TimeUnit.MILLISECONDS);
+            }
+            else {
+                // a failed add fails the batch, which the commit reports for every message
+                BatchPublisher batch = current;
+                Held h = held;
+                sender.execute(() -> batch.addAsync(h.subject, h.headers, h.data));
+            }
+            held = new Held(subject, headers, data);
+            currentFutures.add(future);
+            currentBytes += data == null ? 0 : data.length;
+            if (currentFutures.size() >= maxMessages || currentBytes >= maxBytes) {
+                commitCurrent();
+            }
+        }
+        return future;
+    }
+
+    /**
+     * Commit the current batch now, if there is one
+     */
+    public void flush() {
+        synchronized (lock) {
+            if (current != null) {
+                commitCurrent();
+            }
+        }
+    }
+
+    /**
+     * Commit the current batch and stop accepting messages.
+     * The messages already published are still sent and their futures still complete.
+     */
+    @Override
+    public void close() {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (current != null) {
+                commitCurrent();
+            }
+        }
+        // runs what was already handed off, then the thread ends
+        sender.shutdown();
+        if (ownScheduler) {
+            scheduler.shutdown();
+        }
+    }
+
+    private void lingerExpired(BatchPublisher batch) {
+        synchronized (lock) {
+            // the batch may already have been committed by size and the publisher reused
+            if (current == batch && lingerTask != null) {
+                lingerTask = null;
+                commitCurrent();
+            }
+        }
+    }
+
+    private void commitCurrent() {
+        if (lingerTask != null) {
+            lingerTask.cancel(false);
+            lingerTask = null;
+        }
+        BatchPublisher batch = current;
+        List<CompletableFuture<PublishAck>> futures = currentFutures;
+        Held h = held;
+        current = null;
+        currentFutures = null;
+        held = null;
+        sender.execute(() -> batch.commitAsync(h.subject, h.headers, h.data).whenComplete((pa, t) -> {
+            for (CompletableFuture<PublishAck> f : futures) {
+                if (t == null) {
+                    f.complete(pa);
+                }
+                else {
+                    f.completeExceptionally(t);
+                }
+            }
+        }));
+    }
+
+    /**
+     * Get an instance of the builder
+     * @param pool the pool the batches run on
+     * @return The Builder
+     */
+    public static Builder builder(BatchPublisherPool pool) {
+        return new Builder(pool);
+    }
+
+    /**
+     * The builder class for the AutoBatchPublisher
+     */
+    public static class Builder {
+        private final BatchPublisherPool pool;
+        private int maxMessages = DEFAULT_MAX_MESSAGES;
+        private long maxBytes = DEFAULT_MAX_BYTES;
+        private long lingerMillis = DEFAULT_LINGER_MILLIS;
+        private ScheduledExecutorService scheduler;
+
+        public Builder(@NonNull BatchPublisherPool pool) {
+            this.pool = pool;
+        }
+
+        /**
+         * The number of messages that commits a batch. Defaults to {@value #DEFAULT_MAX_MESSAGES},
+         * at most {@value #MAX_MESSAGES_LIMIT}
+         * @param maxMessages the number, less than 1 means the default
+         * @return The Builder
+         */
+        public Builder maxMessages(int maxMessages) {
+            this.maxMessages = maxMessages < 1 ? DEFAULT_MAX_MESSAGES : Math.min(maxMessages, MAX_MESSAGES_LIMIT);
+            return this;
+        }
+
+        /**
+         * The total data length that commits a batch. Only the data counts, not the subjects or headers.
+         * A message bigger than this still goes in a batch, which is committed with it.
+         * Defaults to {@value #DEFAULT_MAX_BYTES}
+         * @param maxBytes the number of bytes, less than 1 means the default
+         * @return The Builder
+         */
+        public Builder maxBytes(long maxBytes) {
+            this.maxBytes = maxBytes < 1 ? DEFAULT_MAX_BYTES : maxBytes;
+            return this;
+        }
+
+        /**
+         * How long after its first message a batch is committed if it hasn't filled up.
+         * Defaults to {@value #DEFAULT_LINGER_MILLIS}
+         * @param lingerMillis the time in milliseconds, less than 1 means the default
+         * @return The Builder
+         */
+        public Builder lingerMillis(long lingerMillis) {
+            this.lingerMillis = lingerMillis < 1 ? DEFAULT_LINGER_MILLIS : lingerMillis;
+            return this;
+        }
+
+        /**
+         * The scheduler for the linger timers. By default, the publisher uses its own single daemon thread
+         * and shuts it down when closed.
+         * @param scheduler the scheduler
+         * @return The Builder
+         */
+        public Builder scheduler(ScheduledExecutorService scheduler) {
+            this.scheduler = scheduler;
+            return this;
+        }
+
+        public AutoBatchPublisher build() {
+            validateNotNull(pool, "Pool required,");
+            return new AutoBatchPublisher(this);
+        }
+    }
+}
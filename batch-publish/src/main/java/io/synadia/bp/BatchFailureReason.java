@@ -0,0 +1,39 @@
+// Copyright (c) 2025 Synadia Communications Inc. All Rights Reserved.
+// See LICENSE and NOTICE file for details.
+
+package io.synadia.bp;
+
+/**
+ * Why a batch publish failed, see {@link BatchPublishException#getReason()}
+ */
+public enum BatchFailureReason {
+    /**
+     * The batch was already committed or discarded
+     */
+    NotOpen,
+
+    /**
+     * An ack did not arrive within the ack timeout
+     */
+    Timeout,
+
+    /**
+     * The server rejected the batch, see {@link BatchPublishException#getApiErrorCode()}
+     */
+    ApiError,
+
+    /**
+     * The server's reply was not a valid ack
+     */
+    InvalidAck,
+
+    /**
+     * The thread was interrupted while waiting for an ack
+     */
+    Interrupted,
+
+    /**
+     * Anything else, for instance the connection was closed
+     */
+    Other
+}
@@ -0,0 +1,465 @@
+// Copyright (c) 2025 Synadia Communications Inc. All Rights Reserved.
+// See LICENSE and NOTICE file for details.
+
+package io.synadia.bp;
+
+import io.nats.client.api.PublishAck;
+import org.jspecify.annotations.NonNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static io.nats.client.support.Validator.validateNotNull;
+
+/**
+ * Loads delimited records, for instance the lines of a CSV or NDJSON export, into a stream as atomic batches.
+ * <p>
+ * Records are framed by scanning for the delimiter directly in the read buffer, or in the memory mapped file,
+ * and each record is copied once, into the byte array that becomes its message data.
+ * Memory stays bounded: there is one read buffer, or one mapped region of a file, and the number of
+ * batches committing at once is limited by the pool's maximum outstanding commits.
+ * <p>
+ * Each batch is atomic, but an input with more records than fit in one batch is loaded as several batches.
+ * The first failed batch stops the ingest, batches committed before it stay in the stream.
+ * <p>
+ * An ingester can be used for any number of inputs, including at the same time from different threads.
+ */
+public class BatchIngester {
+    public static final byte DEFAULT_DELIMITER = '\n';
+    public static final int DEFAULT_MAX_BATCH_MESSAGES = 1000; // the server's batch limit
+    public static final long DEFAULT_MAX_BATCH_BYTES = 1024 * 1024;
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    public static final int DEFAULT_MAX_RECORD_SIZE = 1024 * 1024;
+
+    static final long MAP_REGION_SIZE = 64 * 1024 * 1024;
+
+    private final BatchPublisherPool pool;
+    private final Function<byte[], String> subjectMapper;
+    private final byte delimiter;
+    private final boolean stripCarriageReturn;
+    private final boolean skipEmptyRecords;
+    private final int maxBatchMessages;
+    private final long maxBatchBytes;
+    private final int bufferSize;
+    private final int maxRecordSize;
+    private final long mapRegionSize;
+    private final Consumer<IngestProgress> progressListener;
+
+    private BatchIngester(Builder b) {
+        pool = b.pool;
+        subjectMapper = b.subjectMapper;
+        delimiter = b.delimiter;
+        stripCarriageReturn = b.stripCarriageReturn;
+        skipEmptyRecords = b.skipEmptyRecords;
+        maxBatchMessages = b.maxBatchMessages;
+        maxBatchBytes = b.maxBatchBytes;
+        bufferSize = b.bufferSize;
+        maxRecordSize = b.maxRecordSize;
+        mapRegionSize = b.mapRegionSize;
+        progressListener = b.progressListener;
+    }
+
+    /**
+     * Ingest the records of a stream, reading until its end. The stream is not closed.
+     * @param in the input stream
+     * @return the final progress
+     * @throws IOException if reading fails or a record is longer than the maximum record size
+     * @throws BatchPublishException if a batch fails
+     */
+    public IngestProgress ingest(InputStream in) throws IOException, BatchPublishException {
+        Run run = new Run();
+        try {
+            byte[] chunk = new byte[bufferSize];
+            ByteBuffer buffer = ByteBuffer.wrap(chunk);
+            int filled = 0;
+            int n;
+            while ((n = in.read(chunk, filled, chunk.length - filled)) >= 0) {
+                int recordStart = frame(run, buffer, 0, filled, filled + n);
+                filled += n;
+
+                // move the start of a record that isn't complete to the front
+                int remaining = filled - recordStart;
+                if (remaining == chunk.length) {
+                    if (remaining > maxRecordSize) {
+                        throw recordTooLong();
+                    }
+                    byte[] bigger = new byte[Math.min(chunk.length * 2, maxRecordSize + 1)];
+                    System.arraycopy(chunk, 0, bigger, 0, remaining);
+                    chunk = bigger;
+                    buffer = ByteBuffer.wrap(chunk);
+                }
+                else if (recordStart > 0) {
+                    System.arraycopy(chunk, recordStart, chunk, 0, remaining);
+                }
+                filled = remaining;
+            }
+            if (filled > 0) {
+                run.record(buffer, 0, filled); // the last record does not have to end with the delimiter
+            }
+            return run.finish();
+        }
+        finally {
+            run.abandon();
+        }
+    }
+
+    /**
+     * Ingest the records of a file, reading it through memory mapped regions
+     * @param file the file
+     * @return the final progress
+     * @throws IOException if reading fails or a record is longer than the maximum record size
+     * @throws BatchPublishException if a batch fails
+     */
+    public IngestProgress ingest(Path file) throws IOException, BatchPublishException {
+        Run run = new Run();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long regionStart = 0;
+            while (regionStart < size) {
+                int regionSize = (int)Math.min(mapRegionSize, size - regionStart);
+                MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, regionStart, regionSize);
+                int recordStart = frame(run, region, 0, 0, regionSize);
+                if (regionStart + regionSize == size) {
+                    if (recordStart < regionSize) {
+                        run.record(region, recordStart, regionSize);
+                    }
+                    break;
+                }
+                if (recordStart == 0) {
+                    throw recordTooLong();
+                }
+                // the next region starts at the record that isn't complete
+                regionStart += recordStart;
+            }
+            return run.finish();
+        }
+        finally {
+            run.abandon();
+        }
+    }
+
+    /**
+     * Hand every complete record in the buffer to the run
+     * @param recordStart where the current record starts
+     * @param scanFrom where to start looking for the delimiter, bytes before this were already scanned
+     * @param limit the end of the data in the buffer
+     * @return where the record that isn't complete starts, limit if there is none
+     */
+    private int frame(Run run, ByteBuffer buffer, int recordStart, int scanFrom, int limit) throws IOException, BatchPublishException {
+        for (int ix = scanFrom; ix < limit; ix++) {
+            if (buffer.get(ix) == delimiter) {
+                run.record(buffer, recordStart, ix);
+                recordStart = ix + 1;
+            }
+        }
+        return recordStart;
+    }
+
+    private IOException recordTooLong() {
+        return new IOException("Record is longer than the maximum record size of " + maxRecordSize + " bytes.");
+    }
+
+    /**
+     * The state of one ingest
+     */
+    private class Run {
+        private final ArrayDeque<CompletableFuture<PublishAck>> commits = new ArrayDeque<>();
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        private BatchPublisher batch;
+        private String heldSubject;
+        private byte[] heldData;
+        private int batchRecords;
+        private long batchBytes;
+
+        // progress of committed batches, updated by the commit callbacks
+        private long records;
+        private long bytes;
+        private long batches;
+        private IngestProgress progress = new IngestProgress(0, 0, 0, null);
+
+        void record(ByteBuffer buffer, int start, int end) throws IOException, BatchPublishException {
+            if (stripCarriageReturn && end > start && buffer.get(end - 1) == '\r') {
+                end--;
+            }
+            int len = end - start;
+            if (len == 0 && skipEmptyRecords) {
+                return;
+            }
+            if (len > maxRecordSize) {
+                throw recordTooLong();
+            }
+            byte[] data = new byte[len];
+            buffer.position(start);
+            buffer.get(data);
+            add(subjectMapper.apply(data), data);
+        }
+
+        /**
+         * Add the record held back to the batch, and hold this one back, so the last record of a batch can be its commit
+         */
+        void add(String subject, byte[] data) throws IOException, BatchPublishException {
+            checkFailure();
+            if (batch == null) {
+                batch = pool.acquire();
+                batchRecords = 0;
+                batchBytes = 0;
+            }
+            else {
+                // a failed add fails the batch, which its commit reports
+                batch.addAsync(heldSubject, heldData);
+            }
+            heldSubject = subject;
+            heldData = data;
+            batchRecords++;
+            batchBytes += data.length;
+            if (batchRecords >= maxBatchMessages || batchBytes >= maxBatchBytes) {
+                commit();
+            }
+        }
+
+        void commit() throws InterruptedIOException {
+            int committedRecords = batchRecords;
+            long committedBytes = batchBytes;
+            CompletableFuture<PublishAck> f = batch.commitAsync(heldSubject, heldData);
+            batch = null;
+            heldSubject = null;
+            heldData = null;
+
+            // wait on the callback's future, not the commit's, so the progress includes the batch once it is done
+            commits.add(f.whenComplete((pa, t) -> {
+                if (t == null) {
+                    committed(committedRecords, committedBytes, pa);
+                }
+                else {
+                    failure.compareAndSet(null, t);
+                }
+            }));
+            // commitAsync does not wait for the pool, so wait here, or the whole input could be read ahead of the commits
+            while (!commits.isEmpty() && (commits.peek().isDone() || commits.size() > pool.getMaxOutstandingCommits())) {
+                await(commits.poll());
+            }
+        }
+
+        synchronized void committed(int batchRecords, long batchBytes, PublishAck pa) {
+            records += batchRecords;
+            bytes += batchBytes;
+            batches++;
+            progress = new IngestProgress(records, bytes, batches, pa);
+            if (progressListener != null) {
+                progressListener.accept(progress);
+            }
+        }
+
+        IngestProgress finish() throws IOException, BatchPublishException {
+            checkFailure();
+            if (batch != null) {
+                commit();
+            }
+            for (CompletableFuture<PublishAck> f : commits) {
+                await(f);
+            }
+            checkFailure();
+            synchronized (this) {
+                return progress;
+            }
+        }
+
+        void await(CompletableFuture<PublishAck> f) throws InterruptedIOException {
+            try {
+                f.get();
+            }
+            catch (ExecutionException e) {
+                failure.compareAndSet(null, e.getCause());
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted waiting for the commits.");
+            }
+        }
+
+        void checkFailure() throws IOException, BatchPublishException {
+            Throwable t = failure.get();
+            if (t instanceof BatchPublishException) {
+                throw (BatchPublishException)t;
+            }
+            if (t != null) {
+                throw new IOException(t);
+            }
+        }
+
+        /**
+         * Give back a batch that was not committed because the ingest failed
+         */
+        void abandon() {
+            if (batch != null) {
+                batch.discard();
+                batch = null;
+            }
+        }
+    }
+
+    /**
+     * Get an instance of the builder
+     * @param pool the pool the batches run on
+     * @return The Builder
+     */
+    public static Builder builder(BatchPublisherPool pool) {
+        return new Builder(pool);
+    }
+
+    /**
+     * The builder class for the BatchIngester
+     */
+    public static class Builder {
+        private final BatchPublisherPool pool;
+        private Function<byte[], String> subjectMapper;
+        private byte delimiter = DEFAULT_DELIMITER;
+        private boolean stripCarriageReturn = true;
+        private boolean skipEmptyRecords = true;
+        private int maxBatchMessages = DEFAULT_MAX_BATCH_MESSAGES;
+        private long maxBatchBytes = DEFAULT_MAX_BATCH_BYTES;
+        private int bufferSize = DEFAULT_BUFFER_SIZE;
+        private int maxRecordSize = DEFAULT_MAX_RECORD_SIZE;
+        private long mapRegionSize = MAP_REGION_SIZE;
+        private Consumer<IngestProgress> progressListener;
+
+        public Builder(@NonNull BatchPublisherPool pool) {
+            this.pool = pool;
+        }
+
+        /**
+         * Publish every record to one subject
+         * @param subject the subject
+         * @return The Builder
+         */
+        public Builder subject(String subject) {
+            this.subjectMapper = subject == null ? null : record -> subject;
+            return this;
+        }
+
+        /**
+         * Publish each record to the subject the mapper gives it
+         * @param subjectMapper the mapper from the record data to its subject
+         * @return The Builder
+         */
+        public Builder subjectMapper(Function<byte[], String> subjectMapper) {
+            this.subjectMapper = subjectMapper;
+            return this;
+        }
+
+        /**
+         * The byte that ends each record. Defaults to a new line.
+         * @param delimiter the delimiter
+         * @return The Builder
+         */
+        public Builder delimiter(byte delimiter) {
+            this.delimiter = delimiter;
+            return this;
+        }
+
+        /**
+         * Whether to remove a carriage return before the delimiter, for windows line endings. Defaults to true.
+         * @param stripCarriageReturn the flag
+         * @return The Builder
+         */
+        public Builder stripCarriageReturn(boolean stripCarriageReturn) {
+            this.stripCarriageReturn = stripCarriageReturn;
+            return this;
+        }
+
+        /**
+         * Whether to skip records with no data instead of publishing them. Defaults to true.
+         * @param skipEmptyRecords the flag
+         * @return The Builder
+         */
+        public Builder skipEmptyRecords(boolean skipEmptyRecords) {
+            this.skipEmptyRecords = skipEmptyRecords;
+            return this;
+        }
+
+        /**
+         * The most records in one batch. Defaults to and is at most {@value #DEFAULT_MAX_BATCH_MESSAGES}
+         * @param maxBatchMessages the number, less than 1 means the default
+         * @return The Builder
+         */
+        public Builder maxBatchMessages(int maxBatchMessages) {
+            this.maxBatchMessages = maxBatchMessages < 1 ? DEFAULT_MAX_BATCH_MESSAGES : Math.min(maxBatchMessages, DEFAULT_MAX_BATCH_MESSAGES);
+            return this;
+        }
+
+        /**
+         * The record data length that completes a batch. Defaults to {@value #DEFAULT_MAX_BATCH_BYTES}
+         * @param maxBatchBytes the number of bytes, less than 1 means the default
+         * @return The Builder
+         */
+        public Builder maxBatchBytes(long maxBatchBytes) {
+            this.maxBatchBytes = maxBatchBytes < 1 ? DEFAULT_MAX_BATCH_BYTES : maxBatchBytes;
+            return this;
+        }
+
+        /**
+         * The initial size of the buffer for reading input streams. It grows if a record does not fit,
+         * up to the maximum record size. Defaults to {@value #DEFAULT_BUFFER_SIZE}
+         * @param bufferSize the size, less than 1 means the default
+         * @return The Builder
+         */
+        public Builder bufferSize(int bufferSize) {
+            this.bufferSize = bufferSize < 1 ? DEFAULT_BUFFER_SIZE : bufferSize;
+            return this;
+        }
+
+        /**
+         * The longest record allowed. Defaults to {@value #DEFAULT_MAX_RECORD_SIZE}
+         * @param maxRecordSize the size, less than 1 means the default
+         * @return The Builder
+         */
+        public Builder maxRecordSize(int maxRecordSize) {
+            this.maxRecordSize = maxRecordSize < 1 ? DEFAULT_MAX_RECORD_SIZE : maxRecordSize;
+            return this;
+        }
+
+        /**
+         * The size of the memory mapped regions of a file, so tests can use small files
+         * @param mapRegionSize the size
+         * @return The Builder
+         */
+        Builder mapRegionSize(long mapRegionSize) {
+            this.mapRegionSize = mapRegionSize;
+            return this;
+        }
+
+        /**
+         * Called each time a batch is committed, from the thread completing the commit, one call at a time.
+         * It must not block.
+         * @param progressListener the listener
+         * @return The Builder
+         */
+        public Builder progressListener(Consumer<IngestProgress> progressListener) {
+            this.progressListener = progressListener;
+            return this;
+        }
+
+        public BatchIngester build() {
+            validateNotNull(pool, "Pool required,");
+            validateNotNull(subjectMapper, "Subject or subject mapper required,");
+            // a region must hold the longest record and its delimiter
+            if (maxRecordSize >= mapRegionSize) {
+                throw new IllegalArgumentException("Max record size must be less than " + mapRegionSize + " bytes.");
+            }
+            return new BatchIngester(this);
+        }
+    }
+}
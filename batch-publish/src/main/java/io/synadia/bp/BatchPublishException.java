@@ -7,28 +7,57 @@ import io.nats.client.JetStreamApiException;
 import org.jspecify.annotations.NonNull;
 import org.jspecify.annotations.Nullable;
 
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
 public class BatchPublishException extends Exception {
     private final JetStreamApiException jsApiException;
     private final String batchId;
+    private final BatchFailureReason reason;
 
     public BatchPublishException(@NonNull String batchId, @NonNull String message) {
+        this(batchId, message, BatchFailureReason.Other);
+    }
+
+    BatchPublishException(@NonNull String batchId, @NonNull String message, @NonNull BatchFailureReason reason) {
         super(message);
         this.batchId = batchId;
+        this.reason = reason;
         jsApiException = null;
     }
 
     public BatchPublishException(@NonNull String batchId, @NonNull JetStreamApiException cause) {
         super(cause);
         this.batchId = batchId;
+        this.reason = BatchFailureReason.ApiError;
         jsApiException = cause;
     }
 
     public BatchPublishException(@NonNull String batchId, @NonNull Throwable cause) {
         super(cause);
         this.batchId = batchId;
+        this.reason = reasonOf(cause);
         jsApiException = null;
     }
 
+    private static BatchFailureReason reasonOf(Throwable cause) {
+        if (cause instanceof ExecutionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof TimeoutException || cause instanceof CancellationException) {
+            // a request that times out is cancelled
+            return BatchFailureReason.Timeout;
+        }
+        if (cause instanceof InterruptedException) {
+            return BatchFailureReason.Interrupted;
+        }
+        if (cause instanceof JetStreamApiException) {
+            return BatchFailureReason.ApiError;
+        }
+        return BatchFailureReason.Other;
+    }
+
     @Override
     public String getMessage() {
         return "[" + batchId + "] " + super.getMessage();
@@ -39,6 +68,15 @@ public class BatchPublishException extends Exception {
         return batchId;
     }
 
+    /**
+     * Why the batch failed
+     * @return the reason
+     */
+    @NonNull
+    public BatchFailureReason getReason() {
+        return reason;
+    }
+
     @Nullable
     public JetStreamApiException getJsApiException() {
         return jsApiException;
@@ -0,0 +1,43 @@
+// Copyright (c) 2025 Synadia Communications Inc. All Rights Reserved.
+// See LICENSE and NOTICE file for details.
+
+package io.synadia.bp;
+
+import io.nats.client.api.PublishAck;
+
+/**
+ * Receives per batch measurements from a BatchPublisher, for instance to size ackEvery and the ack timeout.
+ * Methods are called on the publishing thread, or for async adds and commits on the thread completing the ack,
+ * so implementations must be fast and thread safe. Every method does nothing by default.
+ * Without a listener, the publisher does not take any measurements.
+ */
+public interface BatchPublishListener {
+    /**
+     * The publishing thread was blocked by flow control: waiting for the ack of an add,
+     * or for async adds, waiting for the oldest outstanding ack when there were maxOutstandingAcks
+     * @param batchId the batch id
+     * @param sequence the sequence of the message being added
+     * @param blockedNanos how long the thread was blocked
+     */
+    default void flowControlBlocked(String batchId, int sequence, long blockedNanos) {}
+
+    /**
+     * A batch was committed
+     * @param batchId the batch id
+     * @param messages the number of messages in the batch, including the commit
+     * @param bytes the total data length of the messages in the batch
+     * @param commitNanos the time from sending the commit to receiving its ack
+     * @param publishAck the commit's ack
+     */
+    default void committed(String batchId, int messages, long bytes, long commitNanos, PublishAck publishAck) {}
+
+    /**
+     * An add or commit failed. A failure of the async adds and commit fails the whole batch
+     * and is called once per batch, for the first failure. A failure thrown by a synchronous add or commit
+     * is called each time it is thrown.
+     * @param batchId the batch id
+     * @param reason the reason, the same as the exception's
+     * @param e the exception
+     */
+    default void failed(String batchId, BatchFailureReason reason, BatchPublishException e) {}
+}
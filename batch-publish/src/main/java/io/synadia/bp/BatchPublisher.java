@@ -12,42 +12,84 @@ import org.jspecify.annotations.Nullable;
 
 import java.io.IOException;
 import java.time.Duration;
+import java.util.ArrayDeque;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static io.nats.client.PublishOptions.DEFAULT_TIMEOUT;
 import static io.nats.client.support.NatsJetStreamConstants.*;
 import static io.nats.client.support.Validator.*;
 
 public class BatchPublisher {
+    public static final int DEFAULT_MAX_OUTSTANDING_ACKS = 1;
+
+    private static final int CACHED_SEQUENCES = 1000;
+
     enum State {
         Open, Closed, Discarded
     }
 
-    private final String batchId;
     private final Connection conn;
     private final Duration ackTimeout;
     private final boolean ackFirst;
     private final int ackEvery;
     private final MessageTtl messageTtl;
+    private final int maxOutstandingAcks;
+    private final BatchPublishListener listener;
 
     private final Headers headers; // final to be re-used/cleared
+    private final ArrayDeque<CompletableFuture<Void>> outstandingAcks;
+    private final BatchPublisherPool pool;
+    private String batchId;
+    private Headers templateUserHeaders;
+    private BatchPublishOptions templateOpts;
+    private boolean templateBuilt;
+    private AtomicReference<BatchPublishException> failure; // replaced, not cleared, when a pooled publisher is reset
     private int lastSeq;
+    private long bytes;
     private State state;
 
     private BatchPublisher(BatchPublisher.Builder b) {
-        batchId = b.batchId;
+        this(b, b.batchId, null);
+    }
+
+    BatchPublisher(BatchPublisher.Builder b, String batchId, BatchPublisherPool pool) {
+        this.batchId = batchId;
+        this.pool = pool;
         conn = b.conn;
         ackTimeout = b.ackTimeout;
         ackFirst = b.ackFirst;
         ackEvery = b.ackEvery;
         messageTtl = b.messageTtl;
+        maxOutstandingAcks = b.maxOutstandingAcks;
+        listener = b.listener;
 
         headers = new Headers();
+        outstandingAcks = new ArrayDeque<>();
+        failure = new AtomicReference<>();
+        lastSeq = 0;
+        state = State.Open;
+    }
+
+    /**
+     * Start a new batch with this publisher, used by the pool
+     * @param batchId the new batch id
+     */
+    void reset(String batchId) {
+        this.batchId = batchId;
+        headers.clear();
+        outstandingAcks.clear();
+        failure = new AtomicReference<>();
+        templateUserHeaders = null;
+        templateOpts = null;
+        templateBuilt = false;
         lastSeq = 0;
+        bytes = 0;
         state = State.Open;
     }
 
@@ -69,6 +111,19 @@ public class BatchPublisher {
         return ackEvery;
     }
 
+    public int getMaxOutstandingAcks() {
+        return maxOutstandingAcks;
+    }
+
+    /**
+     * The first failed ack of an async add, which fails the rest of the batch
+     * @return the failure or null if there was none
+     */
+    @Nullable
+    public BatchPublishException getFailure() {
+        return failure.get();
+    }
+
     /**
      * Gets the message ttl string. Might be null. Might be "never".
      * 10 seconds would be "10s" for the server
@@ -82,8 +137,20 @@ public class BatchPublisher {
         return lastSeq;
     }
 
+    /**
+     * The total data length of the messages added so far
+     * @return the number of bytes
+     */
+    public long byteCount() {
+        return bytes;
+    }
+
     public void discard() {
+        boolean wasOpen = state == State.Open;
         state = State.Discarded;
+        if (wasOpen && pool != null) {
+            pool.recycle(this);
+        }
     }
 
     public boolean isOpen() {
@@ -111,9 +178,8 @@ public class BatchPublisher {
     }
 
     public void add(String subject, Headers userHeaders, byte[] data, BatchPublishOptions opts) throws BatchPublishException {
-        if (state != State.Open) {
-            throw new BatchPublishException(batchId, "Batch not open: " + state);
-        }
+        checkOpen();
+        countBytes(data);
         if (   (++lastSeq == 1 && ackFirst)               // first publish
             || (ackEvery > 0 && lastSeq % ackEvery == 0)) // or every publish
         {
@@ -138,17 +204,191 @@ public class BatchPublisher {
     }
 
     public void addAcked(String subject, Headers userHeaders, byte[] data, BatchPublishOptions opts) throws BatchPublishException {
-        if (state != State.Open) {
-            throw new BatchPublishException(batchId, "Batch not open: " + state);
-        }
+        checkOpen();
+        countBytes(data);
         ++lastSeq;
         _addAcked(subject, userHeaders, data, opts);
     }
 
+    private void countBytes(byte[] data) {
+        if (data != null) {
+            bytes += data.length;
+        }
+    }
+
+    private void checkOpen() throws BatchPublishException {
+        if (state != State.Open) {
+            throw new BatchPublishException(batchId, "Batch not open: " + state, BatchFailureReason.NotOpen);
+        }
+        BatchPublishException f = failure.get();
+        if (f != null) {
+            throw f;
+        }
+    }
+
+    public CompletableFuture<Void> addAsync(String subject, byte[] data) {
+        return addAsync(subject, null, data, null);
+    }
+
+    public CompletableFuture<Void> addAsync(String subject, byte[] data, BatchPublishOptions opts) {
+        return addAsync(subject, null, data, opts);
+    }
+
+    public CompletableFuture<Void> addAsync(String subject, Headers userHeaders, byte[] data) {
+        return addAsync(subject, userHeaders, data, null);
+    }
+
+    /**
+     * Add a message without waiting for flow control acks.
+     * Messages that don't need an ack (see ackFirst and ackEvery) are published right away and get a completed future.
+     * Messages that need an ack are sent as requests, and their future completes when the ack arrives.
+     * Messages keep being published while acks are outstanding, but once there are
+     * maxOutstandingAcks outstanding, adding a message that needs an ack waits for the oldest one.
+     * The first bad ack fails the batch, so all later adds and the commit fail with the same exception.
+     * The publisher is still not thread safe, adds must be made from one thread at a time.
+     * @param subject the subject
+     * @param userHeaders the user headers, may be null
+     * @param data the data
+     * @param opts the options, may be null
+     * @return a future that completes when the message is published, or acked if it needs an ack
+     */
+    public CompletableFuture<Void> addAsync(String subject, Headers userHeaders, byte[] data, BatchPublishOptions opts) {
+        try {
+            checkOpen();
+            countBytes(data);
+            if (   (++lastSeq == 1 && ackFirst)               // first publish
+                || (ackEvery > 0 && lastSeq % ackEvery == 0)) // or every publish
+            {
+                awaitAckWindow();
+                AtomicReference<BatchPublishException> batchFailure = failure;
+                String id = batchId;
+                // the failure is remembered before the future completes, so an add made after seeing it fails too
+                CompletableFuture<Void> f = requestAsync(subject, userHeaders, data, false, opts)
+                    .thenApply(m -> {
+                        if (m.getData().length != 0) {
+                            throw new CompletionException(new BatchPublishException(id, "Invalid ack returned from add with confirm", BatchFailureReason.InvalidAck));
+                        }
+                        return (Void)null;
+                    })
+                    .whenComplete((v, t) -> {
+                        if (t != null) {
+                            fail(batchFailure, id, t);
+                        }
+                    });
+                outstandingAcks.add(f);
+                return f;
+            }
+            updateHeaders(false, userHeaders, opts);
+            conn.publish(subject, headers, data);
+            return CompletableFuture.completedFuture(null);
+        }
+        catch (BatchPublishException e) {
+            return failedFuture(e);
+        }
+        catch (RuntimeException e) {
+            return failedFuture(fail(e));
+        }
+    }
+
+    /**
+     * Wait for the oldest outstanding ack while the window is full
+     */
+    private void awaitAckWindow() throws BatchPublishException {
+        awaitAcks(maxOutstandingAcks);
+    }
+
+    /**
+     * Wait for the oldest outstanding acks until fewer than the window are outstanding
+     * @param window the number of acks that stops the wait, 1 to wait for all of them
+     */
+    private void awaitAcks(int window) throws BatchPublishException {
+        CompletableFuture<Void> oldest = outstandingAcks.peek();
+        long start = 0;
+        while (oldest != null && (oldest.isDone() || outstandingAcks.size() >= window)) {
+            if (start == 0 && listener != null && !oldest.isDone()) {
+                start = System.nanoTime();
+            }
+            try {
+                oldest.get(ackTimeout.toNanos(), TimeUnit.NANOSECONDS);
+            }
+            catch (ExecutionException e) {
+                throw fail(e.getCause());
+            }
+            catch (TimeoutException e) {
+                throw fail(e);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw report(new BatchPublishException(batchId, e));
+            }
+            outstandingAcks.poll();
+            oldest = outstandingAcks.peek();
+        }
+        if (start != 0) {
+            listener.flowControlBlocked(batchId, lastSeq, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Remember the first failure of the batch
+     * @param t the cause
+     * @return the first failure, which might not be this one
+     */
+    private BatchPublishException fail(Throwable t) {
+        return fail(failure, batchId, t);
+    }
+
+    /**
+     * Remember the first failure of a batch. Callbacks pass the batch they belong to,
+     * since a pooled publisher may have moved on to another batch by the time they run.
+     */
+    private BatchPublishException fail(AtomicReference<BatchPublishException> failure, String batchId, Throwable t) {
+        if (t instanceof CompletionException && t.getCause() != null) {
+            t = t.getCause();
+        }
+        BatchPublishException bpe;
+        if (t instanceof BatchPublishException) {
+            bpe = (BatchPublishException)t;
+        }
+        else if (t instanceof JetStreamApiException) {
+            bpe = new BatchPublishException(batchId, (JetStreamApiException)t);
+        }
+        else {
+            bpe = new BatchPublishException(batchId, t);
+        }
+        if (failure.compareAndSet(null, bpe) && listener != null) {
+            listener.failed(batchId, bpe.getReason(), bpe);
+        }
+        return failure.get();
+    }
+
+    /**
+     * Tell the listener about a failure that is thrown to the caller but is not a failure of the batch,
+     * so it is not remembered and does not change what later adds and commits do.
+     * @param bpe the exception
+     * @return the exception, to be thrown
+     */
+    private BatchPublishException report(BatchPublishException bpe) {
+        if (listener != null) {
+            listener.failed(batchId, bpe.getReason(), bpe);
+        }
+        return bpe;
+    }
+
+    private static <T> CompletableFuture<T> failedFuture(Throwable t) {
+        CompletableFuture<T> f = new CompletableFuture<>();
+        f.completeExceptionally(t);
+        return f;
+    }
+
     private void _addAcked(String subject, Headers userHeaders, byte[] data, BatchPublishOptions opts) throws BatchPublishException {
+        long start = listener == null ? 0 : System.nanoTime();
         Message m = request(subject, userHeaders, data, false, opts);
         if (m.getData().length != 0) {
-            throw new BatchPublishException(batchId, "Invalid ack returned from add with confirm");
+            throw report(new BatchPublishException(batchId, "Invalid ack returned from add with confirm", BatchFailureReason.InvalidAck));
+        }
+        if (listener != null) {
+            listener.flowControlBlocked(batchId, lastSeq, System.nanoTime() - start);
         }
     }
 
@@ -164,26 +404,49 @@ public class BatchPublisher {
         return commit(subject, userHeaders, data, null);
     }
 
+    /**
+     * Commit and wait for the commit's ack. Acks of async adds that are still outstanding are waited for first,
+     * and if one of them failed, the batch fails with it and the commit is not sent.
+     * For a publisher from a pool that is at its limit of outstanding commits, this waits until another commit completes.
+     * @param subject the subject
+     * @param userHeaders the user headers, may be null
+     * @param data the data
+     * @param opts the options, may be null
+     * @return the commit's ack
+     * @throws BatchPublishException if the batch failed, the commit failed or the wait was interrupted
+     */
     public PublishAck commit(String subject, Headers userHeaders, byte[] data, BatchPublishOptions opts) throws BatchPublishException {
-        if (state != State.Open) {
-            throw new BatchPublishException(batchId, "Batch not open: " + state);
+        checkOpen();
+        if (pool != null) {
+            pool.beforeCommit(batchId);
         }
         try {
+            // the acks of async adds come first, a failed one fails the batch, so the commit is not sent
+            awaitAcks(1);
             ++lastSeq;
+            countBytes(data);
+            long start = listener == null ? 0 : System.nanoTime();
             Message m = request(subject, userHeaders, data, true, opts);
-            return new PublishAck(m);
+            PublishAck pa = new PublishAck(m);
+            if (listener != null) {
+                listener.committed(batchId, lastSeq, bytes, System.nanoTime() - start, pa);
+            }
+            return pa;
         }
         catch (IOException e) {
             // done this way because PublishAck makes an IOException if the ack is invalid.
             // it was done that way because of api backward compatibility
             // just no need of the extra layer
-            throw new BatchPublishException(batchId, e.getMessage());
+            throw report(new BatchPublishException(batchId, e.getMessage(), BatchFailureReason.InvalidAck));
         }
         catch (JetStreamApiException e) {
-            throw new BatchPublishException(batchId, e);
+            throw report(new BatchPublishException(batchId, e));
         }
         finally {
             state = State.Closed;
+            if (pool != null) {
+                pool.afterCommit(this);
+            }
         }
     }
 
@@ -199,42 +462,141 @@ public class BatchPublisher {
         return commitAsync(subject, userHeaders, data, null);
     }
 
+    /**
+     * Commit without blocking. The commit is sent right away, even if acks of async adds are outstanding.
+     * For a publisher from a pool that is at its limit of outstanding commits, the commit is instead sent
+     * once another commit completes, so the data and headers must not be changed until the future completes.
+     * Until then the batch stays open on the server, which abandons it after its batch inactivity timeout.
+     * The future completes with the commit's ack once those acks have also arrived,
+     * or exceptionally with a BatchPublishException on the first failure.
+     * @param subject the subject
+     * @param userHeaders the user headers, may be null
+     * @param data the data
+     * @param opts the options, may be null
+     * @return the future for the commit's ack
+     */
     public CompletableFuture<PublishAck> commitAsync(String subject, Headers userHeaders, byte[] data, BatchPublishOptions opts) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                return commit(subject, userHeaders, data, opts);
+        try {
+            checkOpen();
+        }
+        catch (BatchPublishException e) {
+            return failedFuture(e);
+        }
+        state = State.Closed;
+        ++lastSeq;
+        countBytes(data);
+        CompletableFuture<?>[] acks = outstandingAcks.toArray(new CompletableFuture<?>[outstandingAcks.size() + 1]);
+        outstandingAcks.clear();
+        if (pool == null) {
+            return sendCommit(subject, userHeaders, data, opts, acks);
+        }
+        return pool.commitPermit().thenCompose(v -> sendCommit(subject, userHeaders, data, opts, acks));
+    }
+
+    /**
+     * Send the commit of a closed batch. The batch is not reset before the commit completes,
+     * so this can run later, on the thread that released the pool's commit permit.
+     * @param acks the outstanding acks of the batch, with the last slot left for the commit
+     */
+    private CompletableFuture<PublishAck> sendCommit(String subject, Headers userHeaders, byte[] data, BatchPublishOptions opts, CompletableFuture<?>[] acks) {
+        CompletableFuture<PublishAck> commitFuture;
+        String id = batchId;
+        long start = listener == null ? 0 : System.nanoTime();
+        try {
+            commitFuture = requestAsync(subject, userHeaders, data, true, opts)
+                .thenApply(m -> {
+                    try {
+                        return new PublishAck(m);
+                    }
+                    catch (IOException e) {
+                        throw new CompletionException(new BatchPublishException(id, e.getMessage(), BatchFailureReason.InvalidAck));
+                    }
+                    catch (JetStreamApiException e) {
+                        throw new CompletionException(new BatchPublishException(id, e));
+                    }
+                });
+        }
+        catch (RuntimeException e) {
+            BatchPublishException bpe = fail(e);
+            if (pool != null) {
+                pool.afterCommit(this);
             }
-            catch (BatchPublishException e) {
-                throw new RuntimeException(e);
+            return failedFuture(bpe);
+        }
+
+        acks[acks.length - 1] = commitFuture;
+        CompletableFuture<PublishAck> result = new CompletableFuture<>();
+        AtomicReference<BatchPublishException> batchFailure = failure;
+        int messages = lastSeq;
+        long batchBytes = bytes;
+        if (listener != null) {
+            commitFuture.thenAccept(pa -> listener.committed(id, messages, batchBytes, System.nanoTime() - start, pa));
+        }
+        CompletableFuture.allOf(acks).whenComplete((v, t) -> {
+            PublishAck pa = t == null ? commitFuture.join() : null;
+            BatchPublishException bpe = t == null ? null : fail(batchFailure, id, t);
+            // recycle before completing, so a caller waiting on the result can immediately reuse the pooled publisher
+            if (pool != null) {
+                pool.afterCommit(this);
+            }
+            if (bpe == null) {
+                result.complete(pa);
             }
-        }, conn.getOptions().getExecutor());
+            else {
+                result.completeExceptionally(bpe);
+            }
+        });
+        return result;
+    }
+
+    private CompletableFuture<Message> requestAsync(String subject, Headers userHeaders, byte[] data, boolean commit, BatchPublishOptions opts) {
+        updateHeaders(commit, userHeaders, opts);
+        return conn.requestWithTimeout(subject, headers, data, ackTimeout);
     }
 
     private Message request(String subject, Headers userHeaders, byte[] data, boolean commit, BatchPublishOptions opts) throws BatchPublishException {
         try {
-            updateHeaders(commit, userHeaders, opts);
-            CompletableFuture<Message> f = conn.requestWithTimeout(subject, headers, data, ackTimeout);
+            CompletableFuture<Message> f = requestAsync(subject, userHeaders, data, commit, opts);
             return f.get(ackTimeout.toNanos(), TimeUnit.NANOSECONDS);
         }
         catch (ExecutionException | TimeoutException e) {
-            throw new BatchPublishException(batchId, e);
+            throw report(new BatchPublishException(batchId, e));
         }
         catch (InterruptedException e) {
             Thread.currentThread().interrupt();
-            throw new BatchPublishException(batchId, e);
+            throw report(new BatchPublishException(batchId, e));
         }
     }
 
+    /**
+     * Set the headers for the next message. The batch id, user headers, options headers and ttl
+     * usually don't change within a batch, so they are only put again when the user headers or options
+     * are not the same instances as the previous message's. Otherwise only the sequence is replaced.
+     * They are compared by identity, so the check does not depend on how many headers there are,
+     * which means user headers passed again must not have been changed since the previous message.
+     */
     private void updateHeaders(boolean commit, Headers userHeaders, BatchPublishOptions bpOpts) {
-        headers.clear();
-        headers.put(NATS_BATCH_ID_HDR, batchId);
-        headers.put(NatsJetStreamConstants.NATS_BATCH_SEQUENCE_HDR, Integer.toString(lastSeq));
+        if (userHeaders != null && userHeaders.isEmpty()) {
+            userHeaders = null;
+        }
+        if (!templateBuilt
+            || bpOpts != templateOpts
+            || userHeaders != templateUserHeaders)
+        {
+            buildTemplate(userHeaders, bpOpts);
+        }
 
+        headers.put(NATS_BATCH_SEQUENCE_HDR, sequenceString(lastSeq));
         if (commit) {
             headers.put(NatsJetStreamConstants.NATS_BATCH_COMMIT_HDR, "1");
         }
+    }
 
-        if (userHeaders != null && !userHeaders.isEmpty()) {
+    private void buildTemplate(Headers userHeaders, BatchPublishOptions bpOpts) {
+        headers.clear();
+        headers.put(NATS_BATCH_ID_HDR, batchId);
+
+        if (userHeaders != null) {
             Set<String> keys = userHeaders.keySet();
             for (String key : keys) {
                 headers.put(key, userHeaders.get(key));
@@ -269,6 +631,26 @@ public class BatchPublisher {
                 headers.put(MSG_TTL_HDR, temp);
             }
         }
+
+        templateUserHeaders = userHeaders;
+        templateOpts = bpOpts;
+        templateBuilt = true;
+    }
+
+    static String sequenceString(int seq) {
+        return seq > 0 && seq <= CACHED_SEQUENCES ? SequenceStrings.STRINGS[seq - 1] : Integer.toString(seq);
+    }
+
+    /**
+     * The sequence strings up to the server's maximum batch size, created the first time they are needed
+     */
+    private static class SequenceStrings {
+        static final String[] STRINGS = new String[CACHED_SEQUENCES];
+        static {
+            for (int ix = 0; ix < CACHED_SEQUENCES; ix++) {
+                STRINGS[ix] = Integer.toString(ix + 1);
+            }
+        }
     }
 
     /**
@@ -288,7 +670,9 @@ public class BatchPublisher {
         private String batchId;
         private boolean ackFirst = true;
         private int ackEvery;
+        private int maxOutstandingAcks = DEFAULT_MAX_OUTSTANDING_ACKS;
         private MessageTtl messageTtl;
+        private BatchPublishListener listener;
 
         public Builder connection(Connection conn) {
             this.conn = conn;
@@ -340,6 +724,28 @@ public class BatchPublisher {
             return this;
         }
 
+        /**
+         * The most acks of async adds that can be outstanding before adding a message that needs an ack
+         * waits for the oldest one. Messages that don't need an ack never wait.
+         * Defaults to {@value #DEFAULT_MAX_OUTSTANDING_ACKS}.
+         * @param maxOutstandingAcks the maximum, less than 1 means the default
+         * @return The Builder
+         */
+        public Builder maxOutstandingAcks(int maxOutstandingAcks) {
+            this.maxOutstandingAcks = maxOutstandingAcks < 1 ? DEFAULT_MAX_OUTSTANDING_ACKS : maxOutstandingAcks;
+            return this;
+        }
+
+        /**
+         * The listener for per batch measurements. Defaults to none, which takes no measurements.
+         * @param listener the listener
+         * @return The Builder
+         */
+        public Builder publishListener(BatchPublishListener listener) {
+            this.listener = listener;
+            return this;
+        }
+
         /**
          * Sets the TTL for this specific message to be published.
          * Less than 1 has the effect of clearing the message ttl
@@ -383,13 +789,7 @@ public class BatchPublisher {
         }
 
         public BatchPublisher build() {
-            validateNotNull(conn, "Connection required,");
-            if (!conn.getServerInfo().isNewerVersionThan("2.11.99")) {
-                throw new IllegalArgumentException("Batch direct get not available until server version 2.11.0.");
-            }
-            if (ackTimeout == null) {
-                ackTimeout = conn.getOptions().getConnectionTimeout();
-            }
+            validate();
             batchId = emptyAsNull(batchId);
             if (batchId == null) {
                 batchId = new NUID().next();
@@ -399,5 +799,18 @@ public class BatchPublisher {
             }
             return new BatchPublisher(this);
         }
+
+        /**
+         * Validate the connection and settings shared by every batch
+         */
+        void validate() {
+            validateNotNull(conn, "Connection required,");
+            if (!conn.getServerInfo().isNewerVersionThan("2.11.99")) {
+                throw new IllegalArgumentException("Batch direct get not available until server version 2.11.0.");
+            }
+            if (ackTimeout == null) {
+                ackTimeout = conn.getOptions().getConnectionTimeout();
+            }
+        }
     }
 }
@@ -0,0 +1,211 @@
+// Copyright (c) 2025 Synadia Communications Inc. All Rights Reserved.
+// See LICENSE and NOTICE file for details.
+
+package io.synadia.bp;
+
+import io.nats.client.NUID;
+import org.jspecify.annotations.NonNull;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.nats.client.support.Validator.validateNotNull;
+
+/**
+ * Hands out reusable BatchPublishers for running many batches concurrently on one connection.
+ * The connection's server version is checked once, when the pool is built, and every batch gets
+ * a new id from one shared NUID.
+ * <p>
+ * Each publisher from {@link #acquire()} is one batch, used as usual from one thread at a time.
+ * Its commit, or discard, returns it to the pool, so it must not be used after that.
+ * The pool limits how many commits are outstanding at once: once the limit is reached,
+ * commit waits until an outstanding commit completes, and commitAsync returns right away
+ * and sends its commit once an outstanding commit completes, in the order they were made.
+ * Each commitAsync is that batch's commit future.
+ * <p>
+ * The limit is on commits only. It does not limit how many publishers are acquired, or how many batches
+ * are open on the server: acquire never waits, and a batch stays open on the server while its commit waits
+ * for a permit. The server abandons a batch that gets no message for its batch inactivity timeout,
+ * so a commit that waits longer than that fails. Limit the batches open at once, for instance by waiting
+ * on the commit futures before acquiring more, as the BatchIngester does, so commits don't wait that long.
+ * <p>
+ * The pool is thread safe.
+ */
+public class BatchPublisherPool {
+    public static final int DEFAULT_MAX_OUTSTANDING_COMMITS = 100;
+
+    private final BatchPublisher.Builder template;
+    private final int maxOutstandingCommits;
+    private final ArrayDeque<CompletableFuture<Void>> permitWaiters; // also the lock for the permits
+    private int availablePermits;
+    private final ConcurrentLinkedQueue<BatchPublisher> idle;
+    private final NUID nuid;
+    private final AtomicInteger created;
+
+    private BatchPublisherPool(Builder b) {
+        template = b.template;
+        maxOutstandingCommits = b.maxOutstandingCommits;
+        permitWaiters = new ArrayDeque<>();
+        availablePermits = maxOutstandingCommits;
+        idle = new ConcurrentLinkedQueue<>();
+        nuid = new NUID();
+        created = new AtomicInteger();
+    }
+
+    /**
+     * Get a publisher for a new batch, reusing an idle one if there is one.
+     * The batch id of the template builder is ignored, each batch gets a new unique id.
+     * This never waits, the number of batches open at once is up to the caller, see the class description.
+     * @return the publisher
+     */
+    @NonNull
+    public BatchPublisher acquire() {
+        String batchId = nuid.next();
+        BatchPublisher publisher = idle.poll();
+        if (publisher == null) {
+            created.incrementAndGet();
+            return new BatchPublisher(template, batchId, this);
+        }
+        publisher.reset(batchId);
+        return publisher;
+    }
+
+    public int getMaxOutstandingCommits() {
+        return maxOutstandingCommits;
+    }
+
+    /**
+     * The number of commits sent and not completed
+     * @return the number
+     */
+    public int outstandingCommits() {
+        synchronized (permitWaiters) {
+            return maxOutstandingCommits - availablePermits;
+        }
+    }
+
+    /**
+     * The number of publishers waiting to be reused
+     * @return the number
+     */
+    public int idleCount() {
+        return idle.size();
+    }
+
+    /**
+     * The number of publishers the pool has created
+     * @return the number
+     */
+    public int createdCount() {
+        return created.get();
+    }
+
+    /**
+     * Get a commit permit
+     * @return a future that completes when the permit is granted, already complete if one is free
+     */
+    CompletableFuture<Void> commitPermit() {
+        CompletableFuture<Void> permit = new CompletableFuture<>();
+        synchronized (permitWaiters) {
+            if (availablePermits > 0) {
+                availablePermits--;
+                permit.complete(null);
+            }
+            else {
+                permitWaiters.add(permit);
+            }
+        }
+        return permit;
+    }
+
+    void beforeCommit(String batchId) throws BatchPublishException {
+        CompletableFuture<Void> permit = commitPermit();
+        try {
+            permit.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (!permit.cancel(false)) {
+                // it was granted while being interrupted
+                releasePermit();
+            }
+            throw new BatchPublishException(batchId, e);
+        }
+        catch (ExecutionException e) {
+            // permits are only ever completed normally
+            throw new BatchPublishException(batchId, e);
+        }
+    }
+
+    void afterCommit(BatchPublisher publisher) {
+        recycle(publisher);
+        releasePermit();
+    }
+
+    /**
+     * Hand the permit to the oldest waiter, or make it free if none are waiting.
+     * The waiter is completed outside the lock, since completing it may send its commit.
+     */
+    private void releasePermit() {
+        while (true) {
+            CompletableFuture<Void> next;
+            synchronized (permitWaiters) {
+                next = permitWaiters.poll();
+                if (next == null) {
+                    availablePermits++;
+                    return;
+                }
+            }
+            if (next.complete(null)) {
+                return;
+            }
+            // the waiter gave up, try the next one
+        }
+    }
+
+    void recycle(BatchPublisher publisher) {
+        idle.offer(publisher);
+    }
+
+    /**
+     * Get an instance of the builder
+     * @param template the builder with the settings for every batch, for instance the connection and ackEvery
+     * @return The Builder
+     */
+    public static Builder builder(BatchPublisher.Builder template) {
+        return new Builder(template);
+    }
+
+    /**
+     * The builder class for the BatchPublisherPool
+     */
+    public static class Builder {
+        private final BatchPublisher.Builder template;
+        private int maxOutstandingCommits = DEFAULT_MAX_OUTSTANDING_COMMITS;
+
+        public Builder(BatchPublisher.Builder template) {
+            this.template = template;
+        }
+
+        /**
+         * The most commits that can be outstanding at once across all the batches of the pool.
+         * It does not limit the batches open at once, see {@link BatchPublisherPool}.
+         * Defaults to {@value #DEFAULT_MAX_OUTSTANDING_COMMITS}.
+         * @param maxOutstandingCommits the maximum, less than 1 means the default
+         * @return The Builder
+         */
+        public Builder maxOutstandingCommits(int maxOutstandingCommits) {
+            this.maxOutstandingCommits = maxOutstandingCommits < 1 ? DEFAULT_MAX_OUTSTANDING_COMMITS : maxOutstandingCommits;
+            return this;
+        }
+
+        public BatchPublisherPool build() {
+            validateNotNull(template, "Publisher builder required,");
+            template.validate();
+            return new BatchPublisherPool(this);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+// Copyright (c) 2025 Synadia Communications Inc. All Rights Reserved.
+// See LICENSE and NOTICE file for details.
+
+package io.synadia.bp;
+
+import io.nats.client.api.PublishAck;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * A snapshot of the progress of a BatchIngester, counting committed batches only
+ */
+public class IngestProgress {
+    private final long records;
+    private final long bytes;
+    private final long batches;
+    private final PublishAck lastAck;
+
+    public IngestProgress(long records, long bytes, long batches, PublishAck lastAck) {
+        this.records = records;
+        this.bytes = bytes;
+        this.batches = batches;
+        this.lastAck = lastAck;
+    }
+
+    /**
+     * The number of records in committed batches
+     * @return the number
+     */
+    public long getRecords() {
+        return records;
+    }
+
+    /**
+     * The number of record data bytes in committed batches
+     * @return the number
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * The number of committed batches
+     * @return the number
+     */
+    public long getBatches() {
+        return batches;
+    }
+
+    /**
+     * The ack of the batch that was committed with this progress
+     * @return the ack, null if nothing was committed
+     */
+    @Nullable
+    public PublishAck getLastAck() {
+        return lastAck;
+    }
+
+    @Override
+    public String toString() {
+        return "IngestProgress{" +
+            "records=" + records +
+            ", bytes=" + bytes +
+            ", batches=" + batches +
+            '}';
+    }
+}
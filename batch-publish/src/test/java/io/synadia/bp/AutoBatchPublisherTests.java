@@ -0,0 +1,196 @@
+package io.synadia.bp;
+
+import io.nats.client.Connection;
+import io.nats.client.Nats;
+import io.nats.client.api.PublishAck;
+import nats.io.NatsServerRunner;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import static io.synadia.bp.BatchTestUtils.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AutoBatchPublisherTests {
+    @BeforeAll
+    public static void beforeAll() {
+        NatsServerRunner.setDefaultOutputLevel(Level.WARNING);
+    }
+
+    @Test
+    public void testMaxMessagesCommits() throws Exception {
+        try (NatsServerRunner runner = new NatsServerRunner(false, true)) {
+            try (Connection nc = Nats.connect(runner.getURI())) {
+                String subject = createStream(nc);
+                try (AutoBatchPublisher abp = AutoBatchPublisher.builder(pool(nc))
+                    .maxMessages(5)
+                    .lingerMillis(60_000)
+                    .build())
+                {
+                    assertEquals(5, abp.getMaxMessages());
+                    List<CompletableFuture<PublishAck>> futures = new ArrayList<>();
+                    for (int x = 0; x < 10; x++) {
+                        futures.add(abp.publish(subject, data(x)));
+                    }
+                    List<PublishAck> acks = get(futures);
+                    for (int x = 0; x < 10; x++) {
+                        assertEquals(5, acks.get(x).getBatchSize());
+                        // each group of 5 shares one batch
+                        assertEquals(acks.get(x - x % 5).getBatchId(), acks.get(x).getBatchId());
+                    }
+                    assertNotEquals(acks.get(0).getBatchId(), acks.get(5).getBatchId());
+                }
+                assertEquals(10, messageCount(nc, subject));
+            }
+        }
+    }
+
+    @Test
+    public void testMaxBytesCommits() throws Exception {
+        try (NatsServerRunner runner = new NatsServerRunner(false, true)) {
+            try (Connection nc = Nats.connect(runner.getURI())) {
+                String subject = createStream(nc);
+                try (AutoBatchPublisher abp = AutoBatchPublisher.builder(pool(nc))
+                    .maxBytes(16)
+                    .lingerMillis(60_000)
+                    .build())
+                {
+                    assertEquals(16, abp.getMaxBytes());
+                    // 6 bytes of data each, so the third message reaches max bytes
+                    List<CompletableFuture<PublishAck>> futures = new ArrayList<>();
+                    for (int x = 0; x < 3; x++) {
+                        futures.add(abp.publish(subject, data(x)));
+                    }
+                    for (PublishAck pa : get(futures)) {
+                        assertEquals(3, pa.getBatchSize());
+                    }
+
+                    // a message bigger than max bytes is committed with the batch it is in
+                    futures.clear();
+                    futures.add(abp.publish(subject, data(3)));
+                    futures.add(abp.publish(subject, new byte[100]));
+                    for (PublishAck pa : get(futures)) {
+                        assertEquals(2, pa.getBatchSize());
+                    }
+                }
+                assertEquals(5, messageCount(nc, subject));
+            }
+        }
+    }
+
+    @Test
+    public void testLingerCommits() throws Exception {
+        try (NatsServerRunner runner = new NatsServerRunner(false, true)) {
+            try (Connection nc = Nats.connect(runner.getURI())) {
+                String subject = createStream(nc);
+                try (AutoBatchPublisher abp = AutoBatchPublisher.builder(pool(nc))
+                    .lingerMillis(50)
+                    .build())
+                {
+                    assertEquals(50, abp.getLingerMillis());
+                    List<CompletableFuture<PublishAck>> futures = new ArrayList<>();
+                    futures.add(abp.publish(subject, data(0)));
+                    futures.add(abp.publish(subject, data(1)));
+                    for (PublishAck pa : get(futures)) {
+                        assertEquals(2, pa.getBatchSize());
+                    }
+
+                    // the next message starts a new batch and its own linger
+                    PublishAck pa = abp.publish(subject, data(2)).get(5, TimeUnit.SECONDS);
+                    assertEquals(1, pa.getBatchSize());
+                }
+                assertEquals(3, messageCount(nc, subject));
+            }
+        }
+    }
+
+    @Test
+    public void testFlushAndClose() throws Exception {
+        try (NatsServerRunner runner = new NatsServerRunner(false, true)) {
+            try (Connection nc = Nats.connect(runner.getURI())) {
+                String subject = createStream(nc);
+                AutoBatchPublisher abp = AutoBatchPublisher.builder(pool(nc))
+                    .lingerMillis(60_000)
+                    .build();
+
+                CompletableFuture<PublishAck> f = abp.publish(subject, data(0));
+                abp.flush();
+                assertEquals(1, f.get(5, TimeUnit.SECONDS).getBatchSize());
+                abp.flush(); // nothing to commit
+
+                // close commits what was published
+                List<CompletableFuture<PublishAck>> futures = new ArrayList<>();
+                futures.add(abp.publish(subject, data(1)));
+                futures.add(abp.publish(subject, data(2)));
+                abp.close();
+                for (PublishAck pa : get(futures)) {
+                    assertEquals(2, pa.getBatchSize());
+                }
+
+                ExecutionException ee = assertThrows(ExecutionException.class, () -> abp.publish(subject, data(3)).get());
+                assertTrue(ee.getCause() instanceof IllegalStateException);
+                abp.close(); // closing again does nothing
+                assertEquals(3, messageCount(nc, subject));
+            }
+        }
+    }
+
+    @Test
+    public void testPublishFromCallback() throws Exception {
+        try (NatsServerRunner runner = new NatsServerRunner(false, true)) {
+            try (Connection nc = Nats.connect(runner.getURI())) {
+                String subject = createStream(nc);
+                BatchPublisherPool pool = BatchPublisherPool.builder(BatchPublisher.builder().connection(nc).ackEvery(1).maxOutstandingAcks(1))
+                    .build();
+                try (AutoBatchPublisher abp = AutoBatchPublisher.builder(pool)
+                    .maxMessages(3)
+                    .lingerMillis(60_000)
+                    .build())
+                {
+                    // each batch's callback publishes the next batch on the connection's thread
+                    CompletableFuture<PublishAck> last = new CompletableFuture<>();
+                    publishChain(abp, subject, 0, last);
+                    PublishAck pa = last.get(10, TimeUnit.SECONDS);
+                    assertEquals(3, pa.getBatchSize());
+                }
+                assertEquals(12, messageCount(nc, subject));
+            }
+        }
+    }
+
+    private static void publishChain(AutoBatchPublisher abp, String subject, int batch, CompletableFuture<PublishAck> last) {
+        CompletableFuture<PublishAck> f = null;
+        for (int x = 0; x < 3; x++) {
+            f = abp.publish(subject, data(batch * 3 + x));
+        }
+        f.whenComplete((pa, t) -> {
+            if (t != null) {
+                last.completeExceptionally(t);
+            }
+            else if (batch == 3) {
+                last.complete(pa);
+            }
+            else {
+                publishChain(abp, subject, batch + 1, last);
+            }
+        });
+    }
+
+    private static BatchPublisherPool pool(Connection nc) {
+        return BatchPublisherPool.builder(BatchPublisher.builder().connection(nc)).build();
+    }
+
+    private static List<PublishAck> get(List<CompletableFuture<PublishAck>> futures) throws Exception {
+        List<PublishAck> acks = new ArrayList<>();
+        for (CompletableFuture<PublishAck> f : futures) {
+            acks.add(f.get(5, TimeUnit.SECONDS));
+        }
+        return acks;
+    }
+}
@@ -0,0 +1,217 @@
+package io.synadia.bp;
+
+import io.nats.client.Connection;
+import io.nats.client.JetStreamManagement;
+import io.nats.client.Nats;
+import nats.io.NatsServerRunner;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+
+import static io.synadia.bp.BatchTestUtils.createStream;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchIngesterTests {
+    @BeforeAll
+    public static void beforeAll() {
+        NatsServerRunner.setDefaultOutputLevel(Level.WARNING);
+    }
+
+    @Test
+    public void testRecordsSpanReads() throws Exception {
+        try (NatsServerRunner runner = new NatsServerRunner(false, true)) {
+            try (Connection nc = Nats.connect(runner.getURI())) {
+                String input = "a\nbb\nccc\ndddd\neeeee\nffffffffffff\ng\n";
+
+                // reads of a few bytes at a time, so records start and end in different reads
+                String subject = createStream(nc);
+                IngestProgress p = ingester(nc, subject).bufferSize(4).build().ingest(trickle(input, 3));
+                assertRecords(nc, subject, p, "a", "bb", "ccc", "dddd", "eeeee", "ffffffffffff", "g");
+
+                // one read of the whole input
+                subject = createStream(nc);
+                p = ingester(nc, subject).build().ingest(stream(input));
+                assertRecords(nc, subject, p, "a", "bb", "ccc", "dddd", "eeeee", "ffffffffffff", "g");
+            }
+        }
+    }
+
+    @Test
+    public void testBufferGrowsToMaxRecordSize() throws Exception {
+        try (NatsServerRunner runner = new NatsServerRunner(false, true)) {
+            try (Connection nc = Nats.connect(runner.getURI())) {
+                // the buffer starts at 4 and grows to 8, then to the max record size plus one for the delimiter
+                String subject = createStream(nc);
+                IngestProgress p = ingester(nc, subject).bufferSize(4).maxRecordSize(10).build()
+                    .ingest(trickle("0123456789\nab\n0123456789", 4));
+                assertRecords(nc, subject, p, "0123456789", "ab", "0123456789");
+
+                BatchIngester ingester = ingester(nc, createStream(nc)).bufferSize(4).maxRecordSize(10).build();
+                assertThrows(IOException.class, () -> ingester.ingest(trickle("ab\n0123456789A\n", 4)));
+                assertThrows(IOException.class, () -> ingester.ingest(trickle("ab\n0123456789A", 4)));
+                assertThrows(IOException.class, () -> ingester.ingest(stream("0123456789A\n")));
+            }
+        }
+    }
+
+    @Test
+    public void testCarriageReturnsAndEmptyRecords() throws Exception {
+        try (NatsServerRunner runner = new NatsServerRunner(false, true)) {
+            try (Connection nc = Nats.connect(runner.getURI())) {
+                String input = "a\r\nb\r\n\r\n\nc\r";
+
+                String subject = createStream(nc);
+                IngestProgress p = ingester(nc, subject).build().ingest(stream(input));
+                assertRecords(nc, subject, p, "a", "b", "c");
+
+                subject = createStream(nc);
+                p = ingester(nc, subject).skipEmptyRecords(false).build().ingest(stream(input));
+                assertRecords(nc, subject, p, "a", "b", "", "", "c");
+
+                subject = createStream(nc);
+                p = ingester(nc, subject).stripCarriageReturn(false).build().ingest(stream(input));
+                assertRecords(nc, subject, p, "a\r", "b\r", "\r", "c\r");
+
+                // only a carriage return right before the delimiter is stripped
+                subject = createStream(nc);
+                p = ingester(nc, subject).build().ingest(stream("a\rb\n"));
+                assertRecords(nc, subject, p, "a\rb");
+            }
+        }
+    }
+
+    @Test
+    public void testFinalRecordWithoutDelimiter() throws Exception {
+        try (NatsServerRunner runner = new NatsServerRunner(false, true)) {
+            try (Connection nc = Nats.connect(runner.getURI())) {
+                String subject = createStream(nc);
+                IngestProgress p = ingester(nc, subject).build().ingest(stream("a\nb"));
+                assertRecords(nc, subject, p, "a", "b");
+
+                subject = createStream(nc);
+                p = ingester(nc, subject).build().ingest(stream("only"));
+                assertRecords(nc, subject, p, "only");
+
+                subject = createStream(nc);
+                p = ingester(nc, subject).build().ingest(stream(""));
+                assertRecords(nc, subject, p);
+
+                subject = createStream(nc);
+                p = ingester(nc, subject).delimiter((byte)',').build().ingest(stream("x,y,z"));
+                assertRecords(nc, subject, p, "x", "y", "z");
+            }
+        }
+    }
+
+    @Test
+    public void testFileRecordsSpanRegions() throws Exception {
+        try (NatsServerRunner runner = new NatsServerRunner(false, true)) {
+            try (Connection nc = Nats.connect(runner.getURI())) {
+                Path file = Files.createTempFile("ingest", ".txt");
+                try {
+                    // regions of 16 bytes, so most records are split across two regions
+                    Files.write(file, "a\nbbbbbbb\ncccccccccc\r\nd\neeeeeeeeeeeee\nf".getBytes(UTF_8));
+                    String subject = createStream(nc);
+                    IngestProgress p = ingester(nc, subject).mapRegionSize(16).maxRecordSize(15).build().ingest(file);
+                    assertRecords(nc, subject, p, "a", "bbbbbbb", "cccccccccc", "d", "eeeeeeeeeeeee", "f");
+
+                    // the final region ends with the delimiter
+                    Files.write(file, "a\nbbbbbbb\ncccccccccc\n".getBytes(UTF_8));
+                    subject = createStream(nc);
+                    p = ingester(nc, subject).mapRegionSize(16).maxRecordSize(15).build().ingest(file);
+                    assertRecords(nc, subject, p, "a", "bbbbbbb", "cccccccccc");
+
+                    // longer than the max record size, but fits in a region
+                    Files.write(file, "a\nbbbbbbbbbbbb\n".getBytes(UTF_8));
+                    BatchIngester ingester = ingester(nc, createStream(nc)).mapRegionSize(16).maxRecordSize(10).build();
+                    assertThrows(IOException.class, () -> ingester.ingest(file));
+
+                    // does not fit in a region
+                    Files.write(file, "a\nbbbbbbbbbbbbbbbbbbbb\nc\n".getBytes(UTF_8));
+                    assertThrows(IOException.class, () -> ingester.ingest(file));
+                }
+                finally {
+                    Files.deleteIfExists(file);
+                }
+
+                assertThrows(IllegalArgumentException.class, () -> ingester(nc, "na").mapRegionSize(16).maxRecordSize(16).build());
+            }
+        }
+    }
+
+    @Test
+    public void testRecordsSplitIntoBatches() throws Exception {
+        try (NatsServerRunner runner = new NatsServerRunner(false, true)) {
+            try (Connection nc = Nats.connect(runner.getURI())) {
+                StringBuilder sb = new StringBuilder();
+                String[] expected = new String[10];
+                for (int x = 0; x < expected.length; x++) {
+                    expected[x] = "record-" + x;
+                    sb.append(expected[x]).append('\n');
+                }
+
+                String subject = createStream(nc);
+                List<IngestProgress> progress = new ArrayList<>();
+                IngestProgress p = ingester(nc, subject).maxBatchMessages(3).progressListener(progress::add)
+                    .build().ingest(stream(sb.toString()));
+                assertRecords(nc, subject, p, expected);
+                assertEquals(4, p.getBatches());
+                assertEquals(4, progress.size());
+                assertNotNull(p.getLastAck());
+
+                // 8 bytes per record, so a batch is complete at the second record
+                subject = createStream(nc);
+                p = ingester(nc, subject).maxBatchBytes(16).build().ingest(stream(sb.toString()));
+                assertRecords(nc, subject, p, expected);
+                assertEquals(5, p.getBatches());
+            }
+        }
+    }
+
+    private static BatchIngester.Builder ingester(Connection nc, String subject) {
+        BatchPublisherPool pool = BatchPublisherPool.builder(BatchPublisher.builder().connection(nc)).build();
+        return BatchIngester.builder(pool).subject(subject);
+    }
+
+    private static void assertRecords(Connection nc, String subject, IngestProgress p, String... expected) throws Exception {
+        assertEquals(expected.length, p.getRecords());
+        long bytes = 0;
+        for (String s : expected) {
+            bytes += s.length();
+        }
+        assertEquals(bytes, p.getBytes());
+
+        JetStreamManagement jsm = nc.jetStreamManagement();
+        String stream = jsm.getStreamNameBySubject(subject);
+        assertEquals(expected.length, jsm.getStreamInfo(stream).getStreamState().getMsgCount());
+        for (int x = 0; x < expected.length; x++) {
+            byte[] data = jsm.getMessage(stream, x + 1).getData();
+            assertEquals(expected[x], data == null ? "" : new String(data, UTF_8));
+        }
+    }
+
+    private static InputStream stream(String s) {
+        return new ByteArrayInputStream(s.getBytes(UTF_8));
+    }
+
+    /**
+     * A stream that gives at most readSize bytes per read
+     */
+    private static InputStream trickle(String s, int readSize) {
+        return new ByteArrayInputStream(s.getBytes(UTF_8)) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, readSize));
+            }
+        };
+    }
+}
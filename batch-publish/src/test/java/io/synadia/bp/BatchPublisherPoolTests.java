@@ -0,0 +1,120 @@
+package io.synadia.bp;
+
+import io.nats.client.Connection;
+import io.nats.client.Nats;
+import io.nats.client.api.PublishAck;
+import nats.io.NatsServerRunner;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import static io.synadia.bp.BatchTestUtils.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchPublisherPoolTests {
+    @BeforeAll
+    public static void beforeAll() {
+        NatsServerRunner.setDefaultOutputLevel(Level.WARNING);
+    }
+
+    @Test
+    public void testPublishersAreRecycled() throws Exception {
+        try (NatsServerRunner runner = new NatsServerRunner(false, true)) {
+            try (Connection nc = Nats.connect(runner.getURI())) {
+                String subject = createStream(nc);
+                BatchPublisherPool pool = BatchPublisherPool.builder(BatchPublisher.builder().connection(nc)).build();
+                assertEquals(BatchPublisherPool.DEFAULT_MAX_OUTSTANDING_COMMITS, pool.getMaxOutstandingCommits());
+
+                // a commit returns the publisher to the pool
+                BatchPublisher publisher = pool.acquire();
+                String firstBatchId = publisher.getBatchId();
+                publisher.add(subject, data(0));
+                PublishAck pa = publisher.commit(subject, data(1));
+                assertEquals(2, pa.getBatchSize());
+                assertEquals(firstBatchId, pa.getBatchId());
+                assertEquals(1, pool.idleCount());
+                assertEquals(1, pool.createdCount());
+                assertEquals(0, pool.outstandingCommits());
+
+                // the same publisher is reused for a new batch
+                BatchPublisher reused = pool.acquire();
+                assertSame(publisher, reused);
+                assertNotEquals(firstBatchId, reused.getBatchId());
+                assertTrue(reused.isOpen());
+                assertEquals(0, reused.size());
+                assertEquals(0, pool.idleCount());
+
+                // so does a discard
+                reused.add(subject, data(2));
+                reused.discard();
+                assertEquals(1, pool.idleCount());
+                reused.discard(); // only returned once
+                assertEquals(1, pool.idleCount());
+
+                // and an async commit, by the time its future completes
+                reused = pool.acquire();
+                reused.add(subject, data(3));
+                pa = reused.commitAsync(subject, data(4)).get(5, TimeUnit.SECONDS);
+                assertEquals(2, pa.getBatchSize());
+                assertEquals(1, pool.idleCount());
+                assertEquals(1, pool.createdCount());
+                assertEquals(0, pool.outstandingCommits());
+
+                // a second publisher is only created when none are idle
+                BatchPublisher p1 = pool.acquire();
+                BatchPublisher p2 = pool.acquire();
+                assertNotSame(p1, p2);
+                assertEquals(2, pool.createdCount());
+                p1.discard();
+                p2.discard();
+                assertEquals(2, pool.idleCount());
+            }
+        }
+    }
+
+    @Test
+    public void testCommitPermits() throws Exception {
+        try (NatsServerRunner runner = new NatsServerRunner(false, true)) {
+            try (Connection nc = Nats.connect(runner.getURI())) {
+                String subject = createStream(nc);
+                BatchPublisherPool pool = BatchPublisherPool.builder(BatchPublisher.builder().connection(nc))
+                    .maxOutstandingCommits(1)
+                    .build();
+                assertEquals(1, pool.getMaxOutstandingCommits());
+
+                // commitAsync does not wait for a permit, the commits are sent one at a time as permits are released
+                List<CompletableFuture<PublishAck>> commits = new ArrayList<>();
+                for (int x = 0; x < 10; x++) {
+                    BatchPublisher publisher = pool.acquire();
+                    publisher.add(subject, data(x));
+                    commits.add(publisher.commitAsync(subject, data(x)));
+                    assertTrue(publisher.isClosed());
+                    assertTrue(pool.outstandingCommits() <= 1);
+                }
+                Set<String> batchIds = new HashSet<>();
+                for (CompletableFuture<PublishAck> f : commits) {
+                    PublishAck pa = f.get(5, TimeUnit.SECONDS);
+                    assertEquals(2, pa.getBatchSize());
+                    batchIds.add(pa.getBatchId());
+                }
+                assertEquals(10, batchIds.size());
+                assertEquals(0, pool.outstandingCommits());
+                assertEquals(pool.createdCount(), pool.idleCount());
+
+                // the sync commit waits for the permit
+                BatchPublisher publisher = pool.acquire();
+                publisher.add(subject, data(10));
+                assertEquals(2, publisher.commit(subject, data(11)).getBatchSize());
+                assertEquals(0, pool.outstandingCommits());
+                assertEquals(22, messageCount(nc, subject));
+            }
+        }
+    }
+}
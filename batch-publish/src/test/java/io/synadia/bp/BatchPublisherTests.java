@@ -0,0 +1,157 @@
+package io.synadia.bp;
+
+import io.nats.client.Connection;
+import io.nats.client.Nats;
+import io.nats.client.api.PublishAck;
+import nats.io.NatsServerRunner;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+import static io.synadia.bp.BatchTestUtils.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchPublisherTests {
+    @BeforeAll
+    public static void beforeAll() {
+        NatsServerRunner.setDefaultOutputLevel(Level.WARNING);
+    }
+
+    @Test
+    public void testAddAsyncWindow() throws Exception {
+        try (NatsServerRunner runner = new NatsServerRunner(false, true)) {
+            try (Connection nc = Nats.connect(runner.getURI())) {
+                String subject = createStream(nc);
+                BatchPublisher publisher = BatchPublisher.builder()
+                    .connection(nc)
+                    .ackEvery(1)
+                    .maxOutstandingAcks(2)
+                    .build();
+
+                List<CompletableFuture<Void>> adds = new ArrayList<>();
+                for (int x = 0; x < 20; x++) {
+                    adds.add(publisher.addAsync(subject, data(x)));
+                    // adding waits for the oldest ack once the window is full, so it never holds more
+                    int outstanding = 0;
+                    for (CompletableFuture<Void> f : adds) {
+                        if (!f.isDone()) {
+                            outstanding++;
+                        }
+                    }
+                    assertTrue(outstanding <= 2);
+                }
+                assertEquals(20, publisher.size());
+
+                PublishAck pa = publisher.commitAsync(subject, data(20)).get(5, TimeUnit.SECONDS);
+                assertEquals(21, pa.getBatchSize());
+                assertEquals(publisher.getBatchId(), pa.getBatchId());
+                for (CompletableFuture<Void> f : adds) {
+                    assertTrue(f.isDone());
+                    assertFalse(f.isCompletedExceptionally());
+                }
+                assertNull(publisher.getFailure());
+                assertTrue(publisher.isClosed());
+            }
+        }
+    }
+
+    @Test
+    public void testAddAsyncFailureFailsTheBatch() throws Exception {
+        try (NatsServerRunner runner = new NatsServerRunner(false, true)) {
+            try (Connection nc = Nats.connect(runner.getURI())) {
+                String subject = createStream(nc);
+                AtomicInteger failed = new AtomicInteger();
+                BatchPublisher publisher = BatchPublisher.builder()
+                    .connection(nc)
+                    .publishListener(new BatchPublishListener() {
+                        @Override
+                        public void failed(String batchId, BatchFailureReason reason, BatchPublishException e) {
+                            failed.incrementAndGet();
+                        }
+                    })
+                    .build();
+
+                // the first add is acked, and the stream does not have that last sequence
+                CompletableFuture<Void> first = publisher.addAsync(subject, data(0),
+                    BatchPublishOptions.builder().expectedLastSequence(5).build());
+                ExecutionException ee = assertThrows(ExecutionException.class, () -> first.get(5, TimeUnit.SECONDS));
+                assertTrue(ee.getCause() instanceof BatchPublishException);
+                BatchPublishException bpe = (BatchPublishException)ee.getCause();
+                assertEquals(publisher.getBatchId(), bpe.getBatchId());
+                assertSame(bpe, publisher.getFailure());
+
+                // later adds and the commit fail with the same exception
+                ee = assertThrows(ExecutionException.class, () -> publisher.addAsync(subject, data(1)).get());
+                assertSame(bpe, ee.getCause());
+                assertSame(bpe, assertThrows(BatchPublishException.class, () -> publisher.add(subject, data(2))));
+                ee = assertThrows(ExecutionException.class, () -> publisher.commitAsync(subject, data(3)).get());
+                assertSame(bpe, ee.getCause());
+                assertEquals(1, failed.get());
+                assertEquals(0, messageCount(nc, subject));
+            }
+        }
+    }
+
+    @Test
+    public void testCommitWaitsForAddAsyncAcks() throws Exception {
+        try (NatsServerRunner runner = new NatsServerRunner(false, true)) {
+            try (Connection nc = Nats.connect(runner.getURI())) {
+                String subject = createStream(nc);
+                BatchPublisher publisher = BatchPublisher.builder().connection(nc).ackEvery(1).build();
+                List<CompletableFuture<Void>> adds = new ArrayList<>();
+                for (int x = 0; x < 5; x++) {
+                    adds.add(publisher.addAsync(subject, data(x)));
+                }
+                assertEquals(6, publisher.commit(subject, data(5)).getBatchSize());
+                for (CompletableFuture<Void> f : adds) {
+                    assertTrue(f.isDone());
+                }
+
+                // an add whose ack has not arrived yet fails the sync commit, which is not sent
+                BatchPublisher failing = BatchPublisher.builder().connection(nc).build();
+                failing.addAsync(subject, data(0), BatchPublishOptions.builder().expectedLastSequence(5).build());
+                BatchPublishException bpe = assertThrows(BatchPublishException.class, () -> failing.commit(subject, data(1)));
+                assertSame(bpe, failing.getFailure());
+                assertEquals(failing.getBatchId(), bpe.getBatchId());
+                assertTrue(failing.isClosed());
+                assertEquals(6, messageCount(nc, subject));
+            }
+        }
+    }
+
+    @Test
+    public void testSyncFailureDoesNotFailTheBatch() throws Exception {
+        try (NatsServerRunner runner = new NatsServerRunner(false, true)) {
+            try (Connection nc = Nats.connect(runner.getURI())) {
+                String subject = createStream(nc);
+                AtomicInteger failed = new AtomicInteger();
+                BatchPublishListener listener = new BatchPublishListener() {
+                    @Override
+                    public void failed(String batchId, BatchFailureReason reason, BatchPublishException e) {
+                        failed.incrementAndGet();
+                    }
+                };
+
+                // with or without a listener, the failure is thrown to the caller but not kept
+                for (BatchPublishListener l : new BatchPublishListener[]{null, listener}) {
+                    BatchPublisher publisher = BatchPublisher.builder()
+                        .connection(nc)
+                        .publishListener(l)
+                        .build();
+                    assertThrows(BatchPublishException.class, () -> publisher.add(subject, data(0),
+                        BatchPublishOptions.builder().expectedLastSequence(5).build()));
+                    assertNull(publisher.getFailure());
+                    assertTrue(publisher.isOpen());
+                }
+                assertEquals(1, failed.get());
+            }
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package io.synadia.bp;
+
+import io.nats.client.Connection;
+import io.nats.client.JetStreamManagement;
+import io.nats.client.NUID;
+import io.nats.client.api.StorageType;
+import io.nats.client.api.StreamConfiguration;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * The stream and data helpers shared by the batch publish tests
+ */
+public class BatchTestUtils {
+    /**
+     * Create a memory stream that allows atomic publish, over a unique subject
+     * @return the subject
+     */
+    public static String createStream(Connection nc) throws Exception {
+        String subject = unique();
+        StreamConfiguration sc = StreamConfiguration.builder()
+            .name(unique())
+            .storageType(StorageType.Memory)
+            .subjects(subject)
+            .allowAtomicPublish()
+            .build();
+        nc.jetStreamManagement().addStream(sc);
+        return subject;
+    }
+
+    /**
+     * The number of messages in the stream of a subject
+     */
+    public static long messageCount(Connection nc, String subject) throws Exception {
+        JetStreamManagement jsm = nc.jetStreamManagement();
+        return jsm.getStreamInfo(jsm.getStreamNameBySubject(subject)).getStreamState().getMsgCount();
+    }
+
+    public static byte[] data(int x) {
+        return ("data-" + x).getBytes(UTF_8);
+    }
+
+    public static String unique() {
+        return NUID.nextGlobalSequence();
+    }
+}
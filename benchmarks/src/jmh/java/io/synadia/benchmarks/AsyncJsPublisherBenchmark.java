@@ -0,0 +1,87 @@
+// Copyright (c) 2024-2025 Synadia Communications Inc. All Rights Reserved.
+// See LICENSE and NOTICE file for details.
+
+package io.synadia.benchmarks;
+
+import io.synadia.jnats.extension.AckMode;
+import io.synadia.jnats.extension.AsyncJsPublisher;
+import io.synadia.jnats.extension.InFlight;
+import io.synadia.jnats.extension.PreFlight;
+import io.synadia.jnats.extension.QueueMode;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AsyncJsPublisher against a local server.
+ * The throughput benchmark publishes a burst of messages and waits for all of their acks,
+ * the sample benchmark measures the publish to ack latency of a single message, with percentiles.
+ */
+@State(Scope.Benchmark)
+public class AsyncJsPublisherBenchmark {
+    static final String STREAM = "bench-async";
+    static final String SUBJECT = "bench.async";
+    static final int BURST = 1000;
+
+    @Param({"Linked", "RingBuffer"})
+    public QueueMode queueMode;
+
+    @Param({"InOrder", "Completion"})
+    public AckMode ackMode;
+
+    @Param({"128"})
+    public int payloadSize;
+
+    BenchmarkServer server;
+    AsyncJsPublisher publisher;
+    byte[] payload;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        server = new BenchmarkServer();
+        server.setupStream(STREAM, SUBJECT, false);
+        publisher = AsyncJsPublisher.builder(server.nc.jetStream())
+            .queueMode(queueMode)
+            .ackMode(ackMode)
+            .maxInFlight(BURST * 2)
+            .resumeAmount(BURST)
+            .signalResume(true)
+            .start();
+        payload = new byte[payloadSize];
+    }
+
+    @Setup(Level.Iteration)
+    public void purge() throws Exception {
+        server.purgeStream(STREAM);
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() throws Exception {
+        publisher.close();
+        server.close();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(BURST)
+    public void publishAsyncBurst() throws Exception {
+        CompletableFuture<?>[] acks = new CompletableFuture<?>[BURST];
+        for (int x = 0; x < BURST; x++) {
+            acks[x] = ackFuture(publisher.publishAsync(SUBJECT, payload));
+        }
+        CompletableFuture.allOf(acks).get(30, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Object publishAsyncLatency() throws Exception {
+        return ackFuture(publisher.publishAsync(SUBJECT, payload)).get(30, TimeUnit.SECONDS);
+    }
+
+    private static CompletableFuture<?> ackFuture(PreFlight pre) {
+        return pre.getInFlightFuture().thenCompose(InFlight::getPublishAckFuture);
+    }
+}
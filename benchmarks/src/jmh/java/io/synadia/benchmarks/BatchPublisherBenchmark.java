@@ -0,0 +1,64 @@
+// Copyright (c) 2025 Synadia Communications Inc. All Rights Reserved.
+// See LICENSE and NOTICE file for details.
+
+package io.synadia.benchmarks;
+
+import io.nats.client.api.PublishAck;
+import io.synadia.bp.BatchPublisher;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A complete atomic batch, the adds and the commit, against a local server.
+ * The server must support atomic batch publish, 2.12 or later.
+ * One operation is one batch, so messages per second is the score times the batch size.
+ */
+@State(Scope.Benchmark)
+public class BatchPublisherBenchmark {
+    static final String STREAM = "bench-batch";
+    static final String SUBJECT = "bench.batch";
+
+    @Param({"10", "100", "1000"})
+    public int batchSize;
+
+    @Param({"0", "100"})
+    public int ackEvery;
+
+    @Param({"128"})
+    public int payloadSize;
+
+    BenchmarkServer server;
+    byte[] payload;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        server = new BenchmarkServer();
+        server.setupStream(STREAM, SUBJECT, true);
+        payload = new byte[payloadSize];
+    }
+
+    @Setup(Level.Iteration)
+    public void purge() throws Exception {
+        server.purgeStream(STREAM);
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() throws Exception {
+        server.close();
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public PublishAck addAndCommit() throws Exception {
+        BatchPublisher publisher = BatchPublisher.builder()
+            .connection(server.nc)
+            .ackEvery(ackEvery)
+            .build();
+        for (int x = 1; x < batchSize; x++) {
+            publisher.add(SUBJECT, payload);
+        }
+        return publisher.commit(SUBJECT, payload);
+    }
+}
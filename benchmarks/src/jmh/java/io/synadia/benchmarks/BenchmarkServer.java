@@ -0,0 +1,78 @@
+// Copyright (c) 2024-2025 Synadia Communications Inc. All Rights Reserved.
+// See LICENSE and NOTICE file for details.
+
+package io.synadia.benchmarks;
+
+import io.nats.client.Connection;
+import io.nats.client.JetStreamApiException;
+import io.nats.client.JetStreamManagement;
+import io.nats.client.Nats;
+import io.nats.client.Options;
+import io.nats.client.api.StorageType;
+import io.nats.client.api.StreamConfiguration;
+import nats.io.ConsoleOutput;
+import nats.io.NatsServerRunner;
+
+import java.util.logging.Level;
+
+/**
+ * A local JetStream enabled nats-server, started through the server runner,
+ * with a connection and a fresh memory stream for the benchmark.
+ * The nats-server executable must be on the path.
+ */
+public class BenchmarkServer implements AutoCloseable {
+    static {
+        NatsServerRunner.setDefaultOutputSupplier(ConsoleOutput::new);
+        NatsServerRunner.setDefaultOutputLevel(Level.WARNING);
+    }
+
+    public final NatsServerRunner runner;
+    public final Connection nc;
+
+    public BenchmarkServer() throws Exception {
+        runner = new NatsServerRunner(false, true);
+        nc = Nats.connect(Options.builder().server(runner.getURI()).build());
+    }
+
+    /**
+     * Create or recreate a memory stream. Memory storage keeps the disk out of the measurement.
+     * @param stream the stream name
+     * @param subject the stream subject
+     * @param atomicPublish whether the stream allows atomic batch publish
+     * @throws Exception if the stream cannot be created
+     */
+    public void setupStream(String stream, String subject, boolean atomicPublish) throws Exception {
+        JetStreamManagement jsm = nc.jetStreamManagement();
+        try {
+            jsm.deleteStream(stream);
+        }
+        catch (JetStreamApiException ignore) {}
+        StreamConfiguration.Builder b = StreamConfiguration.builder()
+            .name(stream)
+            .subjects(subject)
+            .storageType(StorageType.Memory);
+        if (atomicPublish) {
+            b.allowAtomicPublish();
+        }
+        jsm.addStream(b.build());
+    }
+
+    /**
+     * Remove the messages from a stream, so a long run does not fill memory
+     * @param stream the stream name
+     * @throws Exception if the stream cannot be purged
+     */
+    public void purgeStream(String stream) throws Exception {
+        nc.jetStreamManagement().purgeStream(stream);
+    }
+
+    @Override
+    public void close() throws Exception {
+        try {
+            nc.close();
+        }
+        finally {
+            runner.close();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+// Copyright (c) 2024-2025 Synadia Communications Inc. All Rights Reserved.
+// See LICENSE and NOTICE file for details.
+
+package io.synadia.benchmarks;
+
+import io.nats.client.NUID;
+import io.nats.client.PublishOptions;
+import io.nats.client.impl.Headers;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static io.nats.client.support.NatsJetStreamConstants.*;
+
+/**
+ * Building and serializing the headers sent with each message: the batch headers rebuilt for every add,
+ * with and without user headers, the batch header template the BatchPublisher keeps, where only
+ * the sequence changes per add, and the message id header of the AsyncJsPublisher, either added to a copy
+ * of the user headers or passed as the publish options message id, which is what the publisher does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HeaderBenchmark {
+    String batchId;
+    Headers reused;
+    Headers userHeaders;
+    Headers template;
+    int seq;
+
+    @Setup
+    public void setup() {
+        batchId = new NUID().next();
+        reused = new Headers();
+        userHeaders = new Headers()
+            .put("app-header-1", "value-1")
+            .put("app-header-2", "value-2");
+        template = buildBatchHeaders(new Headers(), userHeaders);
+    }
+
+    @Benchmark
+    public byte[] batchHeaders() {
+        return buildBatchHeaders(reused, null).getSerialized();
+    }
+
+    @Benchmark
+    public byte[] batchHeadersWithUserHeaders() {
+        return buildBatchHeaders(reused, userHeaders).getSerialized();
+    }
+
+    @Benchmark
+    public byte[] batchHeadersTemplate() {
+        template.put(NATS_BATCH_SEQUENCE_HDR, Integer.toString(++seq % 1000 + 1));
+        return template.getSerialized();
+    }
+
+    @Benchmark
+    public byte[] messageIdHeader() {
+        Headers h = new Headers();
+        h.put(MSG_ID_HDR, batchId + "-" + (++seq));
+        return h.getSerialized();
+    }
+
+    @Benchmark
+    public byte[] messageIdHeaderCopy() {
+        Headers h = new Headers(userHeaders);
+        h.put(MSG_ID_HDR, batchId + "-" + (++seq));
+        return h.getSerialized();
+    }
+
+    @Benchmark
+    public PublishOptions messageIdOptions() {
+        return PublishOptions.builder().messageId(batchId + "-" + (++seq)).build();
+    }
+
+    private Headers buildBatchHeaders(Headers h, Headers user) {
+        h.clear();
+        h.put(NATS_BATCH_ID_HDR, batchId);
+        h.put(NATS_BATCH_SEQUENCE_HDR, Integer.toString(++seq));
+        if (user != null) {
+            for (String key : user.keySet()) {
+                h.put(key, user.get(key));
+            }
+        }
+        return h;
+    }
+}
@@ -0,0 +1,75 @@
+// Copyright (c) 2024-2025 Synadia Communications Inc. All Rights Reserved.
+// See LICENSE and NOTICE file for details.
+
+package io.synadia.benchmarks;
+
+import io.nats.client.JetStream;
+import io.nats.client.api.PublishAck;
+import io.synadia.jnats.extension.PublishRetrier;
+import io.synadia.jnats.extension.PublishRetryConfig;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PublishRetrier against a local server that always accepts, so this measures the cost
+ * the retrier adds to a successful publish, not the retries themselves.
+ */
+@State(Scope.Benchmark)
+public class PublishRetrierBenchmark {
+    static final String STREAM = "bench-retrier";
+    static final String SUBJECT = "bench.retrier";
+    static final int BURST = 100;
+
+    @Param({"128"})
+    public int payloadSize;
+
+    BenchmarkServer server;
+    JetStream js;
+    byte[] payload;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        server = new BenchmarkServer();
+        server.setupStream(STREAM, SUBJECT, false);
+        js = server.nc.jetStream();
+        payload = new byte[payloadSize];
+    }
+
+    @Setup(Level.Iteration)
+    public void purge() throws Exception {
+        server.purgeStream(STREAM);
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() throws Exception {
+        server.close();
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public PublishAck publish() throws Exception {
+        return PublishRetrier.publish(PublishRetryConfig.DEFAULT_CONFIG, js, SUBJECT, payload);
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public PublishAck publishAsync() throws Exception {
+        return PublishRetrier.publishAsync(PublishRetryConfig.DEFAULT_CONFIG, js, SUBJECT, payload).get(30, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(BURST)
+    public void publishAsyncBurst() throws Exception {
+        CompletableFuture<?>[] acks = new CompletableFuture<?>[BURST];
+        for (int x = 0; x < BURST; x++) {
+            acks[x] = PublishRetrier.publishAsync(PublishRetryConfig.DEFAULT_CONFIG, js, SUBJECT, payload);
+        }
+        CompletableFuture.allOf(acks).get(30, TimeUnit.SECONDS);
+    }
+}
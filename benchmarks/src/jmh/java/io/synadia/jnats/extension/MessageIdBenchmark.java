@@ -0,0 +1,53 @@
+// Copyright (c) 2024-2025 Synadia Communications Inc. All Rights Reserved.
+// See LICENSE and NOTICE file for details.
+
+package io.synadia.jnats.extension;
+
+import io.nats.client.NUID;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Message id generation. The benchmark is in the extension package to reach the package private generator.
+ * The concatenation benchmark is the prefix plus counter string building the generator replaced.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MessageIdBenchmark {
+    static final String PREFIX = new NUID().next();
+
+    MessageIdGenerator generator;
+    AtomicLong counter;
+    NUID nuid;
+
+    @Setup
+    public void setup() {
+        generator = new MessageIdGenerator(PREFIX);
+        counter = new AtomicLong();
+        nuid = new NUID();
+    }
+
+    @Benchmark
+    public String generator() {
+        return generator.get();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String generatorContended() {
+        return generator.get();
+    }
+
+    @Benchmark
+    public String concatenation() {
+        return PREFIX + "-" + counter.incrementAndGet();
+    }
+
+    @Benchmark
+    public String nuid() {
+        return nuid.next();
+    }
+}
@@ -0,0 +1,71 @@
+// Copyright (c) 2024-2025 Synadia Communications Inc. All Rights Reserved.
+// See LICENSE and NOTICE file for details.
+
+package io.synadia.jnats.extension;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The hand off between the publishing caller and the publish runner, one producer and one consumer
+ * on the queue each queue mode uses. Both queues are bounded at the same capacity so the linked queue
+ * cannot grow without limit when the producer is faster. The benchmark is in the extension package
+ * to reach the package private ring buffer.
+ * The score of each thread is its successful offers or polls; the empty polls and full offers are counted separately.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class QueueHandoffBenchmark {
+    static final int CAPACITY = 4096;
+
+    @Param({"Linked", "RingBuffer"})
+    public QueueMode queueMode;
+
+    BlockingQueue<PreFlight> queue;
+    PreFlight element;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Misses {
+        public long full;
+        public long empty;
+
+        @Setup(Level.Iteration)
+        public void clean() {
+            full = 0;
+            empty = 0;
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        queue = queueMode == QueueMode.RingBuffer ? new RingBufferQueue<>(CAPACITY) : new LinkedBlockingQueue<>(CAPACITY);
+        element = new PreFlight("id", "subject", null, new byte[0]);
+    }
+
+    @Benchmark
+    @Group("handoff")
+    @GroupThreads(1)
+    public boolean offer(Misses misses) {
+        boolean offered = queue.offer(element);
+        if (!offered) {
+            misses.full++;
+        }
+        return offered;
+    }
+
+    @Benchmark
+    @Group("handoff")
+    @GroupThreads(1)
+    public PreFlight poll(Misses misses) {
+        PreFlight p = queue.poll();
+        if (p == null) {
+            misses.empty++;
+        }
+        return p;
+    }
+}
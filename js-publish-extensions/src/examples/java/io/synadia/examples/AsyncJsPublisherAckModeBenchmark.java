@@ -0,0 +1,79 @@
+// Copyright (c) 2024-2025 Synadia Communications Inc. All Rights Reserved.
+// See LICENSE and NOTICE file for details.
+
+package io.synadia.examples;
+
+import io.nats.client.Connection;
+import io.nats.client.JetStream;
+import io.nats.client.Nats;
+import io.nats.client.Options;
+import io.nats.client.impl.ErrorListenerConsoleImpl;
+import io.synadia.jnats.extension.AckMode;
+import io.synadia.jnats.extension.AsyncJsPublisher;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes the same workload with each ack mode against a local server and compares the time.
+ * The messages are spread over several subjects of the stream to mimic multi subject publishing.
+ */
+public class AsyncJsPublisherAckModeBenchmark {
+
+    // --------------------------------------------------------------------------------
+    // Benchmark configuration
+    // --------------------------------------------------------------------------------
+    public static final String STREAM = "ackModeStream";
+    public static final String SUBJECT_PREFIX = "ackMode.";
+    public static final int SUBJECT_COUNT = 10;
+    public static final int PUBLISH_COUNT = 500_000;
+    public static final int ROUNDS = 3;
+
+    public static final int MAX_IN_FLIGHT = 10000;
+    public static final int RESUME_AMOUNT = 5000;
+    public static final long WAIT_TIMEOUT = 5000;
+
+    public static void main(String[] args) {
+        Options options = Options.builder()
+            .server(Options.DEFAULT_URL)
+            .errorListener(new ErrorListenerConsoleImpl())
+            .build();
+
+        try (Connection nc = Nats.connect(options)) {
+            JetStream js = nc.jetStream();
+            for (int round = 1; round <= ROUNDS; round++) {
+                for (AckMode ackMode : AckMode.values()) {
+                    ExampleUtils.setupStream(nc, STREAM, SUBJECT_PREFIX + ">");
+                    ExamplePublishListener publishListener = new ExamplePublishListener();
+                    AsyncJsPublisher publisher = AsyncJsPublisher.builder(js)
+                        .ackMode(ackMode)
+                        .maxInFlight(MAX_IN_FLIGHT)
+                        .resumeAmount(RESUME_AMOUNT)
+                        .waitTimeout(WAIT_TIMEOUT)
+                        .signalResume(true)
+                        .publishListener(publishListener)
+                        .start();
+
+                    long start = System.nanoTime();
+                    for (int x = 0; x < PUBLISH_COUNT; x++) {
+                        publisher.publishAsync(SUBJECT_PREFIX + (x % SUBJECT_COUNT), ("data-" + x).getBytes());
+                    }
+                    publisher.stop(true);
+                    publisher.getFlightsRunnerDoneFuture().get(10, TimeUnit.MINUTES);
+                    long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    publisher.close();
+
+                    ExampleUtils.print("Round " + round, ackMode,
+                        "elapsed: " + elapsed + "ms",
+                        "msgs/sec: " + (PUBLISH_COUNT * 1000L / Math.max(1, elapsed)),
+                        "acked: " + publishListener.ackedCount,
+                        "exceptioned/timed-out: " + publishListener.exceptionedCount + "/" + publishListener.timedOutCount,
+                        "paused: " + publishListener.pausedCount + " for " + publishListener.pausedMillis + "ms");
+                }
+            }
+        }
+        catch (Exception e) {
+            //noinspection CallToPrintStackTrace
+            e.printStackTrace();
+        }
+    }
+}
@@ -7,7 +7,9 @@ import io.synadia.jnats.extension.AsyncJsPublishListener;
 import io.synadia.jnats.extension.InFlight;
 import io.synadia.jnats.extension.PostFlight;
 
+import java.time.Duration;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 public class ExamplePublishListener implements AsyncJsPublishListener {
@@ -18,7 +20,9 @@ public class ExamplePublishListener implements AsyncJsPublishListener {
     public AtomicLong timedOutCount = new AtomicLong();
     public AtomicLong pausedCount = new AtomicLong();
     public AtomicLong resumedCount = new AtomicLong();
+    public AtomicLong pausedMillis = new AtomicLong();
     public AtomicBoolean paused = new AtomicBoolean(false);
+    public AtomicInteger window = new AtomicInteger();
 
     @Override
     public void published(InFlight flight) {
@@ -63,4 +67,15 @@ public class ExamplePublishListener implements AsyncJsPublishListener {
         resumedCount.incrementAndGet();
         paused.set(false);
     }
+
+    @Override
+    public void resumed(int currentInFlight, int maxInFlight, int resumeAmount, Duration pausedTime) {
+        pausedMillis.addAndGet(pausedTime.toMillis());
+        resumed(currentInFlight, maxInFlight, resumeAmount);
+    }
+
+    @Override
+    public void windowChanged(int maxInFlight, int resumeAmount) {
+        window.set(maxInFlight);
+    }
 }
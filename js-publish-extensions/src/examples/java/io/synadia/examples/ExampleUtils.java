@@ -47,6 +47,8 @@ public class ExampleUtils {
             "in-flight: " + pad(publisher.currentInFlight(), 8),
             "published/acked: " + pad(listener.publishedCount + "/" + listener.ackedCount, 17),
             "paused/resumed: " + pad(listener.pausedCount + "/" + listener.resumedCount, 7),
+            "paused-time: " + pad(listener.pausedMillis + "ms", 9),
+            "window: " + pad(publisher.getMaxInFlight(), 6),
             "exceptioned/timed-out: " + pad(listener.exceptionedCount + "/" + listener.timedOutCount, 7),
             "elapsed: " + listener.elapsed() + "ms"
             );
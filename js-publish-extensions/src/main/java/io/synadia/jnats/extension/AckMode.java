@@ -0,0 +1,21 @@
+// Copyright (c) 2024-2025 Synadia Communications Inc. All Rights Reserved.
+// See LICENSE and NOTICE file for details.
+
+package io.synadia.jnats.extension;
+
+/**
+ * How the AsyncJsPublisher flights runner processes publish acks
+ */
+public enum AckMode {
+    /**
+     * Wait for each ack in the order the messages were published. This is the default.
+     */
+    InOrder,
+
+    /**
+     * Process each ack as soon as its future completes, regardless of publish order.
+     * Timeouts are tracked on a timer wheel instead of by waiting on the oldest future,
+     * so one slow ack does not hold back the notifications of acks that have already completed.
+     */
+    Completion
+}
@@ -0,0 +1,255 @@
+// Copyright (c) 2024-2025 Synadia Communications Inc. All Rights Reserved.
+// See LICENSE and NOTICE file for details.
+
+package io.synadia.jnats.extension;
+
+/**
+ * An additive increase, multiplicative decrease in flight window, like a TCP congestion window.
+ * The window grows by the increase amount for every window's worth of acks, as long as the smoothed
+ * ack latency stays within the latency tolerance of the lowest smoothed latency seen. Once latency climbs,
+ * the server is queueing and the window stops growing. A timeout or an overloaded response
+ * multiplies the window by the decrease factor, at most once per window of acks,
+ * so a burst of failures from the same window only shrinks it once.
+ */
+public class AimdInFlightWindow implements InFlightWindow {
+    public static final int DEFAULT_INITIAL_WINDOW = 50;
+    public static final int DEFAULT_MIN_WINDOW = 10;
+    public static final int DEFAULT_MAX_WINDOW = 50_000;
+    public static final int DEFAULT_INCREASE = 1;
+    public static final double DEFAULT_DECREASE_FACTOR = 0.5;
+    public static final double DEFAULT_LATENCY_TOLERANCE = 2.0;
+    public static final double DEFAULT_RESUME_RATIO = 0.5;
+    public static final int DEFAULT_BASELINE_RESET_ACKS = 100_000;
+
+    // weight of a new latency sample in the moving average, same as the TCP round trip estimator
+    private static final double SMOOTHING = 0.125;
+
+    private final int minWindow;
+    private final int maxWindow;
+    private final int increase;
+    private final double decreaseFactor;
+    private final double latencyTolerance;
+    private final double resumeRatio;
+    private final int baselineResetAcks;
+
+    private volatile int maxInFlight;
+    private volatile int resumeAmount;
+
+    // only touched by the flights runner thread
+    private double window;
+    private double smoothedLatency;
+    private long minLatency = Long.MAX_VALUE;
+    private int acksUntilBaselineReset;
+    private int acksUntilDecreaseAllowed;
+
+    private AimdInFlightWindow(Builder b) {
+        minWindow = b.minWindow;
+        maxWindow = Math.max(b.minWindow, b.maxWindow);
+        increase = b.increase;
+        decreaseFactor = b.decreaseFactor;
+        latencyTolerance = b.latencyTolerance;
+        resumeRatio = b.resumeRatio;
+        baselineResetAcks = b.baselineResetAcks;
+        acksUntilBaselineReset = baselineResetAcks;
+        setWindow(b.initialWindow);
+    }
+
+    @Override
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    @Override
+    public int getResumeAmount() {
+        return resumeAmount;
+    }
+
+    @Override
+    public int getUpperLimit() {
+        return maxWindow;
+    }
+
+    @Override
+    public void acked(long latencyNanos) {
+        smoothedLatency = smoothedLatency == 0 ? latencyNanos : smoothedLatency + SMOOTHING * (latencyNanos - smoothedLatency);
+
+        // the baseline is the lowest smoothed latency, not the lowest sample,
+        // so the jitter between individual acks does not stop the window from growing
+        if (smoothedLatency < minLatency) {
+            minLatency = (long)smoothedLatency;
+        }
+
+        // the baseline is only good for the current conditions,
+        // so every once in a while start over from the current average
+        if (--acksUntilBaselineReset <= 0) {
+            minLatency = (long)smoothedLatency;
+            acksUntilBaselineReset = baselineResetAcks;
+        }
+
+        if (acksUntilDecreaseAllowed > 0) {
+            acksUntilDecreaseAllowed--;
+        }
+
+        if (smoothedLatency <= minLatency * latencyTolerance) {
+            setWindow(window + (double)increase / window);
+        }
+    }
+
+    @Override
+    public void timedOut() {
+        decrease();
+    }
+
+    @Override
+    public void overloaded() {
+        decrease();
+    }
+
+    private void decrease() {
+        if (acksUntilDecreaseAllowed == 0) {
+            setWindow(window * decreaseFactor);
+            acksUntilDecreaseAllowed = maxInFlight;
+        }
+    }
+
+    private void setWindow(double newWindow) {
+        window = Math.max(minWindow, Math.min(maxWindow, newWindow));
+        int max = (int)window;
+        if (max != maxInFlight) {
+            // set the resume amount first so the publish runner never sees it above the max
+            int resume = (int)(max * resumeRatio);
+            if (max < maxInFlight) {
+                resumeAmount = resume;
+                maxInFlight = max;
+            }
+            else {
+                maxInFlight = max;
+                resumeAmount = resume;
+            }
+        }
+    }
+
+    /**
+     * Creates a builder for the AimdInFlightWindow
+     * @return the builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * The builder class for the AimdInFlightWindow
+     */
+    public static class Builder {
+        int initialWindow = DEFAULT_INITIAL_WINDOW;
+        int minWindow = DEFAULT_MIN_WINDOW;
+        int maxWindow = DEFAULT_MAX_WINDOW;
+        int increase = DEFAULT_INCREASE;
+        double decreaseFactor = DEFAULT_DECREASE_FACTOR;
+        double latencyTolerance = DEFAULT_LATENCY_TOLERANCE;
+        double resumeRatio = DEFAULT_RESUME_RATIO;
+        int baselineResetAcks = DEFAULT_BASELINE_RESET_ACKS;
+
+        /**
+         * The window to start with.
+         * Defaults to {@value #DEFAULT_INITIAL_WINDOW}
+         * @param initialWindow the window
+         * @return the builder
+         */
+        public Builder initialWindow(int initialWindow) {
+            this.initialWindow = initialWindow;
+            return this;
+        }
+
+        /**
+         * The smallest the window will shrink to. Must be at least 1.
+         * Defaults to {@value #DEFAULT_MIN_WINDOW}
+         * @param minWindow the window
+         * @return the builder
+         */
+        public Builder minWindow(int minWindow) {
+            this.minWindow = Math.max(1, minWindow);
+            return this;
+        }
+
+        /**
+         * The largest the window will grow to.
+         * Defaults to {@value #DEFAULT_MAX_WINDOW}
+         * @param maxWindow the window
+         * @return the builder
+         */
+        public Builder maxWindow(int maxWindow) {
+            this.maxWindow = maxWindow;
+            return this;
+        }
+
+        /**
+         * How much the window grows for every window's worth of acks while latency is flat.
+         * Defaults to {@value #DEFAULT_INCREASE}
+         * @param increase the amount
+         * @return the builder
+         */
+        public Builder increase(int increase) {
+            this.increase = Math.max(1, increase);
+            return this;
+        }
+
+        /**
+         * What the window is multiplied by on a timeout or overloaded response.
+         * Must be greater than 0 and less than 1.
+         * Defaults to {@value #DEFAULT_DECREASE_FACTOR}
+         * @param decreaseFactor the factor
+         * @return the builder
+         */
+        public Builder decreaseFactor(double decreaseFactor) {
+            if (decreaseFactor <= 0 || decreaseFactor >= 1) {
+                throw new IllegalArgumentException("Decrease factor must be greater than 0 and less than 1.");
+            }
+            this.decreaseFactor = decreaseFactor;
+            return this;
+        }
+
+        /**
+         * How many times the lowest smoothed latency seen the smoothed latency can be
+         * and still be considered flat, allowing the window to grow.
+         * Defaults to {@value #DEFAULT_LATENCY_TOLERANCE}
+         * @param latencyTolerance the tolerance
+         * @return the builder
+         */
+        public Builder latencyTolerance(double latencyTolerance) {
+            this.latencyTolerance = Math.max(1, latencyTolerance);
+            return this;
+        }
+
+        /**
+         * The resume amount as a fraction of the current window, between 0 and 1.
+         * Defaults to {@value #DEFAULT_RESUME_RATIO}
+         * @param resumeRatio the ratio
+         * @return the builder
+         */
+        public Builder resumeRatio(double resumeRatio) {
+            this.resumeRatio = Math.max(0, Math.min(1, resumeRatio));
+            return this;
+        }
+
+        /**
+         * The number of acks after which the lowest smoothed latency seen is reset to the
+         * smoothed latency, so the window can adapt when conditions change.
+         * Defaults to {@value #DEFAULT_BASELINE_RESET_ACKS}
+         * @param baselineResetAcks the number of acks
+         * @return the builder
+         */
+        public Builder baselineResetAcks(int baselineResetAcks) {
+            this.baselineResetAcks = Math.max(1, baselineResetAcks);
+            return this;
+        }
+
+        /**
+         * Builds the AimdInFlightWindow
+         * @return AimdInFlightWindow instance
+         */
+        public AimdInFlightWindow build() {
+            return new AimdInFlightWindow(this);
+        }
+    }
+}
@@ -3,6 +3,9 @@
 
 package io.synadia.jnats.extension;
 
+import java.time.Duration;
+import java.util.List;
+
 /**
  * The interface is designed to listen to events as the AsyncJsPublish runs
  */
@@ -33,6 +36,51 @@ public interface AsyncJsPublishListener {
      */
     void timeout(PostFlight flight);
 
+    /**
+     * A batch of messages have been published. This is the method the engine actually calls,
+     * by default it calls {@link #published(InFlight)} for each flight.
+     * How many flights are delivered at once depends on the publisher's notification batch size.
+     * @param flights the flights representing the messages
+     */
+    default void publishedBatch(List<InFlight> flights) {
+        for (InFlight flight : flights) {
+            published(flight);
+        }
+    }
+
+    /**
+     * A batch of messages have been acked. This is the method the engine actually calls,
+     * by default it calls {@link #acked(PostFlight)} for each flight.
+     * @param flights the flights representing the messages
+     */
+    default void ackedBatch(List<PostFlight> flights) {
+        for (PostFlight flight : flights) {
+            acked(flight);
+        }
+    }
+
+    /**
+     * A batch of messages have completed exceptionally. This is the method the engine actually calls,
+     * by default it calls {@link #completedExceptionally(PostFlight)} for each flight.
+     * @param flights the flights representing the messages
+     */
+    default void completedExceptionallyBatch(List<PostFlight> flights) {
+        for (PostFlight flight : flights) {
+            completedExceptionally(flight);
+        }
+    }
+
+    /**
+     * A batch of messages have timed out. This is the method the engine actually calls,
+     * by default it calls {@link #timeout(PostFlight)} for each flight.
+     * @param flights the flights representing the messages
+     */
+    default void timeoutBatch(List<PostFlight> flights) {
+        for (PostFlight flight : flights) {
+            timeout(flight);
+        }
+    }
+
     /**
      * The engine has just paused publishing waiting for inflight to
      * drop below the resumeInFlightAmount
@@ -50,4 +98,25 @@ public interface AsyncJsPublishListener {
      * @param resumeAmount the number of in flight messages when publishing will resume after being paused
      */
     void resumed(int currentInFlight, int maxInFlight, int resumeAmount);
+
+    /**
+     * The engine has just resumed publishing. This is the method the engine actually calls,
+     * by default it just calls {@link #resumed(int, int, int)}. Override it to also know
+     * how long publishing was paused.
+     * @param currentInFlight the number of messages in flight
+     * @param maxInFlight the number of in flight messages when publishing will be paused
+     * @param resumeAmount the number of in flight messages when publishing will resume after being paused
+     * @param pausedTime how long publishing was paused
+     */
+    default void resumed(int currentInFlight, int maxInFlight, int resumeAmount, Duration pausedTime) {
+        resumed(currentInFlight, maxInFlight, resumeAmount);
+    }
+
+    /**
+     * The in flight window has changed. Only called when the publisher has an {@link InFlightWindow}.
+     * Does nothing by default.
+     * @param maxInFlight the number of in flight messages when publishing will be paused
+     * @param resumeAmount the number of in flight messages when publishing will resume after being paused
+     */
+    default void windowChanged(int maxInFlight, int resumeAmount) {}
 }
@@ -0,0 +1,50 @@
+// Copyright (c) 2024-2025 Synadia Communications Inc. All Rights Reserved.
+// See LICENSE and NOTICE file for details.
+
+package io.synadia.jnats.extension;
+
+/**
+ * Receives measurements from an AsyncJsPublisher as it runs.
+ * Unlike the listener, these are called directly on the publisher's runner threads,
+ * so implementations must be fast, thread safe and must not block.
+ * Every method does nothing by default. See {@link DefaultAsyncJsPublishMetrics}.
+ */
+public interface AsyncJsPublishMetrics {
+    /**
+     * A message was published
+     * @param preFlightNanos how long the message waited to be published
+     */
+    default void published(long preFlightNanos) {}
+
+    /**
+     * A message was acked
+     * @param ackNanos the time from publish to ack
+     */
+    default void acked(long ackNanos) {}
+
+    /**
+     * A message timed out waiting for its ack
+     */
+    default void timedOut() {}
+
+    /**
+     * A message completed exceptionally
+     */
+    default void completedExceptionally() {}
+
+    /**
+     * A publish attempt failed and the retry config allows another attempt
+     */
+    default void retried() {}
+
+    /**
+     * Publishing was paused
+     */
+    default void paused() {}
+
+    /**
+     * Publishing was resumed
+     * @param pausedNanos how long publishing was paused
+     */
+    default void resumed(long pausedNanos) {}
+}
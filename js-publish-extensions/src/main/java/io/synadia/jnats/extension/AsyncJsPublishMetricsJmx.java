@@ -0,0 +1,122 @@
+// Copyright (c) 2024-2025 Synadia Communications Inc. All Rights Reserved.
+// See LICENSE and NOTICE file for details.
+
+package io.synadia.jnats.extension;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Exposes {@link DefaultAsyncJsPublishMetrics} as a JMX MXBean.
+ */
+public class AsyncJsPublishMetricsJmx implements AsyncJsPublishMetricsMXBean {
+    public static final String DOMAIN = "io.synadia.jnats.extension";
+
+    private final DefaultAsyncJsPublishMetrics metrics;
+
+    public AsyncJsPublishMetricsJmx(DefaultAsyncJsPublishMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Register with the platform MBean server as {@value #DOMAIN}:type=AsyncJsPublisher,name=[name]
+     * @param name the name, for instance the stream or the tenant the publisher is for
+     * @return the object name it was registered with
+     * @throws JMException if it cannot be registered, for instance the name is already registered
+     */
+    public ObjectName register(String name) throws JMException {
+        ObjectName objectName = new ObjectName(DOMAIN + ":type=AsyncJsPublisher,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        return objectName;
+    }
+
+    private static long micros(long nanos) {
+        return nanos / 1000;
+    }
+
+    @Override
+    public long getPublishedCount() {
+        return metrics.getPublishedCount();
+    }
+
+    @Override
+    public long getAckedCount() {
+        return metrics.getAckedCount();
+    }
+
+    @Override
+    public long getTimedOutCount() {
+        return metrics.getTimedOutCount();
+    }
+
+    @Override
+    public long getCompletedExceptionallyCount() {
+        return metrics.getCompletedExceptionallyCount();
+    }
+
+    @Override
+    public long getRetriedCount() {
+        return metrics.getRetriedCount();
+    }
+
+    @Override
+    public long getPausedCount() {
+        return metrics.getPausedCount();
+    }
+
+    @Override
+    public double getAckLatencyMeanMicros() {
+        return metrics.getAckLatency().getMean() / 1000;
+    }
+
+    @Override
+    public long getAckLatencyP50Micros() {
+        return micros(metrics.getAckLatency().getValueAtPercentile(50));
+    }
+
+    @Override
+    public long getAckLatencyP99Micros() {
+        return micros(metrics.getAckLatency().getValueAtPercentile(99));
+    }
+
+    @Override
+    public long getAckLatencyP999Micros() {
+        return micros(metrics.getAckLatency().getValueAtPercentile(99.9));
+    }
+
+    @Override
+    public long getAckLatencyMaxMicros() {
+        return micros(metrics.getAckLatency().getMax());
+    }
+
+    @Override
+    public long getPreFlightTimeP50Micros() {
+        return micros(metrics.getPreFlightTime().getValueAtPercentile(50));
+    }
+
+    @Override
+    public long getPreFlightTimeP99Micros() {
+        return micros(metrics.getPreFlightTime().getValueAtPercentile(99));
+    }
+
+    @Override
+    public long getPreFlightTimeMaxMicros() {
+        return micros(metrics.getPreFlightTime().getMax());
+    }
+
+    @Override
+    public long getPausedTimeP99Micros() {
+        return micros(metrics.getPausedTime().getValueAtPercentile(99));
+    }
+
+    @Override
+    public long getPausedTimeMaxMicros() {
+        return micros(metrics.getPausedTime().getMax());
+    }
+
+    @Override
+    public void reset() {
+        metrics.reset();
+    }
+}
@@ -0,0 +1,34 @@
+// Copyright (c) 2024-2025 Synadia Communications Inc. All Rights Reserved.
+// See LICENSE and NOTICE file for details.
+
+package io.synadia.jnats.extension;
+
+/**
+ * The JMX view of {@link DefaultAsyncJsPublishMetrics}. Times are in microseconds.
+ */
+public interface AsyncJsPublishMetricsMXBean {
+    long getPublishedCount();
+    long getAckedCount();
+    long getTimedOutCount();
+    long getCompletedExceptionallyCount();
+    long getRetriedCount();
+    long getPausedCount();
+
+    double getAckLatencyMeanMicros();
+    long getAckLatencyP50Micros();
+    long getAckLatencyP99Micros();
+    long getAckLatencyP999Micros();
+    long getAckLatencyMaxMicros();
+
+    long getPreFlightTimeP50Micros();
+    long getPreFlightTimeP99Micros();
+    long getPreFlightTimeMaxMicros();
+
+    long getPausedTimeP99Micros();
+    long getPausedTimeMaxMicros();
+
+    /**
+     * Clear all the metrics
+     */
+    void reset();
+}
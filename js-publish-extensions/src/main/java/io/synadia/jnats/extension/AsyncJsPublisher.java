@@ -7,16 +7,26 @@ import io.nats.client.JetStream;
 import io.nats.client.JetStreamApiException;
 import io.nats.client.Message;
 import io.nats.client.NUID;
+import io.nats.client.PublishOptions;
 import io.nats.client.api.PublishAck;
 import io.nats.client.impl.Headers;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Supplier;
 
+import static io.nats.client.support.NatsJetStreamConstants.MSG_ID_HDR;
+
 /**
  * This is the main entry point. Build an instance of this class and
  * publish to it instead of to the JetStream context.
@@ -27,55 +37,97 @@ public class AsyncJsPublisher implements AutoCloseable {
     public static final long DEFAULT_POLL_TIME = 100;
     public static final long DEFAULT_PUBLISH_PAUSE_TIME = 100;
     public static final long DEFAULT_WAIT_TIMEOUT = DEFAULT_MAX_IN_FLIGHT * DEFAULT_POLL_TIME;
+    public static final int DEFAULT_RING_BUFFER_CAPACITY = 65536;
+    public static final int DEFAULT_NOTIFICATION_BATCH_SIZE = 1;
+    public static final int DEFAULT_SPILL_THRESHOLD = 10_000;
+    public static final int DEFAULT_SPILL_SEGMENT_SIZE = 64 * 1024 * 1024;
 
     private static final PreFlight DRAIN_MARKER = new PreFlight("DRAIN", null, null, null);
 
-    private final AtomicLong messageIdGenerator;
     private final JetStream js;
     private final Supplier<String> messageIdSupplier;
-    private final String idPrefix;
+    private final boolean messageIdHeader;
     private final int maxInFlight;
     private final int resumeAmount;
+    private final InFlightWindow inFlightWindow;
+    private final AsyncJsPublishMetrics metrics;
+    private final Runnable retriedCallback;
     private final PublishRetryConfig retryConfig;
     private final AsyncJsPublishListener publishListener;
+    private final boolean notifyPublished;
+    private final int notificationBatchSize;
+    private final NotificationBatcher notifier;
     private final long pollTime;
     private final long publishPauseTime;
     private final long waitTimeout;
-    private final LinkedBlockingQueue<PreFlight> preFlight;
-    private final LinkedBlockingQueue<InFlight> inFlights;
+    private final boolean signalResume;
+    private final QueueMode queueMode;
+    private final AckMode ackMode;
+    private final boolean timePublishes; // whether anything reads InFlight.publishedAt
+    private final BlockingQueue<PreFlight> preFlight;
+    private final SpillQueue spill;
+    private final int spillThreshold;
+    private boolean drainAfterSpill; // only touched by the publish runner
+    private final BlockingQueue<InFlight> inFlights;
+    private final LinkedBlockingQueue<InFlight> completedFlights;
+    private final AtomicInteger completionInFlight;
     private final AtomicBoolean publishingNotPaused;
+    private final AtomicLong pausedAt;
+    private final ReentrantLock pauseLock;
+    private final Condition resumeCondition;
     private final AtomicBoolean draining;
     private final AtomicBoolean keepGoingPublishRunner;
     private final AtomicBoolean keepGoingFlightsRunner;
     private final ExecutorService notificationExecutorService;
     private final boolean executorWasntUserSupplied;
+    private final ThreadFactory threadFactory;
+    private final boolean virtualThreads;
     private final AtomicReference<Thread> publishRunnerThread;
     private final AtomicReference<Thread> flightsRunnerThread;
     private final CompletableFuture<Void> publishRunnerDoneFuture;
     private final CompletableFuture<Void> flightsRunnerDoneFuture;
+    private int notifiedMaxInFlight; // only touched by the flights runner
 
     private AsyncJsPublisher(Builder b) {
         js = b.js;
         if (b.messageIdSupplier == null) {
-            idPrefix = new NUID().nextSequence();
-            messageIdGenerator = new AtomicLong(0);
-            messageIdSupplier = () -> idPrefix + "-" + messageIdGenerator.incrementAndGet();
+            messageIdSupplier = new MessageIdGenerator(new NUID().nextSequence());
         }
         else {
-            idPrefix = null;
-            messageIdGenerator = null;
             messageIdSupplier = b.messageIdSupplier;
         }
+        messageIdHeader = b.messageIdHeader;
         maxInFlight = b.maxInFlight;
         resumeAmount = b.resumeAmount;
+        inFlightWindow = b.inFlightWindow;
+        metrics = b.metrics;
+        retriedCallback = metrics == null ? null : metrics::retried;
+        notifiedMaxInFlight = getMaxInFlight();
         retryConfig = b.retryConfig;
         publishListener = b.publishListener;
         pollTime = b.pollTime;
         publishPauseTime = b.publishPauseTime;
         waitTimeout = b.waitTimeout;
+        signalResume = b.signalResume;
+
+        if (b.threadFactory != null) {
+            threadFactory = b.threadFactory;
+            virtualThreads = false;
+        }
+        else if (b.virtualThreads && VirtualThreads.isSupported()) {
+            threadFactory = VirtualThreads.factory();
+            virtualThreads = true;
+        }
+        else {
+            threadFactory = null; // plain platform threads
+            virtualThreads = false;
+        }
 
         if (b.notificationExecutorService == null) {
-            notificationExecutorService = Executors.newFixedThreadPool(1);
+            // one thread keeps the notifications in order
+            notificationExecutorService = threadFactory == null
+                ? Executors.newFixedThreadPool(1)
+                : Executors.newFixedThreadPool(1, threadFactory);
             executorWasntUserSupplied = true;
         }
         else {
@@ -83,9 +135,55 @@ public class AsyncJsPublisher implements AutoCloseable {
             executorWasntUserSupplied = false;
         }
 
-        preFlight = new LinkedBlockingQueue<>();
-        inFlights = new LinkedBlockingQueue<>();
+        notifyPublished = b.notifyPublished;
+        notificationBatchSize = b.notificationBatchSize;
+        // both runner threads share the batcher, so events are handed off in the order they happened
+        notifier = publishListener == null ? null
+            : new NotificationBatcher(publishListener, notificationExecutorService::submit, notificationBatchSize);
+
+        queueMode = b.queueMode;
+        if (queueMode == QueueMode.RingBuffer) {
+            preFlight = new RingBufferQueue<>(b.ringBufferCapacity);
+            // publishing pauses at max in flight, so the in flight ring never needs to be bigger than that
+            inFlights = new RingBufferQueue<>(inFlightWindow == null ? maxInFlight : inFlightWindow.getUpperLimit());
+        }
+        else {
+            preFlight = new LinkedBlockingQueue<>();
+            inFlights = new LinkedBlockingQueue<>();
+        }
+
+        if (b.spillDirectory == null) {
+            spill = null;
+            spillThreshold = 0;
+        }
+        else {
+            try {
+                spill = new SpillQueue(b.spillDirectory, b.spillSegmentSize, b.durableSpill);
+            }
+            catch (IOException e) {
+                throw new IllegalStateException("Unable to open the spill directory.", e);
+            }
+            // spill before a full pre-flight ring would block publishAsync
+            spillThreshold = preFlight instanceof RingBufferQueue
+                ? Math.min(b.spillThreshold, ((RingBufferQueue<PreFlight>)preFlight).capacity())
+                : b.spillThreshold;
+        }
+
+        ackMode = b.ackMode;
+        if (ackMode == AckMode.Completion) {
+            // unbounded since futures can still complete after the flight timed out
+            completedFlights = new LinkedBlockingQueue<>();
+            completionInFlight = new AtomicInteger();
+        }
+        else {
+            completedFlights = null;
+            completionInFlight = null;
+        }
+        timePublishes = metrics != null || inFlightWindow != null || ackMode == AckMode.Completion;
         publishingNotPaused = new AtomicBoolean(true);
+        pausedAt = new AtomicLong();
+        pauseLock = new ReentrantLock();
+        resumeCondition = pauseLock.newCondition();
         draining = new AtomicBoolean(false);
         keepGoingPublishRunner = new AtomicBoolean(true);
         keepGoingFlightsRunner = new AtomicBoolean(true);
@@ -100,15 +198,19 @@ public class AsyncJsPublisher implements AutoCloseable {
      * Start the publisher.
      */
     public void start() {
-        Thread t = new Thread(this::publishRunner);
+        Thread t = newThread(this::publishRunner);
         t.start();
         publishRunnerThread.set(t);
 
-        t = new Thread(this::flightsRunner);
+        t = newThread(this::flightsRunner);
         t.start();
         flightsRunnerThread.set(t);
     }
 
+    private Thread newThread(Runnable runnable) {
+        return threadFactory == null ? new Thread(runnable) : threadFactory.newThread(runnable);
+    }
+
     /**
      * stop the publisher with drain
      */
@@ -122,7 +224,7 @@ public class AsyncJsPublisher implements AutoCloseable {
      */
     public void stop(boolean drain) {
         if (drain) {
-            preFlight.offer(DRAIN_MARKER);
+            enqueue(preFlight, DRAIN_MARKER);
             draining.set(true);
         }
         keepGoingPublishRunner.set(false);
@@ -137,10 +239,6 @@ public class AsyncJsPublisher implements AutoCloseable {
         keepGoingPublishRunner.set(false);
         keepGoingFlightsRunner.set(false);
 
-        if (executorWasntUserSupplied) {
-            notificationExecutorService.shutdown();
-        }
-
         Thread t = publishRunnerThread.get();
         if (t != null) { // thread is null if the user provided their own
             try {
@@ -168,6 +266,22 @@ public class AsyncJsPublisher implements AutoCloseable {
                 }
             }
         }
+
+        // only now, the runners flush their last notifications to it as they finish
+        if (executorWasntUserSupplied) {
+            notificationExecutorService.shutdown();
+        }
+
+        if (spill != null) {
+            // the messages still in memory were queued before anything spilled,
+            // a durable spill keeps them in front of the spilled ones instead of dropping them
+            List<PreFlight> front = new ArrayList<>();
+            if (spill.isDurable()) {
+                preFlight.drainTo(front);
+                front.removeIf(p -> p == DRAIN_MARKER);
+            }
+            spill.close(front);
+        }
     }
 
     /**
@@ -175,15 +289,25 @@ public class AsyncJsPublisher implements AutoCloseable {
      * @return the number
      */
     public int currentInFlight() {
-        return inFlights.size();
+        // in completion mode the in flights queue only holds
+        // flights the flights runner hasn't put on the timer wheel yet
+        return completionInFlight == null ? inFlights.size() : completionInFlight.get();
     }
 
     /**
-     * The number of messages currently waiting to be published
+     * The number of messages currently waiting to be published, including the ones spilled to disk
      * @return the number
      */
     public int preFlightSize() {
-        return preFlight.size();
+        return spill == null ? preFlight.size() : (int)Math.min(Integer.MAX_VALUE, preFlight.size() + spill.size());
+    }
+
+    /**
+     * The number of messages waiting to be published that are spilled to disk
+     * @return the number
+     */
+    public long spilledSize() {
+        return spill == null ? 0 : spill.size();
     }
 
     /**
@@ -203,19 +327,35 @@ public class AsyncJsPublisher implements AutoCloseable {
     }
 
     /**
-     * The configured max in flight
+     * The max in flight. If there is an in flight window, this is its current value.
      * @return the value
      */
     public int getMaxInFlight() {
-        return maxInFlight;
+        return inFlightWindow == null ? maxInFlight : inFlightWindow.getMaxInFlight();
     }
 
     /**
-     * The configured resume at amount
+     * The resume at amount. If there is an in flight window, this is its current value.
      * @return the value
      */
     public int getResumeAmount() {
-        return resumeAmount;
+        return inFlightWindow == null ? resumeAmount : inFlightWindow.getResumeAmount();
+    }
+
+    /**
+     * The configured metrics
+     * @return the metrics or null if there are none
+     */
+    public AsyncJsPublishMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * The configured in flight window
+     * @return the window or null if the max in flight and resume amount are static
+     */
+    public InFlightWindow getInFlightWindow() {
+        return inFlightWindow;
     }
 
     /**
@@ -243,6 +383,56 @@ public class AsyncJsPublisher implements AutoCloseable {
         return waitTimeout;
     }
 
+    /**
+     * Whether the publish runner is woken by a signal as soon as publishing can resume,
+     * instead of sleeping the publish pause time between checks
+     * @return the flag
+     */
+    public boolean isSignalResume() {
+        return signalResume;
+    }
+
+    /**
+     * The configured ack mode
+     * @return the mode
+     */
+    public AckMode getAckMode() {
+        return ackMode;
+    }
+
+    /**
+     * The configured notification batch size
+     * @return the size
+     */
+    public int getNotificationBatchSize() {
+        return notificationBatchSize;
+    }
+
+    /**
+     * Whether the listener is notified when messages are published
+     * @return the flag
+     */
+    public boolean isNotifyPublished() {
+        return notifyPublished;
+    }
+
+    /**
+     * Whether the built-in runner threads and notification executor use virtual threads.
+     * False if virtual threads were requested but the runtime does not support them.
+     * @return the flag
+     */
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * The configured queue mode
+     * @return the mode
+     */
+    public QueueMode getQueueMode() {
+        return queueMode;
+    }
+
     @Deprecated
     public boolean getProcessAcksInOrder() {
         return true;
@@ -255,36 +445,63 @@ public class AsyncJsPublisher implements AutoCloseable {
         try {
             while (keepGoingPublishRunner.get() || draining.get()) {
                 if (publishingNotPaused.get()) {
-                    PreFlight pre = preFlight.poll(pollTime, TimeUnit.MILLISECONDS);
+                    PreFlight pre = nextPreFlight();
                     if (pre != null) {
                         if (pre == DRAIN_MARKER) {
                             return;
                         }
 
                         // if there is a retry config, publish with retry else regular publish
+                        PublishOptions options = messageIdOptions(pre);
                         CompletableFuture<PublishAck> fpa;
                         if (retryConfig == null) {
-                            fpa = js.publishAsync(pre.subject, pre.headers, pre.body);
+                            fpa = options == null
+                                ? js.publishAsync(pre.subject, pre.headers, pre.body)
+                                : js.publishAsync(pre.subject, pre.headers, pre.body, options);
                         }
                         else {
-                            fpa = PublishRetrier.publishAsync(retryConfig, js, pre.subject, pre.headers, pre.body);
+                            fpa = PublishRetrier.publishAsync(retryConfig, js, pre.subject, pre.headers, pre.body, options, retriedCallback);
                         }
 
                         // The publish is now in flight, put it in the in flights queue
                         // and complete the future that shows this was published
-                        InFlight flight = new InFlight(fpa, pre);
-                        inFlights.offer(flight);
-                        pre.inFlightFuture.complete(flight);
+                        InFlight flight = new InFlight(fpa, pre, timePublishes ? System.nanoTime() : 0);
+                        if (metrics != null) {
+                            metrics.published(flight.publishedAt - pre.queuedAt);
+                        }
+                        // before the flights runner can see the flight, so published is always notified before its outcome
                         notifyPublished(flight);
+                        if (completionInFlight != null) {
+                            completionInFlight.incrementAndGet();
+                        }
+                        enqueue(inFlights, flight);
+                        if (completedFlights != null) {
+                            // must be after the flight is in the in flights queue, see completionFlightsRunner
+                            fpa.whenComplete((pa, t) -> completedFlights.offer(flight));
+                        }
+                        pre.inFlightFuture.complete(flight);
+                        if (preFlight.isEmpty()) {
+                            flushNotifications();
+                        }
 
                         // if we've reached the max in flight, put publishing on hold
                         // this is reset by the flights runner when the condition is met
-                        int currentInFlight = inFlights.size();
-                        if (currentInFlight >= maxInFlight) {
+                        int currentInFlight = currentInFlight();
+                        if (currentInFlight >= getMaxInFlight()) {
+                            pausedAt.set(System.nanoTime());
                             publishingNotPaused.set(false);
+                            if (metrics != null) {
+                                metrics.paused();
+                            }
                             notifyPaused(currentInFlight);
                         }
                     }
+                    else {
+                        flushNotifications();
+                    }
+                }
+                else if (signalResume) {
+                    awaitResume();
                 }
                 else {
                     //noinspection BusyWait
@@ -295,38 +512,104 @@ public class AsyncJsPublisher implements AutoCloseable {
         catch (InterruptedException e) {
             Thread.currentThread().interrupt();
         }
+        catch (IllegalStateException e) {
+            publishRunnerDoneFuture.completeExceptionally(e);
+        }
         finally {
-            keepGoingPublishRunner.set(false);
-            publishRunnerDoneFuture.complete(null);
+            try {
+                flushNotifications();
+            }
+            finally {
+                // a failed flush must not keep close waiting on the runner
+                keepGoingPublishRunner.set(false);
+                publishRunnerDoneFuture.complete(null);
+            }
+        }
+    }
+
+    /**
+     * The message id goes in the publish options instead of the message's headers, so the caller's headers
+     * are neither modified nor copied here. The client sets the options' id as the Nats-Msg-Id header
+     * of the message it sends, for every retry too.
+     * @return the options or null if the id header is not wanted or the headers already have one
+     */
+    private PublishOptions messageIdOptions(PreFlight pre) {
+        if (!messageIdHeader || (pre.headers != null && pre.headers.getFirst(MSG_ID_HDR) != null)) {
+            return null;
+        }
+        return PublishOptions.builder().messageId(pre.messageId).build();
+    }
+
+    /**
+     * The next message to publish. Everything in memory was queued before anything that is spilled,
+     * since once something is spilled, publishAsync keeps spilling until the spill is empty.
+     * So memory is drained first, including a drain marker, after which the spill is drained.
+     */
+    private PreFlight nextPreFlight() throws InterruptedException {
+        if (spill == null) {
+            return preFlight.poll(pollTime, TimeUnit.MILLISECONDS);
+        }
+        PreFlight pre = preFlight.poll();
+        if (pre != null && pre != DRAIN_MARKER) {
+            return pre;
+        }
+        if (pre == DRAIN_MARKER) {
+            drainAfterSpill = true;
         }
+        try {
+            PreFlight spilled = spill.poll();
+            if (spilled != null) {
+                return spilled;
+            }
+        }
+        catch (IOException e) {
+            throw new IllegalStateException("Unable to read spilled messages.", e);
+        }
+        if (drainAfterSpill) {
+            return DRAIN_MARKER;
+        }
+        return preFlight.poll(pollTime, TimeUnit.MILLISECONDS);
     }
 
     /**
      * The flightsRunner is the runnable event loop that's job is to track the published messages and their futures.
      */
     public void flightsRunner() {
+        if (ackMode == AckMode.Completion) {
+            completionFlightsRunner();
+            return;
+        }
         try {
             while (keepGoingFlightsRunner.get() || draining.get()) {
                 InFlight head = inFlights.poll(pollTime, TimeUnit.MILLISECONDS);
                 if (head == null) {
+                    flushNotifications();
                     // no inFlight? draining? no more queued? no more in inFlight? we are done!
-                    if (draining.get() && preFlight.isEmpty() && inFlights.isEmpty()) {
+                    if (draining.get() && preFlight.isEmpty() && inFlights.isEmpty() && (spill == null || spill.isEmpty())) {
                         return;
                     }
+                    // the publish runner may have paused after the last flight was already taken
+                    checkResume();
                 }
                 else {
+                    if (!head.publishAckFuture.isDone()) {
+                        // about to wait, don't hold on to notifications meanwhile
+                        flushNotifications();
+                    }
                     try {
                         // Turns out processing in order is faster
                         // I think the reason behind this is that while waiting for the one
                         // at the head of the queue, plus the processing time,
                         // allows more acks to complete. It's like head of line blocking but in a good way.
                         PublishAck pa = head.publishAckFuture.get(waitTimeout, TimeUnit.MILLISECONDS);
+                        recordAcked(head);
                         notifyCompleted(new PostFlight(head, pa));
                     }
                     catch (ExecutionException e) {
                         handleExecutionException(e, head);
                     }
                     catch (TimeoutException e) {
+                        recordTimedOut();
                         notifyTimeout(new PostFlight(head, true, false, e));
                     }
                     catch (InterruptedException e) {
@@ -334,16 +617,73 @@ public class AsyncJsPublisher implements AutoCloseable {
                         keepGoingFlightsRunner.set(false);
                     }
 
-                    // if paused (not publishing), check if we can resume
-                    if (!publishingNotPaused.get()) {
-                        // once the inFlight size is LE the resume amount,
-                        // we are allowed to resume (publish again)
-                        int currentInFlight = inFlights.size();
-                        if (currentInFlight <= resumeAmount) {
-                            publishingNotPaused.set(true);
-                            notifyResumed(currentInFlight);
-                        }
+                    checkResume();
+                }
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        finally {
+            try {
+                flushNotifications();
+            }
+            finally {
+                // a failed flush must not keep close waiting on the runner
+                keepGoingFlightsRunner.set(false);
+                flightsRunnerDoneFuture.complete(null);
+            }
+        }
+    }
+
+    /**
+     * The flights runner event loop for {@link AckMode#Completion}.
+     * Each publish ack future puts its flight on the completed queue when it's done,
+     * so acks are processed in the order they complete. Flights waiting for their ack
+     * sit on a timer wheel that times them out after the wait timeout.
+     */
+    private void completionFlightsRunner() {
+        long waitTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(waitTimeout);
+        long tickNanos = Math.max(TimeUnit.MILLISECONDS.toNanos(1), Math.min(TimeUnit.MILLISECONDS.toNanos(pollTime), waitTimeoutNanos / 16));
+        InFlightTimerWheel wheel = new InFlightTimerWheel(tickNanos, InFlightTimerWheel.DEFAULT_WHEEL_SIZE, System.nanoTime());
+        try {
+            while (keepGoingFlightsRunner.get() || draining.get()) {
+                InFlight done = completedFlights.poll(tickNanos, TimeUnit.NANOSECONDS);
+
+                // Move newly published flights onto the wheel. This is done after the poll,
+                // since a flight is always in the in flights queue before its future can
+                // put it in the completed queue, anything just polled is accounted for.
+                InFlight flight = inFlights.poll();
+                while (flight != null) {
+                    if (flight.wheelState == InFlight.QUEUED) {
+                        wheel.schedule(flight, flight.publishedAt + waitTimeoutNanos);
+                    }
+                    flight = inFlights.poll();
+                }
+
+                while (done != null) {
+                    // A flight that is still queued completed before it was moved to the wheel.
+                    // A flight that is already settled timed out, so the late completion is ignored
+                    if (done.wheelState == InFlight.QUEUED || wheel.cancel(done)) {
+                        done.wheelState = InFlight.SETTLED;
+                        completionInFlight.decrementAndGet();
+                        processCompleted(done);
                     }
+                    done = completedFlights.poll();
+                }
+
+                wheel.expire(System.nanoTime(), expired -> {
+                    completionInFlight.decrementAndGet();
+                    recordTimedOut();
+                    notifyTimeout(new PostFlight(expired, true, false, new TimeoutException()));
+                });
+
+                checkResume();
+                flushNotifications();
+
+                // draining? publishing finished? no more in flight? we are done!
+                if (draining.get() && publishRunnerDoneFuture.isDone() && completionInFlight.get() == 0) {
+                    return;
                 }
             }
         }
@@ -351,71 +691,218 @@ public class AsyncJsPublisher implements AutoCloseable {
             Thread.currentThread().interrupt();
         }
         finally {
+            try {
+                flushNotifications();
+            }
+            finally {
+                // a failed flush must not keep close waiting on the runner
+                keepGoingFlightsRunner.set(false);
+                flightsRunnerDoneFuture.complete(null);
+            }
+        }
+    }
+
+    private void processCompleted(InFlight flight) {
+        try {
+            // the future is already done, so this does not block
+            PublishAck pa = flight.publishAckFuture.get();
+            recordAcked(flight);
+            notifyCompleted(new PostFlight(flight, pa));
+        }
+        catch (ExecutionException e) {
+            handleExecutionException(e, flight);
+        }
+        catch (CancellationException e) {
+            notifyCompletedExceptionally(new PostFlight(flight, e));
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
             keepGoingFlightsRunner.set(false);
-            flightsRunnerDoneFuture.complete(null);
         }
     }
 
-    private void handleExecutionException(ExecutionException e, InFlight inFlight) {
-        Throwable cause = e;
-        while (cause.getCause() != null) {
-            cause = cause.getCause();
+    private void checkResume() {
+        if (inFlightWindow != null) {
+            int max = inFlightWindow.getMaxInFlight();
+            if (max != notifiedMaxInFlight) {
+                notifiedMaxInFlight = max;
+                notifyWindowChanged(max, inFlightWindow.getResumeAmount());
+            }
+        }
+
+        // if paused (not publishing), check if we can resume
+        if (!publishingNotPaused.get()) {
+            // once the inFlight size is LE the resume amount,
+            // we are allowed to resume (publish again)
+            int currentInFlight = currentInFlight();
+            if (currentInFlight <= getResumeAmount()) {
+                long pausedNanos = System.nanoTime() - pausedAt.get();
+                resume();
+                if (metrics != null) {
+                    metrics.resumed(pausedNanos);
+                }
+                notifyResumed(currentInFlight, pausedNanos);
+            }
+        }
+    }
+
+    private void recordAcked(InFlight flight) {
+        if (inFlightWindow != null || metrics != null) {
+            long ackNanos = System.nanoTime() - flight.publishedAt;
+            if (inFlightWindow != null) {
+                inFlightWindow.acked(ackNanos);
+            }
+            if (metrics != null) {
+                metrics.acked(ackNanos);
+            }
+        }
+    }
+
+    private void recordTimedOut() {
+        if (inFlightWindow != null) {
+            inFlightWindow.timedOut();
+        }
+        if (metrics != null) {
+            metrics.timedOut();
+        }
+    }
+
+    private void windowOverloaded() {
+        if (inFlightWindow != null) {
+            inFlightWindow.overloaded();
+        }
+    }
+
+    /**
+     * Wait for the flights runner to signal that publishing can resume.
+     * The wait is still limited to the publish pause time so the
+     * publish runner gets a chance to check whether it's been stopped.
+     */
+    private void awaitResume() throws InterruptedException {
+        pauseLock.lock();
+        try {
+            // checked under the lock, so a resume that happens before the await is never missed
+            if (!publishingNotPaused.get()) {
+                //noinspection ResultOfMethodCallIgnored
+                resumeCondition.await(publishPauseTime, TimeUnit.MILLISECONDS);
+            }
+        }
+        finally {
+            pauseLock.unlock();
         }
-        if (cause instanceof JetStreamApiException) {
-            if (cause.getMessage().contains("10060") // expected stream does not match [10060]
-                || (cause.getMessage().contains("10070")) // wrong last msg ID: [10070]
-                || (cause.getMessage().contains("10071")) // wrong last sequence: n [10071]
-            )
-            {
-                notifyCompletedExceptionally(new PostFlight(inFlight, false, true, cause));
+    }
+
+    private void resume() {
+        if (signalResume) {
+            pauseLock.lock();
+            try {
+                publishingNotPaused.set(true);
+                resumeCondition.signalAll();
             }
-            else {
-                notifyCompletedExceptionally(new PostFlight(inFlight, cause));
+            finally {
+                pauseLock.unlock();
             }
         }
-        else if (cause instanceof IOException) {
-            if (cause.getMessage().contains("Timeout or no response")) {
-                notifyTimeout(new PostFlight(inFlight, true, false, cause));
+        else {
+            publishingNotPaused.set(true);
+        }
+    }
+
+    /**
+     * Unbounded queues always accept the offer. A full ring buffer
+     * blocks the caller until the consumer of that ring makes room.
+     */
+    private static <T> void enqueue(BlockingQueue<T> queue, T item) {
+        if (!queue.offer(item)) {
+            try {
+                queue.put(item);
             }
-            else {
-                notifyCompletedExceptionally(new PostFlight(inFlight, cause));
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted waiting for queue capacity.", e);
             }
         }
     }
 
+    private void handleExecutionException(ExecutionException e, InFlight inFlight) {
+        Throwable cause = e;
+        while (cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (!(cause instanceof JetStreamApiException) && !(cause instanceof IOException)) {
+            return;
+        }
+        PublishErrorClass pec = PublishErrorClassifier.classify(cause);
+        if (PublishErrorClassifier.isOverloaded(pec)) {
+            windowOverloaded();
+        }
+        if (pec == PublishErrorClass.Timeout) {
+            recordTimedOut();
+            notifyTimeout(new PostFlight(inFlight, true, false, cause));
+        }
+        else if (pec == PublishErrorClass.ExpectationFailed) {
+            notifyCompletedExceptionally(new PostFlight(inFlight, false, true, cause));
+        }
+        else {
+            notifyCompletedExceptionally(new PostFlight(inFlight, cause));
+        }
+    }
+
+    private void flushNotifications() {
+        if (notifier != null) {
+            notifier.flush();
+        }
+    }
+
     private void notifyPublished(InFlight inFlight) {
-        if (publishListener != null) {
-            notificationExecutorService.submit(() -> publishListener.published(inFlight));
+        if (notifier != null && notifyPublished) {
+            notifier.published(inFlight);
         }
     }
 
     private void notifyCompletedExceptionally(PostFlight postFlight) {
-        if (publishListener != null) {
-            notificationExecutorService.submit(() -> publishListener.completedExceptionally(postFlight));
+        if (metrics != null) {
+            metrics.completedExceptionally();
+        }
+        if (notifier != null) {
+            notifier.completedExceptionally(postFlight);
         }
     }
 
     private void notifyCompleted(PostFlight postFlight) {
-        if (publishListener != null) {
-            notificationExecutorService.submit(() -> publishListener.acked(postFlight));
+        if (notifier != null) {
+            notifier.acked(postFlight);
         }
     }
 
     private void notifyTimeout(PostFlight postFlight) {
-        if (publishListener != null) {
-            notificationExecutorService.submit(() -> publishListener.timeout(postFlight));
+        if (notifier != null) {
+            notifier.timeout(postFlight);
         }
     }
 
     private void notifyPaused(int currentInFlight) {
         if (publishListener != null) {
-            notificationExecutorService.submit(() -> publishListener.paused(currentInFlight, maxInFlight, resumeAmount));
+            flushNotifications(); // so the listener sees the publishes before the pause
+            int max = getMaxInFlight();
+            int resume = getResumeAmount();
+            notificationExecutorService.submit(() -> publishListener.paused(currentInFlight, max, resume));
         }
     }
 
-    private void notifyResumed(int currentInFlight) {
+    private void notifyResumed(int currentInFlight, long pausedNanos) {
         if (publishListener != null) {
-            notificationExecutorService.submit(() -> publishListener.resumed(currentInFlight, maxInFlight, resumeAmount));
+            flushNotifications(); // so the listener sees the acks before the resume
+            int max = getMaxInFlight();
+            int resume = getResumeAmount();
+            notificationExecutorService.submit(() -> publishListener.resumed(currentInFlight, max, resume, Duration.ofNanos(pausedNanos)));
+        }
+    }
+
+    private void notifyWindowChanged(int maxInFlight, int resumeAmount) {
+        if (publishListener != null) {
+            flushNotifications();
+            notificationExecutorService.submit(() -> publishListener.windowChanged(maxInFlight, resumeAmount));
         }
     }
 
@@ -434,6 +921,7 @@ public class AsyncJsPublisher implements AutoCloseable {
     public static class Builder {
         JetStream js;
         Supplier<String> messageIdSupplier;
+        boolean messageIdHeader;
         int maxInFlight = DEFAULT_MAX_IN_FLIGHT;
         int resumeAmount = DEFAULT_RESUME_AMOUNT;
         PublishRetryConfig retryConfig;
@@ -441,8 +929,22 @@ public class AsyncJsPublisher implements AutoCloseable {
         long pollTime = DEFAULT_POLL_TIME;
         long publishPauseTime = DEFAULT_PUBLISH_PAUSE_TIME;
         long waitTimeout = DEFAULT_WAIT_TIMEOUT;
+        boolean signalResume;
         boolean processAcksInOrder = true;
         ExecutorService notificationExecutorService;
+        QueueMode queueMode = QueueMode.Linked;
+        AckMode ackMode = AckMode.InOrder;
+        int ringBufferCapacity = DEFAULT_RING_BUFFER_CAPACITY;
+        InFlightWindow inFlightWindow;
+        AsyncJsPublishMetrics metrics;
+        int notificationBatchSize = DEFAULT_NOTIFICATION_BATCH_SIZE;
+        boolean notifyPublished = true;
+        ThreadFactory threadFactory;
+        boolean virtualThreads;
+        Path spillDirectory;
+        int spillThreshold = DEFAULT_SPILL_THRESHOLD;
+        int spillSegmentSize = DEFAULT_SPILL_SEGMENT_SIZE;
+        boolean durableSpill;
 
         public Builder(JetStream js) {
             if (js == null) {
@@ -463,6 +965,22 @@ public class AsyncJsPublisher implements AutoCloseable {
             return this;
         }
 
+        /**
+         * Set the message id as the Nats-Msg-Id header of every message,
+         * so the server can detect duplicates, for instance when the publish is retried.
+         * The id is passed in the publish options when the message is published, so headers supplied
+         * with the message are neither modified nor copied, and one Headers instance can be reused across publishes.
+         * The client still builds the headers it sends from the supplied ones and the options.
+         * If the supplied headers already have a message id, it's used as is and as the message id of the flight.
+         * Defaults to false.
+         * @param messageIdHeader the flag
+         * @return the builder
+         */
+        public Builder messageIdHeader(boolean messageIdHeader) {
+            this.messageIdHeader = messageIdHeader;
+            return this;
+        }
+
         /**
          * The maximum number of messages that can be in flight.
          * Defaults to  {@value #DEFAULT_MAX_IN_FLIGHT}
@@ -491,6 +1009,30 @@ public class AsyncJsPublisher implements AutoCloseable {
             return this;
         }
 
+        /**
+         * An in flight window adjusts the max in flight and resume amount while publishing,
+         * based on ack latency, timeouts and overloaded responses, for instance an {@link AimdInFlightWindow}.
+         * When supplied, the max in flight and resume amount builder values are ignored.
+         * Since a small window pauses often, consider also setting {@link #signalResume(boolean)}.
+         * @param inFlightWindow the window
+         * @return the builder
+         */
+        public Builder inFlightWindow(InFlightWindow inFlightWindow) {
+            this.inFlightWindow = inFlightWindow;
+            return this;
+        }
+
+        /**
+         * Metrics receive latencies and counts directly from the runner threads,
+         * for instance a {@link DefaultAsyncJsPublishMetrics}.
+         * @param metrics the metrics
+         * @return the builder
+         */
+        public Builder metrics(AsyncJsPublishMetrics metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
         /**
          * If a retry config is supplied, the publish will be done using the supplied config.
          * If no retry config is supplied, the publish
@@ -538,6 +1080,19 @@ public class AsyncJsPublisher implements AutoCloseable {
             return this;
         }
 
+        /**
+         * When publishing is paused, wake the publish runner as soon as the in flight count
+         * drops to the resume amount, instead of checking every publish pause time.
+         * The publish pause time is still the longest the runner will wait between checks.
+         * Defaults to false.
+         * @param signalResume the flag
+         * @return the builder
+         */
+        public Builder signalResume(boolean signalResume) {
+            this.signalResume = signalResume;
+            return this;
+        }
+
         /**
          * The amount of time to poll the publish ack future to see if it's done.
          * Defaults to {@value #DEFAULT_WAIT_TIMEOUT}
@@ -571,6 +1126,146 @@ public class AsyncJsPublisher implements AutoCloseable {
             return this;
         }
 
+        /**
+         * The maximum number of flight events of the same kind delivered to the listener batch methods,
+         * for instance {@link AsyncJsPublishListener#ackedBatch(List)}, in one executor task.
+         * Events are handed off before the batch is full when a runner is about to wait,
+         * so a bigger batch does not hold back notifications when traffic is light.
+         * Defaults to {@value #DEFAULT_NOTIFICATION_BATCH_SIZE}, one task per event.
+         * @param notificationBatchSize the size
+         * @return the builder
+         */
+        public Builder notificationBatchSize(int notificationBatchSize) {
+            this.notificationBatchSize = notificationBatchSize < 1 ? DEFAULT_NOTIFICATION_BATCH_SIZE : notificationBatchSize;
+            return this;
+        }
+
+        /**
+         * Whether to notify the listener when a message is published.
+         * Turn this off if the listener doesn't need the published events.
+         * Defaults to true.
+         * @param notifyPublished the flag
+         * @return the builder
+         */
+        public Builder notifyPublished(boolean notifyPublished) {
+            this.notifyPublished = notifyPublished;
+            return this;
+        }
+
+        /**
+         * The factory for the threads {@link #start()} creates to run the publish and flights runners,
+         * also used for the notification executor if one isn't supplied.
+         * Takes precedence over virtual threads.
+         * @param threadFactory the factory
+         * @return the builder
+         */
+        public Builder threadFactory(ThreadFactory threadFactory) {
+            this.threadFactory = threadFactory;
+            return this;
+        }
+
+        /**
+         * Run the publish and flights runners, and the notification executor if one isn't supplied,
+         * on virtual threads. Only takes effect on a runtime that supports virtual threads (Java 21+),
+         * otherwise platform threads are used. Useful when an application runs many publishers.
+         * Defaults to false.
+         * @param virtualThreads the flag
+         * @return the builder
+         */
+        public Builder virtualThreads(boolean virtualThreads) {
+            this.virtualThreads = virtualThreads;
+            return this;
+        }
+
+        /**
+         * Turns on spilling to disk. Once more than the spill threshold of messages are waiting to be published,
+         * publishAsync appends further messages to memory mapped segment files in this directory,
+         * instead of holding them on the heap. Only the in flight future of a spilled message stays in memory.
+         * Spilled messages are published in order once the messages in memory have been published.
+         * @param spillDirectory the directory, which must not be used by another publisher
+         * @return the builder
+         */
+        public Builder spillDirectory(Path spillDirectory) {
+            this.spillDirectory = spillDirectory;
+            return this;
+        }
+
+        /**
+         * The number of messages waiting to be published in memory before messages are spilled to disk.
+         * With the {@link QueueMode#RingBuffer} queue mode, it's never more than the ring capacity.
+         * Only used when there is a spill directory.
+         * Defaults to {@value #DEFAULT_SPILL_THRESHOLD}
+         * @param spillThreshold the number of messages
+         * @return the builder
+         */
+        public Builder spillThreshold(int spillThreshold) {
+            this.spillThreshold = spillThreshold < 1 ? DEFAULT_SPILL_THRESHOLD : spillThreshold;
+            return this;
+        }
+
+        /**
+         * The size of each spill segment file. A message bigger than this gets a segment to itself.
+         * Only used when there is a spill directory.
+         * Defaults to {@value #DEFAULT_SPILL_SEGMENT_SIZE}
+         * @param spillSegmentSize the size in bytes
+         * @return the builder
+         */
+        public Builder spillSegmentSize(int spillSegmentSize) {
+            this.spillSegmentSize = spillSegmentSize < 1 ? DEFAULT_SPILL_SEGMENT_SIZE : spillSegmentSize;
+            return this;
+        }
+
+        /**
+         * Keep the spilled messages that were not published when the publisher is closed,
+         * and publish them first when a publisher is built over the same spill directory.
+         * The messages still waiting in memory when the publisher is closed are kept too,
+         * in front of the spilled ones, so the order is kept.
+         * A spilled message counts as published once it is handed to the JetStream context,
+         * so consider also setting {@link #messageIdHeader(boolean)} so the server removes duplicates.
+         * Only used when there is a spill directory.
+         * Defaults to false, the spill directory is cleared when the publisher is built and closed.
+         * @param durableSpill the flag
+         * @return the builder
+         */
+        public Builder durableSpill(boolean durableSpill) {
+            this.durableSpill = durableSpill;
+            return this;
+        }
+
+        /**
+         * The type of queues used to hold messages waiting to be published and messages in flight.
+         * Defaults to {@link QueueMode#Linked}
+         * @param queueMode the mode
+         * @return the builder
+         */
+        public Builder queueMode(QueueMode queueMode) {
+            this.queueMode = queueMode == null ? QueueMode.Linked : queueMode;
+            return this;
+        }
+
+        /**
+         * How the flights runner processes publish acks.
+         * Defaults to {@link AckMode#InOrder}
+         * @param ackMode the mode
+         * @return the builder
+         */
+        public Builder ackMode(AckMode ackMode) {
+            this.ackMode = ackMode == null ? AckMode.InOrder : ackMode;
+            return this;
+        }
+
+        /**
+         * The number of messages the pre-flight ring can hold when the queue mode is {@link QueueMode#RingBuffer}.
+         * Rounded up to a power of 2. Once the ring is full, publishAsync blocks until there is room.
+         * Defaults to {@value #DEFAULT_RING_BUFFER_CAPACITY}
+         * @param ringBufferCapacity the capacity
+         * @return the builder
+         */
+        public Builder ringBufferCapacity(int ringBufferCapacity) {
+            this.ringBufferCapacity = ringBufferCapacity < 1 ? DEFAULT_RING_BUFFER_CAPACITY : ringBufferCapacity;
+            return this;
+        }
+
         /**
          * Builds a AsyncJsPublisher without starting it, for instance to delay its start or to use custom threads
          * @return AsyncJsPublisher instance
@@ -603,8 +1298,24 @@ public class AsyncJsPublisher implements AutoCloseable {
             throw new IllegalStateException("Cannot publish once stopped.");
         }
 
-        PreFlight p = new PreFlight(messageIdSupplier.get(), subject, headers, body);
-        preFlight.offer(p);
+        // the caller's headers are kept as is, they may be reused for the next message.
+        // The id header is added by the publish runner, see messageIdOptions
+        String messageId = messageIdHeader && headers != null ? headers.getFirst(MSG_ID_HDR) : null;
+        PreFlight p = new PreFlight(messageId == null ? messageIdSupplier.get() : messageId, subject, headers, body,
+            new CompletableFuture<>(), metrics == null ? 0 : System.nanoTime());
+
+        // once anything is spilled, keep spilling until the spill is drained, so order is kept
+        if (spill != null && (!spill.isEmpty() || preFlight.size() >= spillThreshold)) {
+            try {
+                spill.append(p);
+            }
+            catch (IOException e) {
+                throw new IllegalStateException("Unable to spill the message to disk.", e);
+            }
+        }
+        else {
+            enqueue(preFlight, p);
+        }
         return p;
     }
 
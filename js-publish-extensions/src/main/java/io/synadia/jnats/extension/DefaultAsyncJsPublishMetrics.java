@@ -0,0 +1,120 @@
+// Copyright (c) 2024-2025 Synadia Communications Inc. All Rights Reserved.
+// See LICENSE and NOTICE file for details.
+
+package io.synadia.jnats.extension;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Publish metrics kept in lock free histograms and counters.
+ * One instance can be shared by several publishers, for instance the shards of a {@link ShardedAsyncJsPublisher}.
+ * All times are in nanoseconds.
+ */
+public class DefaultAsyncJsPublishMetrics implements AsyncJsPublishMetrics {
+    private final LatencyHistogram ackLatency = new LatencyHistogram();
+    private final LatencyHistogram preFlightTime = new LatencyHistogram();
+    private final LatencyHistogram pausedTime = new LatencyHistogram();
+    private final LongAdder published = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder completedExceptionally = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder paused = new LongAdder();
+
+    @Override
+    public void published(long preFlightNanos) {
+        published.increment();
+        preFlightTime.record(preFlightNanos);
+    }
+
+    @Override
+    public void acked(long ackNanos) {
+        ackLatency.record(ackNanos);
+    }
+
+    @Override
+    public void timedOut() {
+        timedOut.increment();
+    }
+
+    @Override
+    public void completedExceptionally() {
+        completedExceptionally.increment();
+    }
+
+    @Override
+    public void retried() {
+        retried.increment();
+    }
+
+    @Override
+    public void paused() {
+        paused.increment();
+    }
+
+    @Override
+    public void resumed(long pausedNanos) {
+        pausedTime.record(pausedNanos);
+    }
+
+    /**
+     * The time from publish to ack of acked messages. Its count is the number of acked messages.
+     * @return the histogram
+     */
+    public LatencyHistogram getAckLatency() {
+        return ackLatency;
+    }
+
+    /**
+     * The time messages waited to be published
+     * @return the histogram
+     */
+    public LatencyHistogram getPreFlightTime() {
+        return preFlightTime;
+    }
+
+    /**
+     * How long each pause lasted
+     * @return the histogram
+     */
+    public LatencyHistogram getPausedTime() {
+        return pausedTime;
+    }
+
+    public long getPublishedCount() {
+        return published.sum();
+    }
+
+    public long getAckedCount() {
+        return ackLatency.getCount();
+    }
+
+    public long getTimedOutCount() {
+        return timedOut.sum();
+    }
+
+    public long getCompletedExceptionallyCount() {
+        return completedExceptionally.sum();
+    }
+
+    public long getRetriedCount() {
+        return retried.sum();
+    }
+
+    public long getPausedCount() {
+        return paused.sum();
+    }
+
+    /**
+     * Clear all the metrics, for instance to measure per interval
+     */
+    public void reset() {
+        ackLatency.reset();
+        preFlightTime.reset();
+        pausedTime.reset();
+        published.reset();
+        timedOut.reset();
+        completedExceptionally.reset();
+        retried.reset();
+        paused.reset();
+    }
+}
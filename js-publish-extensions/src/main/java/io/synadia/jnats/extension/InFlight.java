@@ -15,10 +15,26 @@ import java.util.concurrent.CompletableFuture;
 public class InFlight {
     public final CompletableFuture<PublishAck> publishAckFuture;
     public final PreFlight preFlight;
+    public final long publishedAt;
+
+    // bookkeeping for the completion ack mode, only touched by the flights runner
+    static final int QUEUED = 0;
+    static final int ON_WHEEL = 1;
+    static final int SETTLED = 2;
+    int wheelState;
+    long wheelRounds;
+    int wheelBucket;
+    InFlight wheelPrev;
+    InFlight wheelNext;
 
     public InFlight(CompletableFuture<PublishAck> publishAckFuture, PreFlight preFlight) {
+        this(publishAckFuture, preFlight, System.nanoTime());
+    }
+
+    InFlight(CompletableFuture<PublishAck> publishAckFuture, PreFlight preFlight, long publishedAt) {
         this.publishAckFuture = publishAckFuture;
         this.preFlight = preFlight;
+        this.publishedAt = publishedAt;
     }
 
     public CompletableFuture<PublishAck> getPublishAckFuture() {
@@ -41,6 +57,16 @@ public class InFlight {
         return preFlight.body;
     }
 
+    /**
+     * The {@link System#nanoTime()} when the message was published.
+     * The AsyncJsPublisher only takes the time when it needs it, for metrics, the in flight window
+     * or the completion ack mode's timeouts, otherwise it is 0
+     * @return the nano time
+     */
+    public long getPublishedAt() {
+        return publishedAt;
+    }
+
     public CompletableFuture<InFlight> getFlightFuture() {
         return preFlight.inFlightFuture;
     }
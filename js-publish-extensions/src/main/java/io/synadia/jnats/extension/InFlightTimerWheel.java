@@ -0,0 +1,124 @@
+// Copyright (c) 2024-2025 Synadia Communications Inc. All Rights Reserved.
+// See LICENSE and NOTICE file for details.
+
+package io.synadia.jnats.extension;
+
+import java.util.function.Consumer;
+
+/**
+ * A hashed timer wheel that tracks when in flight messages time out.
+ * Scheduling and cancelling are O(1) and the links are kept on the
+ * InFlight itself, so there is no allocation per message.
+ * Not thread safe, it is owned by the flights runner.
+ */
+class InFlightTimerWheel {
+    static final int DEFAULT_WHEEL_SIZE = 512;
+
+    private final long tickNanos;
+    private final int mask;
+    private final InFlight[] buckets;
+    private final long startNanos;
+    private long nextTick;
+    private int size;
+
+    InFlightTimerWheel(long tickNanos, int wheelSize, long startNanos) {
+        this.tickNanos = Math.max(1, tickNanos);
+        int buckets = RingBufferQueue.powerOfTwoAtLeast(wheelSize);
+        this.mask = buckets - 1;
+        this.buckets = new InFlight[buckets];
+        this.startNanos = startNanos;
+        nextTick = 0;
+        size = 0;
+    }
+
+    long getTickNanos() {
+        return tickNanos;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Put the flight on the wheel to expire at the deadline.
+     * A deadline that has already passed expires on the current or next tick
+     * @param flight the flight
+     * @param deadlineNanos the {@link System#nanoTime()} when the flight times out
+     */
+    void schedule(InFlight flight, long deadlineNanos) {
+        long tick = Math.max(nextTick, (deadlineNanos - startNanos + tickNanos - 1) / tickNanos);
+        flight.wheelRounds = (tick - nextTick) / buckets.length;
+        int ix = (int)(tick & mask);
+        flight.wheelBucket = ix;
+        flight.wheelPrev = null;
+        flight.wheelNext = buckets[ix];
+        if (buckets[ix] != null) {
+            buckets[ix].wheelPrev = flight;
+        }
+        buckets[ix] = flight;
+        flight.wheelState = InFlight.ON_WHEEL;
+        size++;
+    }
+
+    /**
+     * Take the flight off the wheel
+     * @param flight the flight
+     * @return true if the flight was on the wheel
+     */
+    boolean cancel(InFlight flight) {
+        if (flight.wheelState != InFlight.ON_WHEEL) {
+            return false;
+        }
+        unlink(flight);
+        return true;
+    }
+
+    /**
+     * Expire every flight whose deadline is at or before now
+     * @param nowNanos the current {@link System#nanoTime()}
+     * @param expired receives each expired flight, already removed from the wheel
+     */
+    void expire(long nowNanos, Consumer<InFlight> expired) {
+        long lastTick = (nowNanos - startNanos) / tickNanos;
+        if (size == 0) {
+            // nothing to visit, just catch up, but leave the current tick
+            // unvisited so a late deadline scheduled now can expire right away
+            nextTick = Math.max(nextTick, lastTick);
+            return;
+        }
+        while (nextTick <= lastTick && size > 0) {
+            InFlight flight = buckets[(int)(nextTick & mask)];
+            while (flight != null) {
+                InFlight next = flight.wheelNext;
+                if (flight.wheelRounds <= 0) {
+                    unlink(flight);
+                    expired.accept(flight);
+                }
+                else {
+                    flight.wheelRounds--;
+                }
+                flight = next;
+            }
+            nextTick++;
+        }
+        if (size == 0) {
+            nextTick = Math.max(nextTick, lastTick);
+        }
+    }
+
+    private void unlink(InFlight flight) {
+        if (flight.wheelPrev == null) {
+            buckets[flight.wheelBucket] = flight.wheelNext;
+        }
+        else {
+            flight.wheelPrev.wheelNext = flight.wheelNext;
+        }
+        if (flight.wheelNext != null) {
+            flight.wheelNext.wheelPrev = flight.wheelPrev;
+        }
+        flight.wheelPrev = null;
+        flight.wheelNext = null;
+        flight.wheelState = InFlight.SETTLED;
+        size--;
+    }
+}
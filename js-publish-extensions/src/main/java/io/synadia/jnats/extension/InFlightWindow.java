@@ -0,0 +1,48 @@
+// Copyright (c) 2024-2025 Synadia Communications Inc. All Rights Reserved.
+// See LICENSE and NOTICE file for details.
+
+package io.synadia.jnats.extension;
+
+/**
+ * Controls the in flight limits of an {@link AsyncJsPublisher} while it runs,
+ * replacing the static max in flight and resume amount builder values.
+ * The feedback methods are only called from the flights runner thread,
+ * but the getters are also read from the publish runner thread,
+ * so implementations must publish changes safely, for instance with volatile fields.
+ */
+public interface InFlightWindow {
+    /**
+     * The current number of in flight messages when publishing will be paused
+     * @return the value
+     */
+    int getMaxInFlight();
+
+    /**
+     * The current number of in flight messages when publishing will resume after being paused
+     * @return the value
+     */
+    int getResumeAmount();
+
+    /**
+     * The largest value {@link #getMaxInFlight()} can ever return.
+     * Used to size bounded in flight queues.
+     * @return the value
+     */
+    int getUpperLimit();
+
+    /**
+     * A message was acked
+     * @param latencyNanos the time from publish to ack in nanoseconds
+     */
+    void acked(long latencyNanos);
+
+    /**
+     * A message timed out waiting for its ack
+     */
+    void timedOut();
+
+    /**
+     * The server pushed back, for instance a 503 No Responders or a 429 Too Many Requests
+     */
+    void overloaded();
+}
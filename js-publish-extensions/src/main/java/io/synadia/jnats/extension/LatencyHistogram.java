@@ -0,0 +1,134 @@
+// Copyright (c) 2024-2025 Synadia Communications Inc. All Rights Reserved.
+// See LICENSE and NOTICE file for details.
+
+package io.synadia.jnats.extension;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock free histogram of non-negative values, for instance latencies in nanoseconds.
+ * Like an HdrHistogram, values are counted in log linear buckets: each power of 2 range is split
+ * into 16 equal buckets, so a value read back from the histogram is within about 6% of the recorded one,
+ * at any magnitude, in a fixed 960 bucket array.
+ * Recording is a few atomic adds. Reading is not a consistent snapshot while values are being recorded,
+ * which is fine for monitoring.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BITS = 5;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int HALF_SUB_COUNT = SUB_COUNT / 2;
+    private static final int BUCKETS = SUB_COUNT + (63 - SUB_BITS) * HALF_SUB_COUNT;
+
+    private final AtomicLongArray counts;
+    private final AtomicLong count;
+    private final AtomicLong sum;
+    private final AtomicLong max;
+
+    public LatencyHistogram() {
+        counts = new AtomicLongArray(BUCKETS);
+        count = new AtomicLong();
+        sum = new AtomicLong();
+        max = new AtomicLong();
+    }
+
+    /**
+     * Record a value. Negative values are recorded as 0.
+     * @param value the value
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts.incrementAndGet(bucket(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+        long m = max.get();
+        while (value > m && !max.compareAndSet(m, value)) {
+            m = max.get();
+        }
+    }
+
+    /**
+     * The number of values recorded
+     * @return the count
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * The largest value recorded, exactly
+     * @return the value or 0 if nothing was recorded
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * The mean of the values recorded, exactly
+     * @return the mean or 0 if nothing was recorded
+     */
+    public double getMean() {
+        long c = count.get();
+        return c == 0 ? 0 : (double)sum.get() / c;
+    }
+
+    /**
+     * The value at a percentile, for instance 99.9
+     * @param percentile the percentile from 0 to 100
+     * @return the highest value in the bucket holding the percentile, or 0 if nothing was recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        long total = 0;
+        long[] snapshot = new long[BUCKETS];
+        for (int ix = 0; ix < BUCKETS; ix++) {
+            snapshot[ix] = counts.get(ix);
+            total += snapshot[ix];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long)Math.ceil(total * Math.min(100, Math.max(0, percentile)) / 100));
+        long seen = 0;
+        for (int ix = 0; ix < BUCKETS; ix++) {
+            seen += snapshot[ix];
+            if (seen >= target) {
+                return Math.min(highestValue(ix), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Clear all the recorded values
+     */
+    public void reset() {
+        for (int ix = 0; ix < BUCKETS; ix++) {
+            counts.set(ix, 0);
+        }
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+    static int bucket(long value) {
+        if (value < SUB_COUNT) {
+            return (int)value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BITS - 1);
+        int sub = (int)(value >>> shift); // between HALF_SUB_COUNT and SUB_COUNT - 1
+        return SUB_COUNT + (shift - 1) * HALF_SUB_COUNT + (sub - HALF_SUB_COUNT);
+    }
+
+    static long highestValue(int bucket) {
+        if (bucket < SUB_COUNT) {
+            return bucket;
+        }
+        int k = bucket - SUB_COUNT;
+        int shift = k / HALF_SUB_COUNT + 1;
+        long sub = k % HALF_SUB_COUNT + HALF_SUB_COUNT;
+        long next = (sub + 1) << shift;
+        return next <= 0 ? Long.MAX_VALUE : next - 1;
+    }
+}
@@ -0,0 +1,58 @@
+// Copyright (c) 2024-2025 Synadia Communications Inc. All Rights Reserved.
+// See LICENSE and NOTICE file for details.
+
+package io.synadia.jnats.extension;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * The default message id supplier, generating prefix-counter ids.
+ * Each thread writes the counter digits after the prefix in its own reused char buffer,
+ * so the only allocation per id is the resulting string.
+ */
+class MessageIdGenerator implements Supplier<String> {
+    private static final int MAX_DIGITS = 19; // Long.MAX_VALUE
+
+    private final char[] prefix;
+    private final AtomicLong counter;
+    private final ThreadLocal<char[]> buffers;
+
+    MessageIdGenerator(String prefix) {
+        this(prefix, 0);
+    }
+
+    MessageIdGenerator(String prefix, long start) {
+        this.prefix = (prefix + "-").toCharArray();
+        counter = new AtomicLong(start);
+        buffers = ThreadLocal.withInitial(() -> {
+            char[] buffer = new char[this.prefix.length + MAX_DIGITS];
+            System.arraycopy(this.prefix, 0, buffer, 0, this.prefix.length);
+            return buffer;
+        });
+    }
+
+    @Override
+    public String get() {
+        long n = counter.incrementAndGet();
+        char[] buffer = buffers.get();
+        int len = prefix.length + digits(n);
+        int pos = len;
+        do {
+            buffer[--pos] = (char)('0' + (n % 10));
+            n /= 10;
+        } while (n > 0);
+        return new String(buffer, 0, len);
+    }
+
+    private static int digits(long n) {
+        long p = 10;
+        for (int d = 1; d < MAX_DIGITS; d++) {
+            if (n < p) {
+                return d;
+            }
+            p *= 10;
+        }
+        return MAX_DIGITS;
+    }
+}
@@ -0,0 +1,95 @@
+// Copyright (c) 2024-2025 Synadia Communications Inc. All Rights Reserved.
+// See LICENSE and NOTICE file for details.
+
+package io.synadia.jnats.extension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Collects flight events into lists and hands each list to the listener as one executor task.
+ * A list only ever holds one kind of event, it's handed off when it's full, when the kind of event
+ * changes, or when the owner flushes, so the listener still sees the events in the order they happened.
+ * Thread safe, the publish and flights runners share one batcher, so an event recorded by one runner
+ * is never handed off ahead of an event the other recorded earlier.
+ */
+class NotificationBatcher {
+    private static final int PUBLISHED = 0;
+    private static final int ACKED = 1;
+    private static final int COMPLETED_EXCEPTIONALLY = 2;
+    private static final int TIMEOUT = 3;
+
+    private final AsyncJsPublishListener listener;
+    private final Executor executor;
+    private final int batchSize;
+
+    private int kind;
+    private List<Object> events;
+
+    NotificationBatcher(AsyncJsPublishListener listener, Executor executor, int batchSize) {
+        this.listener = listener;
+        this.executor = executor;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    void published(InFlight flight) {
+        add(PUBLISHED, flight);
+    }
+
+    void acked(PostFlight flight) {
+        add(ACKED, flight);
+    }
+
+    void completedExceptionally(PostFlight flight) {
+        add(COMPLETED_EXCEPTIONALLY, flight);
+    }
+
+    void timeout(PostFlight flight) {
+        add(TIMEOUT, flight);
+    }
+
+    /**
+     * Hand off whatever has been collected so far
+     */
+    synchronized void flush() {
+        if (events != null) {
+            List<Object> batch = events;
+            int batchKind = kind;
+            events = null;
+            executor.execute(() -> deliver(batchKind, batch));
+        }
+    }
+
+    private synchronized void add(int eventKind, Object event) {
+        if (events != null && kind != eventKind) {
+            flush();
+        }
+        if (events == null) {
+            kind = eventKind;
+            events = new ArrayList<>(batchSize);
+        }
+        events.add(event);
+        if (events.size() >= batchSize) {
+            flush();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void deliver(int batchKind, List<?> batch) {
+        switch (batchKind) {
+            case PUBLISHED:
+                listener.publishedBatch((List<InFlight>)batch);
+                break;
+            case ACKED:
+                listener.ackedBatch((List<PostFlight>)batch);
+                break;
+            case COMPLETED_EXCEPTIONALLY:
+                listener.completedExceptionallyBatch((List<PostFlight>)batch);
+                break;
+            case TIMEOUT:
+                listener.timeoutBatch((List<PostFlight>)batch);
+                break;
+        }
+    }
+}
@@ -18,13 +18,19 @@ public class PreFlight {
     public final Headers headers;
     public final byte[] body;
     public final CompletableFuture<InFlight> inFlightFuture;
+    public final long queuedAt;
 
     public PreFlight(String messageId, String subject, Headers headers, byte[] body) {
+        this(messageId, subject, headers, body, new CompletableFuture<>(), System.nanoTime());
+    }
+
+    PreFlight(String messageId, String subject, Headers headers, byte[] body, CompletableFuture<InFlight> inFlightFuture, long queuedAt) {
         this.messageId = messageId;
         this.subject = subject;
         this.headers = headers;
         this.body = body;
-        inFlightFuture = new CompletableFuture<>();
+        this.inFlightFuture = inFlightFuture;
+        this.queuedAt = queuedAt;
     }
 
     protected PreFlight(PreFlight preFlight) {
@@ -33,6 +39,7 @@ public class PreFlight {
         this.headers = preFlight.headers;
         this.body = preFlight.body;
         inFlightFuture = preFlight.inFlightFuture;
+        queuedAt = preFlight.queuedAt;
     }
 
     public String getMessageId() {
@@ -55,6 +62,15 @@ public class PreFlight {
         return inFlightFuture;
     }
 
+    /**
+     * When publishAsync was called, from {@link System#nanoTime()}.
+     * The AsyncJsPublisher only takes the time when it has metrics, otherwise it is 0
+     * @return the time in nanoseconds
+     */
+    public long getQueuedAt() {
+        return queuedAt;
+    }
+
     @Override
     public String toString() {
         return "PreFlight{" +
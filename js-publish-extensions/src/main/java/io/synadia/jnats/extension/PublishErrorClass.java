@@ -0,0 +1,55 @@
+// Copyright (c) 2024-2025 Synadia Communications Inc. All Rights Reserved.
+// See LICENSE and NOTICE file for details.
+
+package io.synadia.jnats.extension;
+
+/**
+ * The kinds of publish failures, see {@link PublishErrorClassifier}
+ */
+public enum PublishErrorClass {
+    /**
+     * A 429 Too Many Requests status
+     */
+    TooManyRequests,
+
+    /**
+     * A 503 No Responders status, no server was there to take the publish
+     */
+    NoResponders,
+
+    /**
+     * No ack arrived in time
+     */
+    Timeout,
+
+    /**
+     * The server rejected a publish expectation: expected stream,
+     * expected last message id or expected last sequence
+     */
+    ExpectationFailed,
+
+    /**
+     * The server is overloaded or temporarily unavailable, an api error with a 503 or 429 status
+     */
+    Unavailable,
+
+    /**
+     * Any other api error
+     */
+    ApiError,
+
+    /**
+     * Any other IOException, like a disconnect
+     */
+    Io,
+
+    /**
+     * Any other RuntimeException
+     */
+    Runtime,
+
+    /**
+     * Anything else
+     */
+    Other
+}
@@ -0,0 +1,148 @@
+// Copyright (c) 2024-2025 Synadia Communications Inc. All Rights Reserved.
+// See LICENSE and NOTICE file for details.
+
+package io.synadia.jnats.extension;
+
+import io.nats.client.JetStreamApiException;
+import io.nats.client.JetStreamStatusException;
+import io.nats.client.support.Status;
+
+import java.io.IOException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Classifies publish failures by their status code and api error code, without allocating.
+ * Api errors are classified by their codes. The client surfaces statuses as an IOException
+ * whose message starts with the status code, which is read in place.
+ */
+public final class PublishErrorClassifier {
+    private PublishErrorClassifier() {}  /* ensures cannot be constructed */
+
+    public static final int STATUS_TOO_MANY_REQUESTS = 429;
+    public static final int STATUS_NO_RESPONDERS = 503;
+    public static final int STATUS_REQUEST_TIMEOUT = 408;
+
+    public static final int API_STREAM_NOT_MATCH = 10060;
+    public static final int API_WRONG_LAST_MSG_ID = 10070;
+    public static final int API_WRONG_LAST_SEQUENCE = 10071;
+    public static final int API_WRONG_LAST_SEQUENCE_CONSTANT = 10164;
+
+    static final String TIMEOUT_PREFIX = "Timeout or no response";
+    static final String PUBLISH_STATUS_PREFIX = "Error Publishing: ";
+    static final String TOO_MANY_REQUESTS_TEXT = "Too Many Requests";
+    static final String NO_RESPONDERS_TEXT = "No Responders";
+
+    /**
+     * Classify a publish failure. A CompletionException or ExecutionException is classified by its cause,
+     * as is a plain RuntimeException around an IOException or JetStreamApiException, the way the async publish wraps them.
+     * @param t the failure
+     * @return the class
+     */
+    public static PublishErrorClass classify(Throwable t) {
+        while ((t instanceof CompletionException || t instanceof ExecutionException
+            || (t != null && t.getClass() == RuntimeException.class
+                && (t.getCause() instanceof IOException || t.getCause() instanceof JetStreamApiException)))
+            && t.getCause() != null)
+        {
+            t = t.getCause();
+        }
+        if (t instanceof JetStreamApiException) {
+            JetStreamApiException jsae = (JetStreamApiException)t;
+            return classify(jsae.getErrorCode(), jsae.getApiErrorCode());
+        }
+        if (t instanceof IOException) {
+            return classifyIoMessage(t.getMessage());
+        }
+        if (t instanceof JetStreamStatusException) {
+            Status status = ((JetStreamStatusException)t).getStatus();
+            if (status != null) {
+                PublishErrorClass pec = classifyStatus(status.getCode());
+                if (pec != null) {
+                    return pec;
+                }
+            }
+        }
+        if (t instanceof RuntimeException) {
+            return PublishErrorClass.Runtime;
+        }
+        return PublishErrorClass.Other;
+    }
+
+    /**
+     * Classify an api error
+     * @param statusCode the status code, for instance 503
+     * @param apiErrorCode the api error code, for instance 10071
+     * @return the class
+     */
+    public static PublishErrorClass classify(int statusCode, int apiErrorCode) {
+        switch (apiErrorCode) {
+            case API_STREAM_NOT_MATCH:
+            case API_WRONG_LAST_MSG_ID:
+            case API_WRONG_LAST_SEQUENCE:
+            case API_WRONG_LAST_SEQUENCE_CONSTANT:
+                return PublishErrorClass.ExpectationFailed;
+        }
+        if (statusCode == STATUS_NO_RESPONDERS || statusCode == STATUS_TOO_MANY_REQUESTS) {
+            return PublishErrorClass.Unavailable;
+        }
+        return PublishErrorClass.ApiError;
+    }
+
+    /**
+     * Whether the failure means the server is pushing back and publishing should slow down
+     * @param pec the class
+     * @return true for Too Many Requests, No Responders and Unavailable
+     */
+    public static boolean isOverloaded(PublishErrorClass pec) {
+        return pec == PublishErrorClass.TooManyRequests
+            || pec == PublishErrorClass.NoResponders
+            || pec == PublishErrorClass.Unavailable;
+    }
+
+    static PublishErrorClass classifyIoMessage(String message) {
+        if (message == null) {
+            return PublishErrorClass.Io;
+        }
+        if (message.startsWith(TIMEOUT_PREFIX)) {
+            return PublishErrorClass.Timeout;
+        }
+        int start = PUBLISH_STATUS_PREFIX.length();
+        if (message.startsWith(PUBLISH_STATUS_PREFIX) && message.length() >= start + 3) {
+            int code = statusDigits(message, start);
+            if (code != -1) {
+                PublishErrorClass pec = classifyStatus(code);
+                return pec == null ? PublishErrorClass.Io : pec;
+            }
+        }
+        // messages from client versions that word statuses differently
+        if (message.contains(TOO_MANY_REQUESTS_TEXT)) {
+            return PublishErrorClass.TooManyRequests;
+        }
+        if (message.contains(NO_RESPONDERS_TEXT)) {
+            return PublishErrorClass.NoResponders;
+        }
+        return PublishErrorClass.Io;
+    }
+
+    private static PublishErrorClass classifyStatus(int statusCode) {
+        switch (statusCode) {
+            case STATUS_TOO_MANY_REQUESTS: return PublishErrorClass.TooManyRequests;
+            case STATUS_NO_RESPONDERS: return PublishErrorClass.NoResponders;
+            case STATUS_REQUEST_TIMEOUT: return PublishErrorClass.Timeout;
+        }
+        return null;
+    }
+
+    private static int statusDigits(String s, int start) {
+        int code = 0;
+        for (int i = start; i < start + 3; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            code = code * 10 + (c - '0');
+        }
+        return code;
+    }
+}
@@ -4,26 +4,22 @@
 package io.synadia.jnats.extension;
 
 import io.nats.client.JetStream;
-import io.nats.client.JetStreamApiException;
 import io.nats.client.Message;
 import io.nats.client.PublishOptions;
 import io.nats.client.api.PublishAck;
 import io.nats.client.impl.Headers;
 
-import java.io.IOException;
 import java.util.concurrent.CompletableFuture;
 
 import static io.synadia.jnats.extension.PublishRetryConfig.DEFAULT_CONFIG;
 import static io.synadia.retrier.Retrier.execute;
+import static io.synadia.retrier.Retrier.executeAsync;
 
 /**
  * The Publish Retrier provides methods which are built specifically for JetStream publishing.
  */
 public class PublishRetrier {
 
-    private static final String TOO_MANY_REQUESTS_TEXT = "Too Many Requests";
-    private static final String NO_RESPONDERS_TEXT = "No Responders";
-
     private PublishRetrier() {}  /* ensures cannot be constructed */
 
     /**
@@ -39,31 +35,27 @@ public class PublishRetrier {
      * @throws Exception various communication issues with the NATS server; only thrown if all retries failed.
      */
     public static PublishAck publish(PublishRetryConfig config, JetStream js, String subject, Headers headers, byte[] body, PublishOptions options) throws Exception {
+        return publish(config, js, subject, headers, body, options, null);
+    }
+
+    /**
+     * Publish with retry, running the retried callback each time a failed attempt is allowed to retry.
+     */
+    static PublishAck publish(PublishRetryConfig config, JetStream js, String subject, Headers headers, byte[] body, PublishOptions options, Runnable retried) throws Exception {
         return execute(config.retryConfig,
-            () -> js.publish(subject, headers, body, options), e -> {
-                if (config.retryAll) {
-                    return true;
-                }
-                if (e instanceof IOException) {
-                    // Too Many Requests and No responders are both actually surfaced
-                    // as an IOException but we are treating them each as their own entity.
-                    // This means if we get that specific exception, we return whether to
-                    // retry matching their specific config flag
-                    if (e.getMessage().contains(TOO_MANY_REQUESTS_TEXT)) {
-                        return config.retryOnTooManyRequests;
-                    }
-                    if (e.getMessage().contains(NO_RESPONDERS_TEXT)) {
-                        return config.retryOnNoResponders;
-                    }
-                    if (config.retryOnIoEx) {
-                        return true;
-                    }
-                }
-                if (config.retryOnJetStreamApiEx && e instanceof JetStreamApiException) {
-                    return true;
-                }
-                return config.retryOnRuntimeEx && e instanceof RuntimeException;
-            });
+            () -> js.publish(subject, headers, body, options), e -> shouldRetry(config, e, retried));
+    }
+
+    private static boolean shouldRetry(PublishRetryConfig config, Exception e, Runnable retried) {
+        boolean retry = shouldRetry(config, e);
+        if (retry && retried != null) {
+            retried.run();
+        }
+        return retry;
+    }
+
+    private static boolean shouldRetry(PublishRetryConfig config, Exception e) {
+        return config.shouldRetry(PublishErrorClassifier.classify(e));
     }
 
     /**
@@ -219,8 +211,10 @@ public class PublishRetrier {
     }
 
     /**
-     * Send a message to the specified subject, executing in a future. Waits for a response from Jetstream,
+     * Send a message to the specified subject asynchronously,
      * retrying until the ack is received or the retry config is exhausted.
+     * No thread waits between attempts, retries are scheduled, see {@link io.synadia.retrier.Retrier#executeAsync}.
+     * The future completes exceptionally with the failure of the last attempt.
      * @param config The custom retry config
      * @param js the JetStream context
      * @param subject the subject to send the message to
@@ -230,14 +224,15 @@ public class PublishRetrier {
      * @return The future
      */
     public static CompletableFuture<PublishAck> publishAsync(PublishRetryConfig config, JetStream js, String subject, Headers headers, byte[] body, PublishOptions options) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                return publish(config, js, subject, headers, body, options);
-            }
-            catch (Exception e) {
-                throw new RuntimeException(e);
-            }
-        });
+        return publishAsync(config, js, subject, headers, body, options, null);
+    }
+
+    /**
+     * Publish async with retry, running the retried callback each time a failed attempt is allowed to retry.
+     */
+    static CompletableFuture<PublishAck> publishAsync(PublishRetryConfig config, JetStream js, String subject, Headers headers, byte[] body, PublishOptions options, Runnable retried) {
+        return executeAsync(config.retryConfig,
+            () -> js.publishAsync(subject, headers, body, options), e -> shouldRetry(config, e, retried));
     }
 
     /**
@@ -3,12 +3,17 @@
 
 package io.synadia.jnats.extension;
 
+import io.synadia.retrier.BackoffStrategy;
+import io.synadia.retrier.CircuitBreaker;
+import io.synadia.retrier.RetryBudget;
 import io.synadia.retrier.RetryConfig;
 
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * A class to config how publish retries are executed.
@@ -42,7 +47,14 @@ public class PublishRetryConfig {
     public final boolean retryOnJetStreamApiEx;
     public final boolean retryOnRuntimeEx;
 
+    // indexed by PublishErrorClass ordinal
+    private final boolean[] retryByErrorClass;
+
     public PublishRetryConfig(RetryConfig retryConfig, List<RetryCondition> retryConditions) {
+        this(retryConfig, retryConditions, null);
+    }
+
+    PublishRetryConfig(RetryConfig retryConfig, List<RetryCondition> retryConditions, Set<PublishErrorClass> retryErrorClasses) {
         this.retryConfig = retryConfig;
         retryOnTooManyRequests = retryConditions.contains(RetryCondition.TooManyRequests);
         retryOnNoResponders = retryConditions.contains(RetryCondition.NoResponders);
@@ -50,6 +62,33 @@ public class PublishRetryConfig {
         retryOnJetStreamApiEx = retryConditions.contains(RetryCondition.JetStreamApiEx);
         retryOnRuntimeEx = retryConditions.contains(RetryCondition.RuntimeEx);
         retryAll = retryOnTooManyRequests && retryOnNoResponders && retryOnIoEx && retryOnJetStreamApiEx && retryOnRuntimeEx;
+
+        retryByErrorClass = new boolean[PublishErrorClass.values().length];
+        if (retryErrorClasses == null) {
+            retryByErrorClass[PublishErrorClass.TooManyRequests.ordinal()] = retryOnTooManyRequests;
+            retryByErrorClass[PublishErrorClass.NoResponders.ordinal()] = retryOnNoResponders;
+            retryByErrorClass[PublishErrorClass.Timeout.ordinal()] = retryOnIoEx;
+            retryByErrorClass[PublishErrorClass.Io.ordinal()] = retryOnIoEx;
+            retryByErrorClass[PublishErrorClass.ExpectationFailed.ordinal()] = retryOnJetStreamApiEx;
+            retryByErrorClass[PublishErrorClass.Unavailable.ordinal()] = retryOnJetStreamApiEx;
+            retryByErrorClass[PublishErrorClass.ApiError.ordinal()] = retryOnJetStreamApiEx;
+            retryByErrorClass[PublishErrorClass.Runtime.ordinal()] = retryOnRuntimeEx;
+            retryByErrorClass[PublishErrorClass.Other.ordinal()] = retryAll;
+        }
+        else {
+            for (PublishErrorClass pec : retryErrorClasses) {
+                retryByErrorClass[pec.ordinal()] = true;
+            }
+        }
+    }
+
+    /**
+     * Whether a failure of the class is retried
+     * @param pec the class
+     * @return true if it is retried
+     */
+    public boolean shouldRetry(PublishErrorClass pec) {
+        return retryByErrorClass[pec.ordinal()];
     }
 
     /**
@@ -66,6 +105,7 @@ public class PublishRetryConfig {
     public static class Builder {
         RetryConfig.Builder rcb = RetryConfig.builder();
         List<RetryCondition> retryConditions = new ArrayList<>();
+        Set<PublishErrorClass> retryErrorClasses;
 
         public Builder() {
             retryConditions.addAll(DEFAULT_RETRY_CONDITIONS);
@@ -81,6 +121,17 @@ public class PublishRetryConfig {
             return this;
         }
 
+        /**
+         * Set the backoff strategy, for instance {@link BackoffStrategy#fullJitter(long, long)}.
+         * When set, the backoff policy is not used.
+         * @param backoffStrategy the strategy
+         * @return the builder
+         */
+        public Builder backoffStrategy(BackoffStrategy backoffStrategy) {
+            rcb.backoffStrategy(backoffStrategy);
+            return this;
+        }
+
         /**
          * Set the number of times to retry
          * @param attempts the number of retry attempts
@@ -114,6 +165,29 @@ public class PublishRetryConfig {
             return this;
         }
 
+        /**
+         * Set the retry budget. The same budget can be set on many configs
+         * to limit the retries of all their publishes together.
+         * @param retryBudget the budget
+         * @return the builder
+         */
+        public Builder retryBudget(RetryBudget retryBudget) {
+            rcb.retryBudget(retryBudget);
+            return this;
+        }
+
+        /**
+         * Set the circuit breaker. While it is open, publishes fail right away with a
+         * {@link io.synadia.retrier.CircuitOpenException} and retries stop.
+         * The same circuit breaker can be set on many configs.
+         * @param circuitBreaker the circuit breaker
+         * @return the builder
+         */
+        public Builder circuitBreaker(CircuitBreaker circuitBreaker) {
+            rcb.circuitBreaker(circuitBreaker);
+            return this;
+        }
+
         /**
          * Set the exception conditions where the publisher allows the retrier to continue
          * @param retryConditions the conditions
@@ -137,12 +211,31 @@ public class PublishRetryConfig {
             return this;
         }
 
+        /**
+         * Set exactly which classes of failures are retried, see {@link PublishErrorClassifier}.
+         * This is finer than the retry conditions, which it replaces when set,
+         * for instance to retry Unavailable api errors but not other api errors.
+         * @param retryErrorClasses the classes
+         * @return the builder
+         */
+        public Builder retryErrorClasses(PublishErrorClass... retryErrorClasses) {
+            this.retryErrorClasses = EnumSet.noneOf(PublishErrorClass.class);
+            if (retryErrorClasses != null) {
+                for (PublishErrorClass pec : retryErrorClasses) {
+                    if (pec != null) {
+                        this.retryErrorClasses.add(pec);
+                    }
+                }
+            }
+            return this;
+        }
+
         /**
          * Builds the retry config.
          * @return RetryConfig instance
          */
         public PublishRetryConfig build() {
-            return new PublishRetryConfig(rcb.build(), retryConditions);
+            return new PublishRetryConfig(rcb.build(), retryConditions, retryErrorClasses);
         }
     }
 }
@@ -0,0 +1,21 @@
+// Copyright (c) 2024-2025 Synadia Communications Inc. All Rights Reserved.
+// See LICENSE and NOTICE file for details.
+
+package io.synadia.jnats.extension;
+
+/**
+ * The type of queue the AsyncJsPublisher uses to hand messages
+ * between the publishing caller, the publish runner and the flights runner
+ */
+public enum QueueMode {
+    /**
+     * Unbounded linked blocking queues. This is the default.
+     */
+    Linked,
+
+    /**
+     * Bounded, preallocated ring buffers. There is no per message queue node allocation,
+     * but once the pre-flight ring is full, publishAsync blocks until the publish runner makes room.
+     */
+    RingBuffer
+}
@@ -0,0 +1,249 @@
+// Copyright (c) 2024-2025 Synadia Communications Inc. All Rights Reserved.
+// See LICENSE and NOTICE file for details.
+
+package io.synadia.jnats.extension;
+
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded, array backed queue safe for multiple producers and consumers.
+ * The slots and their sequence numbers are allocated once and reused
+ * as the producer and consumer positions wrap around the ring,
+ * so unlike a linked queue, there is no allocation per element.
+ * Blocking methods spin, then yield, then park with a growing back off,
+ * instead of using locks and conditions.
+ * @param <E> the type of element
+ */
+class RingBufferQueue<E> extends AbstractQueue<E> implements BlockingQueue<E> {
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 100;
+    private static final long MIN_PARK_NANOS = 1_000;
+    private static final long MAX_PARK_NANOS = 1_000_000;
+
+    private final int capacity;
+    private final int mask;
+    private final Object[] slots;
+    private final AtomicLongArray sequences;
+    private final AtomicLong head; // next position to consume
+    private final AtomicLong tail; // next position to produce
+
+    /**
+     * Construct a ring. The actual capacity is the requested capacity rounded up to a power of 2
+     * @param requestedCapacity the minimum capacity
+     */
+    RingBufferQueue(int requestedCapacity) {
+        capacity = powerOfTwoAtLeast(requestedCapacity);
+        mask = capacity - 1;
+        slots = new Object[capacity];
+        sequences = new AtomicLongArray(capacity);
+        for (int ix = 0; ix < capacity; ix++) {
+            sequences.set(ix, ix);
+        }
+        head = new AtomicLong();
+        tail = new AtomicLong();
+    }
+
+    static int powerOfTwoAtLeast(int requested) {
+        if (requested < 2) {
+            return 2;
+        }
+        if (requested > (1 << 30)) {
+            return 1 << 30;
+        }
+        return Integer.highestOneBit(requested - 1) << 1;
+    }
+
+    /**
+     * The actual capacity of the ring
+     * @return the capacity
+     */
+    int capacity() {
+        return capacity;
+    }
+
+    @Override
+    public boolean offer(E e) {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+        long pos = tail.get();
+        while (true) {
+            int ix = (int)(pos & mask);
+            long dif = sequences.get(ix) - pos;
+            if (dif == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    slots[ix] = e;
+                    sequences.lazySet(ix, pos + 1); // publishes the slot to consumers
+                    return true;
+                }
+                pos = tail.get();
+            }
+            else if (dif < 0) {
+                return false; // full, the consumer has not freed this slot yet
+            }
+            else {
+                pos = tail.get(); // another producer got here first
+            }
+        }
+    }
+
+    @Override
+    public E poll() {
+        long pos = head.get();
+        while (true) {
+            int ix = (int)(pos & mask);
+            long dif = sequences.get(ix) - (pos + 1);
+            if (dif == 0) {
+                if (head.compareAndSet(pos, pos + 1)) {
+                    @SuppressWarnings("unchecked")
+                    E e = (E)slots[ix];
+                    slots[ix] = null;
+                    sequences.lazySet(ix, pos + capacity); // frees the slot for the next lap
+                    return e;
+                }
+                pos = head.get();
+            }
+            else if (dif < 0) {
+                return null; // empty
+            }
+            else {
+                pos = head.get(); // another consumer got here first
+            }
+        }
+    }
+
+    @Override
+    public E peek() {
+        long pos = head.get();
+        int ix = (int)(pos & mask);
+        if (sequences.get(ix) == pos + 1) {
+            @SuppressWarnings("unchecked")
+            E e = (E)slots[ix];
+            return e;
+        }
+        return null;
+    }
+
+    @Override
+    public int size() {
+        // read head first so a concurrent consume can't make the size negative
+        long h = head.get();
+        long size = tail.get() - h;
+        if (size < 0) {
+            return 0;
+        }
+        return size > capacity ? capacity : (int)size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return tail.get() == head.get();
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return capacity - size();
+    }
+
+    @Override
+    public void put(E e) throws InterruptedException {
+        int idles = 0;
+        while (!offer(e)) {
+            idle(idles++);
+        }
+    }
+
+    @Override
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        int idles = 0;
+        while (!offer(e)) {
+            if (System.nanoTime() - deadline >= 0) {
+                return false;
+            }
+            idle(idles++);
+        }
+        return true;
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        int idles = 0;
+        E e;
+        while ((e = poll()) == null) {
+            idle(idles++);
+        }
+        return e;
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        int idles = 0;
+        E e;
+        while ((e = poll()) == null) {
+            if (System.nanoTime() - deadline >= 0) {
+                return null;
+            }
+            idle(idles++);
+        }
+        return e;
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        int drained = 0;
+        E e;
+        while (drained < maxElements && (e = poll()) != null) {
+            c.add(e);
+            drained++;
+        }
+        return drained;
+    }
+
+    /**
+     * A weakly consistent snapshot of the elements currently in the ring.
+     * @return the iterator
+     */
+    @Override
+    public Iterator<E> iterator() {
+        List<E> snapshot = new ArrayList<>();
+        for (long pos = head.get(), end = tail.get(); pos < end; pos++) {
+            int ix = (int)(pos & mask);
+            if (sequences.get(ix) == pos + 1) {
+                @SuppressWarnings("unchecked")
+                E e = (E)slots[ix];
+                if (e != null) {
+                    snapshot.add(e);
+                }
+            }
+        }
+        return Collections.unmodifiableList(snapshot).iterator();
+    }
+
+    private static void idle(int idles) throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        if (idles < SPIN_TRIES) {
+            return;
+        }
+        if (idles < SPIN_TRIES + YIELD_TRIES) {
+            Thread.yield();
+            return;
+        }
+        // back off, doubling the park time, so an idle ring does not burn a core
+        int shift = Math.min(idles - SPIN_TRIES - YIELD_TRIES, 10);
+        LockSupport.parkNanos(Math.min(MIN_PARK_NANOS << shift, MAX_PARK_NANOS));
+    }
+}
@@ -0,0 +1,293 @@
+// Copyright (c) 2024-2025 Synadia Communications Inc. All Rights Reserved.
+// See LICENSE and NOTICE file for details.
+
+package io.synadia.jnats.extension;
+
+import io.nats.client.JetStream;
+import io.nats.client.Message;
+import io.nats.client.impl.Headers;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Spreads publishing over several AsyncJsPublishers, one per JetStream context,
+ * usually each from its own connection, so publishing is not limited to one socket and writer.
+ * Messages are routed to a shard by the hash of their subject, so all messages for
+ * a subject go through the same shard and keep their order.
+ * Each shard has its own queues, runners and in flight limits. All shards share one listener,
+ * which is notified from every shard's notification executor, so it must be thread safe.
+ */
+public class ShardedAsyncJsPublisher implements AutoCloseable {
+    static final String SHARD_DIRECTORY_PREFIX = "shard-";
+
+    private final List<AsyncJsPublisher> shards;
+
+    private ShardedAsyncJsPublisher(Builder b) {
+        List<AsyncJsPublisher> list = new ArrayList<>();
+        Set<InFlightWindow> windows = Collections.newSetFromMap(new IdentityHashMap<>());
+        try {
+            for (int x = 0; x < b.jetStreams.size(); x++) {
+                AsyncJsPublisher.Builder pb = AsyncJsPublisher.builder(b.jetStreams.get(x)).publishListener(b.publishListener);
+                if (b.shardConfig != null) {
+                    b.shardConfig.accept(pb);
+                }
+                if (pb.spillDirectory != null) {
+                    // segment files and checkpoints cannot be shared, so each shard spills under its own directory
+                    pb.spillDirectory(pb.spillDirectory.resolve(SHARD_DIRECTORY_PREFIX + x));
+                }
+                AsyncJsPublisher shard = pb.build();
+                list.add(shard);
+                InFlightWindow window = shard.getInFlightWindow();
+                if (window != null && !windows.add(window)) {
+                    throw new IllegalArgumentException("Each shard must have its own in flight window.");
+                }
+            }
+        }
+        catch (RuntimeException e) {
+            // the shards already built may hold spill files and executors
+            for (AsyncJsPublisher shard : list) {
+                try {
+                    shard.close();
+                }
+                catch (Exception ce) {
+                    e.addSuppressed(ce);
+                }
+            }
+            throw e;
+        }
+        shards = Collections.unmodifiableList(list);
+    }
+
+    /**
+     * Start all the shards.
+     */
+    public void start() {
+        for (AsyncJsPublisher shard : shards) {
+            shard.start();
+        }
+    }
+
+    /**
+     * stop all the shards with drain
+     */
+    public void stop() {
+        stop(true);
+    }
+
+    /**
+     * stop all the shards, optionally drain
+     * @param drain whether to drain or not
+     */
+    public void stop(boolean drain) {
+        for (AsyncJsPublisher shard : shards) {
+            shard.stop(drain);
+        }
+    }
+
+    /**
+     * shutdown all the shards.
+     */
+    @Override
+    public void close() throws Exception {
+        Exception first = null;
+        for (AsyncJsPublisher shard : shards) {
+            try {
+                shard.close();
+            }
+            catch (Exception e) {
+                if (first == null) {
+                    first = e;
+                }
+            }
+        }
+        if (first != null) {
+            throw first;
+        }
+    }
+
+    /**
+     * The shards, in the order of the JetStream contexts they were built with
+     * @return the unmodifiable list of shards
+     */
+    public List<AsyncJsPublisher> getShards() {
+        return shards;
+    }
+
+    /**
+     * The shard that publishes messages for a subject
+     * @param subject the subject
+     * @return the shard
+     */
+    public AsyncJsPublisher getShard(String subject) {
+        return shards.get(shardIndex(subject, shards.size()));
+    }
+
+    /**
+     * The number of messages currently in flight over all shards
+     * @return the number
+     */
+    public int currentInFlight() {
+        int total = 0;
+        for (AsyncJsPublisher shard : shards) {
+            total += shard.currentInFlight();
+        }
+        return total;
+    }
+
+    /**
+     * The number of messages currently waiting to be published over all shards
+     * @return the number
+     */
+    public int preFlightSize() {
+        int total = 0;
+        for (AsyncJsPublisher shard : shards) {
+            total += shard.preFlightSize();
+        }
+        return total;
+    }
+
+    /**
+     * A future that completes when the publish runners of all shards are complete
+     * @return the future
+     */
+    public CompletableFuture<Void> getPublishRunnerDoneFuture() {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[shards.size()];
+        for (int x = 0; x < futures.length; x++) {
+            futures[x] = shards.get(x).getPublishRunnerDoneFuture();
+        }
+        return CompletableFuture.allOf(futures);
+    }
+
+    /**
+     * A future that completes when the flights runners of all shards are complete
+     * @return the future
+     */
+    public CompletableFuture<Void> getFlightsRunnerDoneFuture() {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[shards.size()];
+        for (int x = 0; x < futures.length; x++) {
+            futures[x] = shards.get(x).getFlightsRunnerDoneFuture();
+        }
+        return CompletableFuture.allOf(futures);
+    }
+
+    static int shardIndex(String subject, int shardCount) {
+        // spread the bits since subjects often only differ at the end
+        int h = subject.hashCode();
+        h ^= (h >>> 16);
+        return (h & 0x7fffffff) % shardCount;
+    }
+
+    /**
+     * Send a message to the specified subject on the subject's shard.
+     * @param subject the subject to send the message to
+     * @param headers optional headers to publish with the message.
+     * @param body the message body
+     * @return The future
+     */
+    public PreFlight publishAsync(String subject, Headers headers, byte[] body) {
+        return getShard(subject).publishAsync(subject, headers, body);
+    }
+
+    /**
+     * Send a message to the specified subject on the subject's shard.
+     * @param subject the subject to send the message to
+     * @param body the message body
+     * @return The future
+     */
+    public PreFlight publishAsync(String subject, byte[] body) {
+        return publishAsync(subject, null, body);
+    }
+
+    /**
+     * Send a message on the shard of the message's subject.
+     * @param message the message to publish
+     * @return The future
+     */
+    public PreFlight publishAsync(Message message) {
+        return publishAsync(message.getSubject(), message.getHeaders(), message.getData());
+    }
+
+    /**
+     * Creates a builder for the ShardedAsyncJsPublisher
+     * @param jetStreams the JetStream contexts, one per shard
+     * @return the builder
+     */
+    public static Builder builder(List<JetStream> jetStreams) {
+        return new Builder(jetStreams);
+    }
+
+    /**
+     * Creates a builder for the ShardedAsyncJsPublisher
+     * @param jetStreams the JetStream contexts, one per shard
+     * @return the builder
+     */
+    public static Builder builder(JetStream... jetStreams) {
+        return new Builder(jetStreams == null ? null : Arrays.asList(jetStreams));
+    }
+
+    /**
+     * The builder class for the ShardedAsyncJsPublisher
+     */
+    public static class Builder {
+        List<JetStream> jetStreams;
+        AsyncJsPublishListener publishListener;
+        Consumer<AsyncJsPublisher.Builder> shardConfig;
+
+        public Builder(List<JetStream> jetStreams) {
+            if (jetStreams == null || jetStreams.isEmpty()) {
+                throw new IllegalArgumentException("At least one JetStream context is required.");
+            }
+            for (JetStream js : jetStreams) {
+                if (js == null) {
+                    throw new IllegalArgumentException("JetStream context is required.");
+                }
+            }
+            this.jetStreams = new ArrayList<>(jetStreams);
+        }
+
+        /**
+         * The publish listener shared by all the shards. It's called from each shard's
+         * notification executor, so it must be thread safe.
+         * @param publishListener the listener
+         * @return the builder
+         */
+        public Builder publishListener(AsyncJsPublishListener publishListener) {
+            this.publishListener = publishListener;
+            return this;
+        }
+
+        /**
+         * Configures each shard's builder. It is called once per shard, so objects that
+         * cannot be shared, like an in flight window, must be created inside it.
+         * A spill directory set here is the parent directory, each shard spills under its own
+         * {@code shard-<index>} directory in it, the index being the shard's position in the JetStream contexts.
+         * The shard's JetStream context and the shared publish listener are already set.
+         * @param shardConfig the configuration
+         * @return the builder
+         */
+        public Builder shardConfig(Consumer<AsyncJsPublisher.Builder> shardConfig) {
+            this.shardConfig = shardConfig;
+            return this;
+        }
+
+        /**
+         * Builds a ShardedAsyncJsPublisher without starting it
+         * @return ShardedAsyncJsPublisher instance
+         */
+        public ShardedAsyncJsPublisher build() {
+            return new ShardedAsyncJsPublisher(this);
+        }
+
+        /**
+         * Builds a ShardedAsyncJsPublisher and starts all the shards.
+         * @return ShardedAsyncJsPublisher instance
+         */
+        public ShardedAsyncJsPublisher start() {
+            ShardedAsyncJsPublisher p = new ShardedAsyncJsPublisher(this);
+            p.start();
+            return p;
+        }
+    }
+}
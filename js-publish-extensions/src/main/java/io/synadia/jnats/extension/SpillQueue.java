@@ -0,0 +1,539 @@
+// Copyright (c) 2024-2025 Synadia Communications Inc. All Rights Reserved.
+// See LICENSE and NOTICE file for details.
+
+package io.synadia.jnats.extension;
+
+import io.nats.client.impl.Headers;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A first in first out queue of pre-flight messages stored in memory mapped, append only segment files.
+ * Each record is its length followed by the queued time, message id, subject, headers and body.
+ * The length is written last, so a record that was not completely written reads as the end of the data.
+ * Segments are unmapped and deleted once they are completely read.
+ * <p>
+ * The bodies are not kept on the heap, only the in flight future of each spilled message,
+ * so the caller can still follow the message once it's read back and published.
+ * <p>
+ * When durable, the read position is kept in a memory mapped checkpoint file and the segments are kept
+ * when the queue is closed, so a new queue over the same directory picks up the unread records.
+ * A record counts as read once it is handed to the publisher, not once it's acked.
+ * Messages that were still waiting in memory can be put in front of the unread records on close,
+ * see {@link #close(Collection)}.
+ */
+class SpillQueue implements AutoCloseable {
+    static final String SEGMENT_PREFIX = "spill-";
+    static final String SEGMENT_SUFFIX = ".seg";
+    static final String CHECKPOINT_FILE = "spill.checkpoint";
+    static final String FRONT_FILE = "spill.front";
+
+    private static final int LENGTH_BYTES = 4;
+    private static final int END_OF_SEGMENT = -1;
+    private static final int NULL_LENGTH = -1;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final boolean durable;
+    private final ArrayDeque<CompletableFuture<InFlight>> futures;
+    private final ByteArrayOutputStream scratch;
+    private final DataOutputStream scratchOut;
+    private final MappedByteBuffer checkpoint;
+
+    private long recovered; // records from a previous queue, they have no future
+    private volatile long size;
+
+    private long writeSeq;
+    private MappedByteBuffer writeBuffer;
+    private long readSeq;
+    private MappedByteBuffer readMapping; // the mapping read from, the write buffer when reading the write segment
+    private ByteBuffer readBuffer;
+    private boolean closed;
+
+    /**
+     * Open a spill queue over a directory
+     * @param directory the directory for the segment files
+     * @param segmentSize the size of each segment file. A record bigger than this gets a segment to itself.
+     * @param durable whether to pick up the unread records of a previous queue and keep them when closed
+     * @throws IOException if the directory or files cannot be created or read
+     */
+    SpillQueue(Path directory, int segmentSize, boolean durable) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.durable = durable;
+        futures = new ArrayDeque<>();
+        scratch = new ByteArrayOutputStream();
+        scratchOut = new DataOutputStream(scratch);
+
+        Files.createDirectories(directory);
+        // left by a close that did not finish, it is unknown whether the checkpoint already points at it
+        Files.deleteIfExists(directory.resolve(FRONT_FILE));
+        List<Long> existing = segmentSeqs(directory);
+        if (!durable) {
+            for (Long seq : existing) {
+                Files.delete(segmentPath(seq));
+            }
+            Files.deleteIfExists(directory.resolve(CHECKPOINT_FILE));
+            existing.clear();
+        }
+
+        long checkpointSeq = 0;
+        int checkpointPosition = 0;
+        if (durable) {
+            checkpoint = map(directory.resolve(CHECKPOINT_FILE), 16);
+            checkpointSeq = checkpoint.getLong(0);
+            checkpointPosition = (int)checkpoint.getLong(8);
+        }
+        else {
+            checkpoint = null;
+        }
+
+        if (existing.isEmpty()) {
+            writeSeq = checkpointSeq;
+            writeBuffer = map(segmentPath(writeSeq), segmentSize);
+            readSeq = writeSeq;
+            readMapping = writeBuffer;
+            readBuffer = writeBuffer.duplicate();
+        }
+        else {
+            // segments before the checkpoint were read, but not deleted before the previous queue went away
+            for (Long seq : existing) {
+                if (seq < checkpointSeq) {
+                    Files.delete(segmentPath(seq));
+                }
+            }
+            readSeq = Math.max(checkpointSeq, existing.get(0));
+            int startPosition = readSeq == checkpointSeq ? checkpointPosition : 0;
+
+            long count = 0;
+            long last = existing.get(existing.size() - 1);
+            for (long seq = readSeq; seq <= last; seq++) {
+                if (Files.exists(segmentPath(seq))) {
+                    MappedByteBuffer segment = map(segmentPath(seq), 0);
+                    count += countRecords(segment, seq == readSeq ? startPosition : 0);
+                    unmap(segment);
+                }
+            }
+            recovered = count;
+            size = count;
+
+            // always append to a new segment, the previous queue may have stopped in the middle of a record
+            writeSeq = Math.max(last + 1, readSeq);
+            writeBuffer = map(segmentPath(writeSeq), segmentSize);
+            if (readSeq == writeSeq) {
+                // nothing left to read from the existing segments
+                readMapping = writeBuffer;
+                readBuffer = writeBuffer.duplicate();
+            }
+            else {
+                readMapping = map(segmentPath(readSeq), 0);
+                readBuffer = readMapping;
+                readBuffer.position(startPosition);
+            }
+        }
+        saveCheckpoint();
+    }
+
+    /**
+     * The number of records waiting to be read
+     * @return the number
+     */
+    long size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Add a message to the end of the queue
+     * @param preFlight the message
+     * @throws IOException if the record cannot be written
+     */
+    synchronized void append(PreFlight preFlight) throws IOException {
+        checkNotClosed();
+        int len = encode(preFlight);
+
+        if (writeBuffer.remaining() < LENGTH_BYTES + len) {
+            if (writeBuffer.remaining() >= LENGTH_BYTES) {
+                writeBuffer.putInt(writeBuffer.position(), END_OF_SEGMENT);
+            }
+            if (writeBuffer != readMapping) {
+                // otherwise it's still being read, poll releases it when it moves past it
+                unmap(writeBuffer);
+            }
+            writeSeq++;
+            writeBuffer = map(segmentPath(writeSeq), Math.max(segmentSize, LENGTH_BYTES * 2 + len));
+        }
+
+        // the length goes in last, so the record only exists once it's completely written
+        int position = writeBuffer.position();
+        writeBuffer.position(position + LENGTH_BYTES);
+        writeBuffer.put(scratch.toByteArray(), 0, len);
+        writeBuffer.putInt(position, len);
+
+        futures.add(preFlight.inFlightFuture);
+        size++;
+    }
+
+    /**
+     * Remove the message at the front of the queue
+     * @return the message or null if the queue is empty
+     * @throws IOException if the next segment cannot be read
+     */
+    synchronized PreFlight poll() throws IOException {
+        checkNotClosed();
+        if (size == 0) {
+            return null;
+        }
+
+        int len = readBuffer.remaining() < LENGTH_BYTES ? END_OF_SEGMENT : readBuffer.getInt(readBuffer.position());
+        while (len <= 0) {
+            if (readSeq >= writeSeq) {
+                throw new IOException("Spill segment " + segmentPath(readSeq) + " is missing records.");
+            }
+            // done with this segment, move to the next one. The mapping is released first,
+            // the file cannot be deleted on some platforms while it's mapped
+            unmap(readMapping);
+            Files.deleteIfExists(segmentPath(readSeq));
+            readSeq++;
+            if (readSeq == writeSeq) {
+                readMapping = writeBuffer;
+                readBuffer = writeBuffer.duplicate();
+            }
+            else {
+                readMapping = map(segmentPath(readSeq), 0);
+                readBuffer = readMapping;
+            }
+            readBuffer.position(0);
+            len = readBuffer.remaining() < LENGTH_BYTES ? END_OF_SEGMENT : readBuffer.getInt(0);
+        }
+
+        readBuffer.position(readBuffer.position() + LENGTH_BYTES);
+        long queuedAt = readBuffer.getLong();
+        String messageId = readString();
+        String subject = readString();
+        Headers headers = readHeaders();
+        byte[] body = readBytes();
+
+        size--;
+        CompletableFuture<InFlight> future;
+        if (recovered > 0) {
+            // the previous process's nano time means nothing here
+            recovered--;
+            future = new CompletableFuture<>();
+            queuedAt = System.nanoTime();
+        }
+        else {
+            future = futures.poll();
+        }
+        saveCheckpoint();
+        return new PreFlight(messageId, subject, headers, body, future, queuedAt);
+    }
+
+    boolean isDurable() {
+        return durable;
+    }
+
+    @Override
+    public void close() throws IOException {
+        close(Collections.emptyList());
+    }
+
+    /**
+     * Close the queue, releasing all the mappings. When durable, the unread records are kept
+     * and the front messages are put in front of them, so a new queue over the directory reads
+     * them first and in order. When not durable, the front messages are ignored and the segments are deleted.
+     * @param front the messages that were queued before any unread record, in order
+     * @throws IOException if the files cannot be written or deleted
+     */
+    synchronized void close(Collection<PreFlight> front) throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (durable) {
+                writeBuffer.force();
+                if (!front.isEmpty()) {
+                    writeFront(front);
+                }
+                checkpoint.force();
+            }
+        }
+        finally {
+            release();
+        }
+
+        if (durable) {
+            Path frontFile = directory.resolve(FRONT_FILE);
+            if (Files.exists(frontFile)) {
+                // the checkpoint already points at the start of the read segment.
+                // Not being able to replace it could read already read records again, never lose any
+                Files.move(frontFile, segmentPath(readSeq), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+        }
+        else {
+            for (Long seq : segmentSeqs(directory)) {
+                Files.deleteIfExists(segmentPath(seq));
+            }
+        }
+    }
+
+    /**
+     * Write the front messages, followed by the unread records of the read segment,
+     * to the front file, which replaces the read segment once it's unmapped
+     */
+    private void writeFront(Collection<PreFlight> front) throws IOException {
+        int start = readBuffer.position();
+        int end = start;
+        while (readBuffer.limit() - end >= LENGTH_BYTES) {
+            int len = readBuffer.getInt(end);
+            if (len <= 0) {
+                break;
+            }
+            end += LENGTH_BYTES + len;
+        }
+
+        try (FileChannel channel = FileChannel.open(directory.resolve(FRONT_FILE),
+            StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE))
+        {
+            ByteBuffer length = ByteBuffer.allocate(LENGTH_BYTES);
+            for (PreFlight preFlight : front) {
+                int len = encode(preFlight);
+                length.clear();
+                length.putInt(len).flip();
+                writeFully(channel, length);
+                writeFully(channel, ByteBuffer.wrap(scratch.toByteArray(), 0, len));
+            }
+            ByteBuffer unread = readBuffer.duplicate();
+            unread.limit(end).position(start);
+            writeFully(channel, unread);
+            channel.force(true);
+        }
+
+        // the read segment is replaced by the front file, which is read from its start
+        checkpoint.putLong(0, readSeq);
+        checkpoint.putLong(8, 0);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private void release() {
+        if (readMapping != writeBuffer) {
+            unmap(readMapping);
+        }
+        unmap(writeBuffer);
+        unmap(checkpoint);
+        readMapping = null;
+        readBuffer = null;
+        writeBuffer = null;
+    }
+
+    private void checkNotClosed() throws IOException {
+        if (closed) {
+            throw new IOException("Spill queue is closed.");
+        }
+    }
+
+    /**
+     * Encode a message into the scratch buffer
+     * @return the encoded length
+     */
+    private int encode(PreFlight preFlight) throws IOException {
+        scratch.reset();
+        scratchOut.writeLong(preFlight.queuedAt);
+        writeString(preFlight.messageId);
+        writeString(preFlight.subject);
+        writeHeaders(preFlight.headers);
+        writeBytes(preFlight.body);
+        return scratch.size();
+    }
+
+    private void saveCheckpoint() {
+        if (checkpoint != null) {
+            checkpoint.putLong(0, readSeq);
+            checkpoint.putLong(8, readBuffer.position());
+        }
+    }
+
+    private static long countRecords(ByteBuffer buffer, int position) {
+        long count = 0;
+        while (buffer.limit() - position >= LENGTH_BYTES) {
+            int len = buffer.getInt(position);
+            if (len <= 0 || buffer.limit() - position - LENGTH_BYTES < len) {
+                break;
+            }
+            count++;
+            position += LENGTH_BYTES + len;
+        }
+        return count;
+    }
+
+    private Path segmentPath(long seq) {
+        return directory.resolve(String.format("%s%016d%s", SEGMENT_PREFIX, seq, SEGMENT_SUFFIX));
+    }
+
+    private static List<Long> segmentSeqs(Path directory) throws IOException {
+        List<Long> seqs = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path p : stream) {
+                String name = p.getFileName().toString();
+                try {
+                    seqs.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+                }
+                catch (NumberFormatException ignore) {
+                    // not one of ours
+                }
+            }
+        }
+        Collections.sort(seqs);
+        return seqs;
+    }
+
+    /**
+     * Map a file, creating it if needed
+     * @param path the file
+     * @param size the size to map, 0 to map the existing file
+     * @return the buffer
+     */
+    private static MappedByteBuffer map(Path path, int size) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // the mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size == 0 ? channel.size() : size);
+        }
+    }
+
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            // java 9 and later
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field f = unsafeClass.getDeclaredField("theUnsafe");
+            f.setAccessible(true);
+            unsafe = f.get(null);
+        }
+        catch (Exception e) {
+            invokeCleaner = null;
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    /**
+     * Release a mapping now instead of whenever the buffer is garbage collected.
+     * The buffer, and any duplicate of it, must never be used again.
+     * This is best effort, if the platform does not allow it, the mapping is released at garbage collection.
+     * @param buffer the buffer returned by map, not a duplicate of it
+     */
+    static void unmap(MappedByteBuffer buffer) {
+        if (buffer == null) {
+            return;
+        }
+        try {
+            if (INVOKE_CLEANER != null) {
+                INVOKE_CLEANER.invoke(UNSAFE, buffer);
+            }
+            else {
+                // java 8
+                Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                Object cleaner = cleanerMethod.invoke(buffer);
+                if (cleaner != null) {
+                    cleaner.getClass().getMethod("clean").invoke(cleaner);
+                }
+            }
+        }
+        catch (Exception ignore) {
+            // left to the garbage collector
+        }
+    }
+
+    private void writeString(String s) throws IOException {
+        writeBytes(s == null ? null : s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void writeBytes(byte[] bytes) throws IOException {
+        if (bytes == null) {
+            scratchOut.writeInt(NULL_LENGTH);
+        }
+        else {
+            scratchOut.writeInt(bytes.length);
+            scratchOut.write(bytes);
+        }
+    }
+
+    private void writeHeaders(Headers headers) throws IOException {
+        if (headers == null) {
+            scratchOut.writeInt(NULL_LENGTH);
+            return;
+        }
+        Set<Map.Entry<String, List<String>>> entries = headers.entrySet();
+        scratchOut.writeInt(entries.size());
+        for (Map.Entry<String, List<String>> entry : entries) {
+            writeString(entry.getKey());
+            scratchOut.writeInt(entry.getValue().size());
+            for (String value : entry.getValue()) {
+                writeString(value);
+            }
+        }
+    }
+
+    private String readString() {
+        byte[] bytes = readBytes();
+        return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private byte[] readBytes() {
+        int len = readBuffer.getInt();
+        if (len == NULL_LENGTH) {
+            return null;
+        }
+        byte[] bytes = new byte[len];
+        readBuffer.get(bytes);
+        return bytes;
+    }
+
+    private Headers readHeaders() {
+        int count = readBuffer.getInt();
+        if (count == NULL_LENGTH) {
+            return null;
+        }
+        Headers headers = new Headers();
+        for (int x = 0; x < count; x++) {
+            String key = readString();
+            int valueCount = readBuffer.getInt();
+            List<String> values = new ArrayList<>(valueCount);
+            for (int v = 0; v < valueCount; v++) {
+                values.add(readString());
+            }
+            headers.put(key, values);
+        }
+        return headers;
+    }
+}
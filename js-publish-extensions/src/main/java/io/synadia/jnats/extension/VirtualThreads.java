@@ -0,0 +1,45 @@
+// Copyright (c) 2024-2025 Synadia Communications Inc. All Rights Reserved.
+// See LICENSE and NOTICE file for details.
+
+package io.synadia.jnats.extension;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Access to virtual threads through reflection, since the library is built for Java 8.
+ */
+final class VirtualThreads {
+    private static final ThreadFactory FACTORY = lookupFactory();
+
+    private VirtualThreads() {}
+
+    /**
+     * Whether the runtime supports virtual threads
+     * @return the flag
+     */
+    static boolean isSupported() {
+        return FACTORY != null;
+    }
+
+    /**
+     * A factory that creates virtual threads
+     * @return the factory or null if the runtime does not support virtual threads
+     */
+    static ThreadFactory factory() {
+        return FACTORY;
+    }
+
+    private static ThreadFactory lookupFactory() {
+        try {
+            // Thread.ofVirtual().factory()
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Method factory = Class.forName("java.lang.Thread$Builder").getMethod("factory");
+            return (ThreadFactory)factory.invoke(builder);
+        }
+        catch (Exception e) {
+            // not there before Java 21, or a preview feature that isn't enabled
+            return null;
+        }
+    }
+}
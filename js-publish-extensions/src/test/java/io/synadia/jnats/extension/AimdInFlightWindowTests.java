@@ -0,0 +1,75 @@
+package io.synadia.jnats.extension;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AimdInFlightWindowTests {
+
+    private static void ackWindows(AimdInFlightWindow w, int windows, long latency) {
+        for (int x = 0; x < windows; x++) {
+            int acks = w.getMaxInFlight();
+            for (int a = 0; a < acks; a++) {
+                w.acked(latency);
+            }
+        }
+    }
+
+    @Test
+    public void testGrowsWhileLatencyIsFlat() {
+        AimdInFlightWindow w = AimdInFlightWindow.builder().initialWindow(10).minWindow(5).maxWindow(100).build();
+        assertEquals(10, w.getMaxInFlight());
+        assertEquals(5, w.getResumeAmount());
+        assertEquals(100, w.getUpperLimit());
+
+        // about one more per window of acks
+        ackWindows(w, 5, 1000);
+        assertTrue(w.getMaxInFlight() >= 14 && w.getMaxInFlight() <= 15, "" + w.getMaxInFlight());
+        assertEquals(w.getMaxInFlight() / 2, w.getResumeAmount());
+
+        // never past the max
+        ackWindows(w, 500, 1000);
+        assertEquals(100, w.getMaxInFlight());
+    }
+
+    @Test
+    public void testStopsGrowingWhenLatencyClimbs() {
+        AimdInFlightWindow w = AimdInFlightWindow.builder().initialWindow(20).latencyTolerance(2).build();
+        ackWindows(w, 1, 1000);
+        int before = w.getMaxInFlight();
+        ackWindows(w, 10, 10_000);
+        assertTrue(w.getMaxInFlight() <= before + 1, "" + w.getMaxInFlight());
+    }
+
+    @Test
+    public void testShrinksOncePerWindow() {
+        AimdInFlightWindow w = AimdInFlightWindow.builder().initialWindow(64).minWindow(10).build();
+        w.timedOut();
+        assertEquals(32, w.getMaxInFlight());
+        assertEquals(16, w.getResumeAmount());
+
+        // more failures from the same window don't shrink it again
+        w.overloaded();
+        w.timedOut();
+        assertEquals(32, w.getMaxInFlight());
+
+        // after a window of acks it can shrink again, but not below the min
+        ackWindows(w, 1, 1000);
+        w.overloaded();
+        assertTrue(w.getMaxInFlight() <= 17, "" + w.getMaxInFlight());
+        ackWindows(w, 1, 1000);
+        w.overloaded();
+        assertEquals(10, w.getMaxInFlight());
+    }
+
+    @Test
+    public void testBuilderValidation() {
+        assertThrows(IllegalArgumentException.class, () -> AimdInFlightWindow.builder().decreaseFactor(0));
+        assertThrows(IllegalArgumentException.class, () -> AimdInFlightWindow.builder().decreaseFactor(1));
+        AimdInFlightWindow w = AimdInFlightWindow.builder().initialWindow(1000).maxWindow(100).build();
+        assertEquals(100, w.getMaxInFlight());
+        w = AimdInFlightWindow.builder().initialWindow(1).minWindow(5).resumeRatio(0).build();
+        assertEquals(5, w.getMaxInFlight());
+        assertEquals(0, w.getResumeAmount());
+    }
+}
@@ -0,0 +1,97 @@
+package io.synadia.jnats.extension;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InFlightTimerWheelTests {
+    private static final long TICK = 10;
+
+    private static InFlight flight() {
+        return new InFlight(null, null);
+    }
+
+    @Test
+    public void testExpireInDeadlineOrder() {
+        InFlightTimerWheel wheel = new InFlightTimerWheel(TICK, 8, 0);
+        InFlight f1 = flight();
+        InFlight f2 = flight();
+        InFlight f3 = flight();
+        wheel.schedule(f1, 25);
+        wheel.schedule(f2, 45);
+        wheel.schedule(f3, 1000); // more than one lap around the wheel
+        assertEquals(3, wheel.size());
+
+        List<InFlight> expired = new ArrayList<>();
+        wheel.expire(20, expired::add);
+        assertTrue(expired.isEmpty());
+
+        wheel.expire(30, expired::add);
+        assertEquals(1, expired.size());
+        assertSame(f1, expired.get(0));
+        assertEquals(InFlight.SETTLED, f1.wheelState);
+
+        wheel.expire(50, expired::add);
+        assertEquals(2, expired.size());
+        assertSame(f2, expired.get(1));
+
+        wheel.expire(990, expired::add);
+        assertEquals(2, expired.size());
+        assertEquals(1, wheel.size());
+
+        wheel.expire(1000, expired::add);
+        assertEquals(3, expired.size());
+        assertSame(f3, expired.get(2));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void testCancel() {
+        InFlightTimerWheel wheel = new InFlightTimerWheel(TICK, 8, 0);
+        InFlight f1 = flight();
+        InFlight f2 = flight();
+        InFlight f3 = flight();
+        assertFalse(wheel.cancel(f1)); // not scheduled yet
+
+        // same bucket, cancel from head, middle and tail of the bucket list
+        wheel.schedule(f1, 30);
+        wheel.schedule(f2, 30);
+        wheel.schedule(f3, 30);
+        assertTrue(wheel.cancel(f2));
+        assertFalse(wheel.cancel(f2));
+        assertEquals(2, wheel.size());
+
+        List<InFlight> expired = new ArrayList<>();
+        wheel.expire(30, expired::add);
+        assertEquals(2, expired.size());
+        assertTrue(expired.contains(f1));
+        assertTrue(expired.contains(f3));
+        assertFalse(wheel.cancel(f1)); // already expired
+    }
+
+    @Test
+    public void testPastDeadlineAndIdleCatchUp() {
+        InFlightTimerWheel wheel = new InFlightTimerWheel(TICK, 8, 0);
+        List<InFlight> expired = new ArrayList<>();
+
+        // a long idle period with nothing on the wheel
+        wheel.expire(1_000_000, expired::add);
+
+        // a deadline that has already passed expires on the next expire
+        InFlight late = flight();
+        wheel.schedule(late, 500);
+        wheel.expire(1_000_000, expired::add);
+        assertEquals(1, expired.size());
+        assertSame(late, expired.get(0));
+
+        InFlight f = flight();
+        wheel.schedule(f, 1_000_100);
+        wheel.expire(1_000_050, expired::add);
+        assertEquals(1, expired.size());
+        wheel.expire(1_000_100, expired::add);
+        assertEquals(2, expired.size());
+    }
+}
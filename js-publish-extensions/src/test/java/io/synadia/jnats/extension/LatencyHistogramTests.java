@@ -0,0 +1,115 @@
+package io.synadia.jnats.extension;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LatencyHistogramTests {
+
+    @Test
+    public void testBuckets() {
+        // every value lands in a bucket whose range holds it, and buckets are contiguous
+        long[] values = {0, 1, 31, 32, 33, 63, 64, 65, 1000, 123_456_789, Long.MAX_VALUE / 3, Long.MAX_VALUE};
+        for (long v : values) {
+            int b = LatencyHistogram.bucket(v);
+            assertTrue(v <= LatencyHistogram.highestValue(b));
+            if (b > 0) {
+                assertTrue(v > LatencyHistogram.highestValue(b - 1));
+            }
+        }
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.highestValue(LatencyHistogram.bucket(Long.MAX_VALUE)));
+        for (int b = 1; b <= LatencyHistogram.bucket(Long.MAX_VALUE); b++) {
+            assertEquals(b, LatencyHistogram.bucket(LatencyHistogram.highestValue(b - 1) + 1));
+        }
+    }
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram h = new LatencyHistogram();
+        assertEquals(0, h.getValueAtPercentile(50));
+        assertEquals(0.0, h.getMean());
+
+        Random r = new Random(42);
+        List<Long> recorded = new ArrayList<>();
+        for (int x = 0; x < 100_000; x++) {
+            long v = 1000 + (long)(r.nextDouble() * r.nextDouble() * 50_000_000);
+            recorded.add(v);
+            h.record(v);
+        }
+        recorded.sort(Long::compare);
+        assertEquals(100_000, h.getCount());
+        assertEquals(recorded.get(recorded.size() - 1).longValue(), h.getMax());
+
+        for (double p : new double[]{10, 50, 90, 99, 99.9}) {
+            long exact = recorded.get((int)Math.ceil(recorded.size() * p / 100) - 1);
+            long read = h.getValueAtPercentile(p);
+            assertTrue(read >= exact);
+            assertTrue(read <= exact * 1.07, p + " " + exact + " " + read);
+        }
+        assertEquals(h.getMax(), h.getValueAtPercentile(100));
+
+        h.record(-5);
+        assertEquals(0, h.getValueAtPercentile(0));
+
+        h.reset();
+        assertEquals(0, h.getCount());
+        assertEquals(0, h.getMax());
+        assertEquals(0, h.getValueAtPercentile(99));
+    }
+
+    @Test
+    public void testConcurrentRecording() throws Exception {
+        LatencyHistogram h = new LatencyHistogram();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            int base = t;
+            threads[t] = new Thread(() -> {
+                for (int x = 1; x <= 25_000; x++) {
+                    h.record(x + base);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        assertEquals(100_000, h.getCount());
+        assertEquals(25_003, h.getMax());
+        assertEquals(12_502, h.getMean(), 0.001);
+    }
+
+    @Test
+    public void testDefaultMetrics() {
+        DefaultAsyncJsPublishMetrics m = new DefaultAsyncJsPublishMetrics();
+        m.published(10);
+        m.published(20);
+        m.acked(1_000_000);
+        m.timedOut();
+        m.retried();
+        m.retried();
+        m.completedExceptionally();
+        m.paused();
+        m.resumed(5_000);
+        assertEquals(2, m.getPublishedCount());
+        assertEquals(1, m.getAckedCount());
+        assertEquals(1, m.getTimedOutCount());
+        assertEquals(2, m.getRetriedCount());
+        assertEquals(1, m.getCompletedExceptionallyCount());
+        assertEquals(1, m.getPausedCount());
+        assertEquals(20, m.getPreFlightTime().getMax());
+        assertEquals(5_000, m.getPausedTime().getMax());
+
+        AsyncJsPublishMetricsJmx jmx = new AsyncJsPublishMetricsJmx(m);
+        assertEquals(2, jmx.getPublishedCount());
+        assertEquals(1000, jmx.getAckLatencyMaxMicros());
+
+        m.reset();
+        assertEquals(0, m.getPublishedCount());
+        assertEquals(0, m.getAckedCount());
+        assertEquals(0, jmx.getAckLatencyMaxMicros());
+    }
+}
@@ -0,0 +1,101 @@
+package io.synadia.jnats.extension;
+
+import io.nats.client.JetStream;
+import io.nats.client.PublishOptions;
+import io.nats.client.impl.Headers;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static io.nats.client.support.NatsJetStreamConstants.MSG_ID_HDR;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MessageIdGeneratorTests {
+
+    @Test
+    public void testFormat() {
+        MessageIdGenerator gen = new MessageIdGenerator("pfx");
+        assertEquals("pfx-1", gen.get());
+        assertEquals("pfx-2", gen.get());
+
+        // crossing digit boundaries must match plain concatenation
+        long[] starts = {8, 98, 999, 123_456_788, 999_999_999_999L, Long.MAX_VALUE - 2};
+        for (long start : starts) {
+            gen = new MessageIdGenerator("pfx", start);
+            for (long x = 1; x <= 2; x++) {
+                assertEquals("pfx-" + (start + x), gen.get());
+            }
+        }
+    }
+
+    @Test
+    public void testUniqueAcrossThreads() throws Exception {
+        MessageIdGenerator gen = new MessageIdGenerator("pfx");
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                for (int x = 0; x < 10_000; x++) {
+                    ids.add(gen.get());
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(40_000, ids.size());
+        assertTrue(ids.contains("pfx-40000"));
+    }
+
+    @Test
+    public void testMessageIdHeaderLeavesCallerHeadersAlone() throws Exception {
+        // the options each publish was sent with, by subject
+        Map<String, PublishOptions> sent = new ConcurrentHashMap<>();
+        CountDownLatch published = new CountDownLatch(4);
+        JetStream js = (JetStream)Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{JetStream.class},
+            (proxy, method, args) -> {
+                if (!method.getName().equals("publishAsync")) {
+                    throw new UnsupportedOperationException();
+                }
+                if (args.length == 4) {
+                    sent.put((String)args[0], (PublishOptions)args[3]);
+                }
+                published.countDown();
+                return new CompletableFuture<>();
+            });
+        try (AsyncJsPublisher publisher = AsyncJsPublisher.builder(js).messageIdHeader(true).build()) {
+            // one headers instance reused for every publish, the common pattern
+            Headers headers = new Headers().put("foo", "bar");
+            PreFlight p1 = publisher.publishAsync("sub1", headers, null);
+            PreFlight p2 = publisher.publishAsync("sub2", headers, null);
+            // neither modified nor copied
+            assertNull(headers.getFirst(MSG_ID_HDR));
+            assertSame(headers, p1.getHeaders());
+            assertSame(headers, p2.getHeaders());
+            assertNotEquals(p1.getMessageId(), p2.getMessageId());
+            PreFlight p3 = publisher.publishAsync("sub3", null, null);
+
+            // a supplied id is used as is
+            Headers withId = new Headers().put(MSG_ID_HDR, "mine");
+            assertEquals("mine", publisher.publishAsync("sub4", withId, null).getMessageId());
+
+            // the id goes out in the publish options, unless the headers have one
+            publisher.start();
+            assertTrue(published.await(5, TimeUnit.SECONDS));
+            assertEquals(p1.getMessageId(), sent.get("sub1").getMessageId());
+            assertEquals(p2.getMessageId(), sent.get("sub2").getMessageId());
+            assertEquals(p3.getMessageId(), sent.get("sub3").getMessageId());
+            assertFalse(sent.containsKey("sub4"));
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package io.synadia.jnats.extension;
+
+import io.nats.client.api.PublishAck;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NotificationBatcherTests {
+
+    static class BatchListener implements AsyncJsPublishListener {
+        final List<String> calls = new ArrayList<>();
+        final AtomicInteger published = new AtomicInteger();
+
+        @Override
+        public void published(InFlight flight) {
+            published.incrementAndGet();
+        }
+
+        @Override
+        public void acked(PostFlight flight) {}
+
+        @Override
+        public void completedExceptionally(PostFlight flight) {}
+
+        @Override
+        public void timeout(PostFlight flight) {}
+
+        @Override
+        public void ackedBatch(List<PostFlight> flights) {
+            calls.add("acked:" + flights.size());
+        }
+
+        @Override
+        public void timeoutBatch(List<PostFlight> flights) {
+            calls.add("timeout:" + flights.size());
+        }
+
+        @Override
+        public void paused(int currentInFlight, int maxInFlight, int resumeAmount) {}
+
+        @Override
+        public void resumed(int currentInFlight, int maxInFlight, int resumeAmount) {}
+    }
+
+    private static PostFlight postFlight() {
+        return new PostFlight(new InFlight(null, null), new Exception());
+    }
+
+    @Test
+    public void testBatchesKeepOrder() {
+        BatchListener listener = new BatchListener();
+        AtomicInteger tasks = new AtomicInteger();
+        NotificationBatcher batcher = new NotificationBatcher(listener, r -> { tasks.incrementAndGet(); r.run(); }, 3);
+
+        for (int x = 0; x < 7; x++) {
+            batcher.acked(postFlight());
+        }
+        assertEquals(2, tasks.get()); // two full batches, one ack waiting
+
+        // a different kind of event hands off what was waiting first
+        batcher.timeout(postFlight());
+        batcher.acked(postFlight());
+        batcher.flush();
+        batcher.flush(); // nothing left, nothing to do
+
+        assertEquals(5, tasks.get());
+        assertEquals("[acked:3, acked:3, acked:1, timeout:1, acked:1]", listener.calls.toString());
+    }
+
+    @Test
+    public void testBatchSizeOneAndDefaultDelegation() {
+        BatchListener listener = new BatchListener();
+        AtomicInteger tasks = new AtomicInteger();
+        NotificationBatcher batcher = new NotificationBatcher(listener, r -> { tasks.incrementAndGet(); r.run(); }, 0);
+        for (int x = 0; x < 4; x++) {
+            batcher.published(new InFlight(null, null));
+        }
+        assertEquals(4, tasks.get());
+        assertEquals(4, listener.published.get());
+    }
+    @Test
+    public void testSharedAcrossThreadsKeepsOrder() throws Exception {
+        // like the runners, one thread publishes and hands the flight to the other, which acks it
+        Set<InFlight> seen = ConcurrentHashMap.newKeySet();
+        AtomicInteger ackedBeforePublished = new AtomicInteger();
+        AtomicInteger acked = new AtomicInteger();
+        AsyncJsPublishListener listener = new BatchListener() {
+            @Override
+            public void publishedBatch(List<InFlight> flights) {
+                seen.addAll(flights);
+            }
+
+            @Override
+            public void ackedBatch(List<PostFlight> flights) {
+                for (PostFlight pf : flights) {
+                    if (!seen.contains(pf.inFlight)) {
+                        ackedBeforePublished.incrementAndGet();
+                    }
+                    acked.incrementAndGet();
+                }
+            }
+        };
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        NotificationBatcher batcher = new NotificationBatcher(listener, executor::submit, 16);
+        BlockingQueue<InFlight> handoff = new LinkedBlockingQueue<>();
+        int count = 50_000;
+
+        Thread publisher = new Thread(() -> {
+            for (int x = 0; x < count; x++) {
+                InFlight flight = new InFlight(null, null);
+                batcher.published(flight);
+                handoff.add(flight);
+            }
+        });
+        Thread acker = new Thread(() -> {
+            try {
+                for (int x = 0; x < count; x++) {
+                    batcher.acked(new PostFlight(handoff.take(), (PublishAck)null));
+                }
+            }
+            catch (InterruptedException ignore) {}
+        });
+        publisher.start();
+        acker.start();
+        publisher.join();
+        acker.join();
+        batcher.flush();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(count, acked.get());
+        assertEquals(0, ackedBeforePublished.get());
+    }
+}
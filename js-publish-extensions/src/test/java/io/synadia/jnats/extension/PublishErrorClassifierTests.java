@@ -0,0 +1,88 @@
+package io.synadia.jnats.extension;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+import static io.synadia.jnats.extension.PublishErrorClass.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PublishErrorClassifierTests {
+
+    @Test
+    public void testApiErrors() {
+        assertEquals(ExpectationFailed, PublishErrorClassifier.classify(400, 10060));
+        assertEquals(ExpectationFailed, PublishErrorClassifier.classify(400, 10070));
+        assertEquals(ExpectationFailed, PublishErrorClassifier.classify(400, 10071));
+        assertEquals(ExpectationFailed, PublishErrorClassifier.classify(400, 10164));
+        assertEquals(Unavailable, PublishErrorClassifier.classify(503, 10008));
+        assertEquals(Unavailable, PublishErrorClassifier.classify(429, 0));
+        assertEquals(ApiError, PublishErrorClassifier.classify(400, 10003));
+        assertEquals(ApiError, PublishErrorClassifier.classify(404, 10059));
+    }
+
+    @Test
+    public void testIoExceptions() {
+        assertEquals(Timeout, PublishErrorClassifier.classify(new IOException("Timeout or no response waiting for NATS JetStream server")));
+        assertEquals(NoResponders, PublishErrorClassifier.classify(new IOException("Error Publishing: 503 No Responders Available For Request")));
+        assertEquals(TooManyRequests, PublishErrorClassifier.classify(new IOException("Error Publishing: 429 Too Many Requests")));
+        assertEquals(Timeout, PublishErrorClassifier.classify(new IOException("Error Publishing: 408 Request Timeout")));
+        assertEquals(Io, PublishErrorClassifier.classify(new IOException("Error Publishing: 500 Something Else")));
+        assertEquals(Io, PublishErrorClassifier.classify(new IOException("Error Publishing: x")));
+        assertEquals(Io, PublishErrorClassifier.classify(new IOException("Connection closed")));
+        assertEquals(Io, PublishErrorClassifier.classify(new IOException()));
+
+        // wording without the status code
+        assertEquals(NoResponders, PublishErrorClassifier.classify(new IOException("503 No Responders")));
+        assertEquals(TooManyRequests, PublishErrorClassifier.classify(new IOException("Too Many Requests")));
+    }
+
+    @Test
+    public void testUnwrapping() {
+        IOException nr = new IOException("Error Publishing: 503 No Responders Available For Request");
+        assertEquals(NoResponders, PublishErrorClassifier.classify(new RuntimeException(nr)));
+        assertEquals(NoResponders, PublishErrorClassifier.classify(new CompletionException(new RuntimeException(nr))));
+        assertEquals(NoResponders, PublishErrorClassifier.classify(new ExecutionException(nr)));
+
+        assertEquals(Runtime, PublishErrorClassifier.classify(new IllegalStateException(nr)));
+        assertEquals(Runtime, PublishErrorClassifier.classify(new RuntimeException("plain")));
+        assertEquals(Runtime, PublishErrorClassifier.classify(new CompletionException(new IllegalArgumentException())));
+        assertEquals(Other, PublishErrorClassifier.classify(new Exception()));
+        assertEquals(Other, PublishErrorClassifier.classify(null));
+    }
+
+    @Test
+    public void testOverloaded() {
+        assertTrue(PublishErrorClassifier.isOverloaded(TooManyRequests));
+        assertTrue(PublishErrorClassifier.isOverloaded(NoResponders));
+        assertTrue(PublishErrorClassifier.isOverloaded(Unavailable));
+        assertFalse(PublishErrorClassifier.isOverloaded(Timeout));
+        assertFalse(PublishErrorClassifier.isOverloaded(ApiError));
+    }
+
+    @Test
+    public void testRetryConfig() {
+        PublishRetryConfig config = PublishRetryConfig.DEFAULT_CONFIG;
+        assertTrue(config.shouldRetry(TooManyRequests));
+        assertTrue(config.shouldRetry(NoResponders));
+        assertTrue(config.shouldRetry(Timeout));
+        assertTrue(config.shouldRetry(Io));
+        assertFalse(config.shouldRetry(ExpectationFailed));
+        assertFalse(config.shouldRetry(Unavailable));
+        assertFalse(config.shouldRetry(ApiError));
+        assertFalse(config.shouldRetry(Runtime));
+        assertFalse(config.shouldRetry(Other));
+
+        config = PublishRetryConfig.builder().retryConditions(RetryCondition.values()).build();
+        for (PublishErrorClass pec : PublishErrorClass.values()) {
+            assertTrue(config.shouldRetry(pec));
+        }
+
+        config = PublishRetryConfig.builder().retryErrorClasses(Unavailable, NoResponders).build();
+        for (PublishErrorClass pec : PublishErrorClass.values()) {
+            assertEquals(pec == Unavailable || pec == NoResponders, config.shouldRetry(pec));
+        }
+    }
+}
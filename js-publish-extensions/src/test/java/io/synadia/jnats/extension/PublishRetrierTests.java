@@ -12,8 +12,11 @@ import nats.io.NatsServerRunner;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.TimeUnit;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
 import java.util.logging.Level;
 
 import static io.synadia.jnats.extension.PublishRetryConfig.DEFAULT_CONFIG;
@@ -110,6 +113,94 @@ public class PublishRetrierTests {
         }
     }
 
+    @Test
+    public void testPublishAsyncRetriesOnTheScheduler() throws Exception {
+        List<String> threads = new CopyOnWriteArrayList<>();
+        // the first two attempts fail
+        JetStream js = jetStream(threads, attempt -> attempt < 2 ? new IOException("attempt " + attempt) : null);
+        PublishRetryConfig config = PublishRetryConfig.builder().attempts(3).backoffPolicy(new long[]{10}).build();
+        AtomicInteger retried = new AtomicInteger();
+        CompletableFuture<PublishAck> fpa = PublishRetrier.publishAsync(config, js, "sub", null, null, null, retried::incrementAndGet);
+        fpa.get(2, TimeUnit.SECONDS);
+        assertFalse(fpa.isCompletedExceptionally());
+        assertEquals(3, threads.size());
+        assertEquals(2, retried.get());
+
+        // the first attempt is made by the caller, no thread waits for the retries, they run on the scheduler
+        assertEquals(Thread.currentThread().getName(), threads.get(0));
+        assertEquals("retrier-scheduler", threads.get(1));
+        assertEquals("retrier-scheduler", threads.get(2));
+    }
+
+    @Test
+    public void testPublishAsyncGivesUp() throws Exception {
+        // every attempt fails, the future fails with the last attempt's exception once the attempts are used up
+        List<String> threads = new CopyOnWriteArrayList<>();
+        JetStream js = jetStream(threads, attempt -> new IOException("attempt " + attempt));
+        PublishRetryConfig config = PublishRetryConfig.builder().attempts(2).backoffPolicy(new long[]{10}).build();
+        AtomicInteger retried = new AtomicInteger();
+        CompletableFuture<PublishAck> fpa = PublishRetrier.publishAsync(config, js, "sub", null, null, null, retried::incrementAndGet);
+        ExecutionException ee = assertThrows(ExecutionException.class, () -> fpa.get(2, TimeUnit.SECONDS));
+        assertTrue(ee.getCause() instanceof IOException);
+        assertEquals("attempt 2", ee.getCause().getMessage());
+        assertEquals(3, threads.size());
+        assertEquals(2, retried.get());
+
+        // a failure that is not a retry condition is not retried
+        threads.clear();
+        js = jetStream(threads, attempt -> new IllegalStateException("attempt " + attempt));
+        CompletableFuture<PublishAck> fpa2 = PublishRetrier.publishAsync(config, js, "sub", null, null, null);
+        ee = assertThrows(ExecutionException.class, () -> fpa2.get(2, TimeUnit.SECONDS));
+        assertTrue(ee.getCause() instanceof IllegalStateException);
+        assertEquals(1, threads.size());
+
+        // nor is a retry past the deadline
+        threads.clear();
+        js = jetStream(threads, attempt -> new IOException("attempt " + attempt));
+        config = PublishRetryConfig.builder().attempts(5).backoffPolicy(new long[]{1000}).deadline(500).build();
+        CompletableFuture<PublishAck> fpa3 = PublishRetrier.publishAsync(config, js, "sub", null, null, null);
+        assertThrows(ExecutionException.class, () -> fpa3.get(200, TimeUnit.MILLISECONDS));
+        assertEquals(1, threads.size());
+    }
+
+    @Test
+    public void testPublishAsyncCancel() throws Exception {
+        List<String> threads = new CopyOnWriteArrayList<>();
+        JetStream js = jetStream(threads, attempt -> new IOException("attempt " + attempt));
+        PublishRetryConfig config = PublishRetryConfig.builder().attempts(5).backoffPolicy(new long[]{200}).build();
+        CompletableFuture<PublishAck> fpa = PublishRetrier.publishAsync(config, js, "sub", null, null, null);
+        assertEquals(1, threads.size());
+
+        // cancelled while waiting for the first retry, which is then never attempted
+        assertTrue(fpa.cancel(true));
+        Thread.sleep(500);
+        assertTrue(fpa.isCancelled());
+        assertEquals(1, threads.size());
+    }
+
+    /**
+     * A JetStream context whose async publishes complete right away, failing with the exception
+     * made for the attempt, or succeeding when it's null. Records the thread of each attempt.
+     */
+    private static JetStream jetStream(List<String> threads, IntFunction<Exception> failure) {
+        return (JetStream)Proxy.newProxyInstance(PublishRetrierTests.class.getClassLoader(), new Class<?>[]{JetStream.class},
+            (proxy, method, args) -> {
+                if (!method.getName().equals("publishAsync")) {
+                    throw new UnsupportedOperationException();
+                }
+                Exception e = failure.apply(threads.size());
+                threads.add(Thread.currentThread().getName());
+                CompletableFuture<PublishAck> f = new CompletableFuture<>();
+                if (e == null) {
+                    f.complete(null);
+                }
+                else {
+                    f.completeExceptionally(e);
+                }
+                return f;
+            });
+    }
+
     private Message message(String subject) {
         return NatsMessage.builder().subject(subject).build();
     }
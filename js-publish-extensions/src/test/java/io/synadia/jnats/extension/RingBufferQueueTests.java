@@ -0,0 +1,110 @@
+package io.synadia.jnats.extension;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RingBufferQueueTests {
+
+    @Test
+    public void testCapacity() {
+        assertEquals(2, new RingBufferQueue<String>(0).capacity());
+        assertEquals(2, new RingBufferQueue<String>(2).capacity());
+        assertEquals(4, new RingBufferQueue<String>(3).capacity());
+        assertEquals(1024, new RingBufferQueue<String>(1000).capacity());
+        assertEquals(1024, new RingBufferQueue<String>(1024).capacity());
+    }
+
+    @Test
+    public void testOfferPollWrap() throws Exception {
+        RingBufferQueue<Integer> q = new RingBufferQueue<>(4);
+        assertTrue(q.isEmpty());
+        assertNull(q.poll());
+        assertNull(q.peek());
+
+        // go around the ring several times to make sure the slots are reused
+        int next = 0;
+        for (int lap = 0; lap < 5; lap++) {
+            for (int x = 0; x < 4; x++) {
+                assertTrue(q.offer(next + x));
+            }
+            assertFalse(q.offer(-1));
+            assertEquals(4, q.size());
+            assertEquals(0, q.remainingCapacity());
+            assertFalse(q.offer(-1, 10, TimeUnit.MILLISECONDS));
+            assertEquals(next, q.peek());
+            for (int x = 0; x < 4; x++) {
+                assertEquals(next + x, q.poll());
+            }
+            assertTrue(q.isEmpty());
+            next += 4;
+        }
+
+        assertNull(q.poll(10, TimeUnit.MILLISECONDS));
+        assertThrows(NullPointerException.class, () -> q.offer(null));
+    }
+
+    @Test
+    public void testIteratorAndDrain() {
+        RingBufferQueue<Integer> q = new RingBufferQueue<>(8);
+        for (int x = 0; x < 5; x++) {
+            q.offer(x);
+        }
+        List<Integer> seen = new ArrayList<>();
+        for (Integer i : q) {
+            seen.add(i);
+        }
+        assertEquals(5, seen.size());
+        assertEquals(5, q.size());
+
+        List<Integer> drained = new ArrayList<>();
+        assertEquals(2, q.drainTo(drained, 2));
+        assertEquals(3, q.drainTo(drained));
+        assertEquals(seen, drained);
+        assertTrue(q.isEmpty());
+    }
+
+    @Test
+    public void testMultipleProducersKeepProducerOrder() throws Exception {
+        int producers = 4;
+        int perProducer = 100_000;
+        RingBufferQueue<Long> q = new RingBufferQueue<>(256);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            long base = (long)p * perProducer;
+            Thread t = new Thread(() -> {
+                for (long x = 0; x < perProducer; x++) {
+                    try {
+                        q.put(base + x);
+                    }
+                    catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            });
+            threads.add(t);
+            t.start();
+        }
+
+        long[] last = new long[producers];
+        for (int p = 0; p < producers; p++) {
+            last[p] = -1;
+        }
+        for (int x = 0; x < producers * perProducer; x++) {
+            Long l = q.poll(5, TimeUnit.SECONDS);
+            assertNotNull(l);
+            int p = (int)(l / perProducer);
+            assertTrue(l > last[p]);
+            last[p] = l;
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        assertTrue(q.isEmpty());
+    }
+}
@@ -0,0 +1,79 @@
+package io.synadia.jnats.extension;
+
+import io.nats.client.JetStream;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShardedAsyncJsPublisherTests {
+
+    @Test
+    public void testShardIndex() {
+        int shardCount = 4;
+        int[] counts = new int[shardCount];
+        for (int x = 0; x < 10_000; x++) {
+            String subject = "orders.region." + x;
+            int ix = ShardedAsyncJsPublisher.shardIndex(subject, shardCount);
+            assertTrue(ix >= 0 && ix < shardCount);
+            // the same subject always goes to the same shard
+            assertEquals(ix, ShardedAsyncJsPublisher.shardIndex(subject, shardCount));
+            counts[ix]++;
+        }
+        for (int count : counts) {
+            assertTrue(count > 2000, "" + count);
+        }
+
+        assertEquals(0, ShardedAsyncJsPublisher.shardIndex("anything", 1));
+    }
+
+    @Test
+    public void testBuilderRequiresJetStream() {
+        assertThrows(IllegalArgumentException.class, () -> ShardedAsyncJsPublisher.builder(new ArrayList<>()));
+        assertThrows(IllegalArgumentException.class, () -> ShardedAsyncJsPublisher.builder((JetStream)null));
+    }
+
+    @Test
+    public void testEachShardSpillsToItsOwnDirectory() throws Exception {
+        Path dir = Files.createTempDirectory("sharded");
+        try (ShardedAsyncJsPublisher p = ShardedAsyncJsPublisher.builder(jetStream(), jetStream())
+            .shardConfig(b -> b.spillDirectory(dir).spillThreshold(1))
+            .build())
+        {
+            for (int x = 0; x < 2; x++) {
+                Path shardDir = dir.resolve(ShardedAsyncJsPublisher.SHARD_DIRECTORY_PREFIX + x);
+                assertTrue(Files.isDirectory(shardDir));
+                assertEquals(1, segmentCount(shardDir));
+            }
+        }
+        assertEquals(0, segmentCount(dir.resolve(ShardedAsyncJsPublisher.SHARD_DIRECTORY_PREFIX + 0)));
+        assertEquals(0, segmentCount(dir.resolve(ShardedAsyncJsPublisher.SHARD_DIRECTORY_PREFIX + 1)));
+    }
+
+    @Test
+    public void testFailedBuildClosesBuiltShards() throws Exception {
+        Path dir = Files.createTempDirectory("sharded");
+        InFlightWindow shared = AimdInFlightWindow.builder().build();
+        assertThrows(IllegalArgumentException.class, () -> ShardedAsyncJsPublisher.builder(jetStream(), jetStream())
+            .shardConfig(b -> b.spillDirectory(dir).inFlightWindow(shared))
+            .build());
+        // the first shard was built and closed, which removed its spill segment
+        assertEquals(0, segmentCount(dir.resolve(ShardedAsyncJsPublisher.SHARD_DIRECTORY_PREFIX + 0)));
+    }
+
+    private static JetStream jetStream() {
+        return (JetStream)Proxy.newProxyInstance(ShardedAsyncJsPublisherTests.class.getClassLoader(), new Class<?>[]{JetStream.class},
+            (proxy, method, args) -> { throw new UnsupportedOperationException(); });
+    }
+
+    private static long segmentCount(Path dir) throws Exception {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(f -> f.getFileName().toString().endsWith(SpillQueue.SEGMENT_SUFFIX)).count();
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package io.synadia.jnats.extension;
+
+import io.nats.client.impl.Headers;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SpillQueueTests {
+
+    private static PreFlight preFlight(int x) {
+        return new PreFlight("id-" + x, "subject." + x, null, ("data-" + x).getBytes());
+    }
+
+    private static void assertPreFlight(int x, PreFlight p) {
+        assertNotNull(p);
+        assertEquals("id-" + x, p.getMessageId());
+        assertEquals("subject." + x, p.getSubject());
+        assertEquals("data-" + x, new String(p.getBody()));
+    }
+
+    private static List<Path> segments(Path dir) throws IOException {
+        List<Path> list = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*" + SpillQueue.SEGMENT_SUFFIX)) {
+            for (Path p : stream) {
+                list.add(p);
+            }
+        }
+        return list;
+    }
+
+    private static void delete(Path dir) throws IOException {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path p : stream) {
+                Files.delete(p);
+            }
+        }
+        Files.delete(dir);
+    }
+
+    @Test
+    public void testOrderAcrossSegments() throws Exception {
+        Path dir = Files.createTempDirectory("spill");
+        try (SpillQueue q = new SpillQueue(dir, 128, false)) {
+            assertTrue(q.isEmpty());
+            assertNull(q.poll());
+
+            List<PreFlight> appended = new ArrayList<>();
+            for (int x = 0; x < 50; x++) {
+                PreFlight p = preFlight(x);
+                appended.add(p);
+                q.append(p);
+            }
+            assertEquals(50, q.size());
+            assertTrue(segments(dir).size() > 5);
+
+            for (int x = 0; x < 50; x++) {
+                PreFlight p = q.poll();
+                assertPreFlight(x, p);
+                // the caller's future follows the message through the spill
+                assertSame(appended.get(x).getInFlightFuture(), p.getInFlightFuture());
+                if (x == 25) {
+                    q.append(preFlight(50));
+                }
+            }
+            assertPreFlight(50, q.poll());
+            assertNull(q.poll());
+            assertTrue(q.isEmpty());
+            assertEquals(1, segments(dir).size()); // read segments are deleted
+        }
+        assertEquals(0, segments(dir).size());
+        delete(dir);
+    }
+
+    @Test
+    public void testHeadersAndNullsAndLargeRecord() throws Exception {
+        Path dir = Files.createTempDirectory("spill");
+        try (SpillQueue q = new SpillQueue(dir, 64, false)) {
+            Headers h = new Headers().put("a", "1", "2").put("b", "3");
+            q.append(new PreFlight("id", "subject", h, new byte[1000]));
+            q.append(new PreFlight(null, "subject", new Headers(), null));
+
+            PreFlight p = q.poll();
+            assertNotNull(p);
+            assertEquals(1000, p.getBody().length);
+            assertEquals(2, p.getHeaders().get("a").size());
+            assertEquals("2", p.getHeaders().get("a").get(1));
+            assertEquals("3", p.getHeaders().getFirst("b"));
+
+            p = q.poll();
+            assertNotNull(p);
+            assertNull(p.getMessageId());
+            assertNull(p.getBody());
+            assertTrue(p.getHeaders().isEmpty());
+        }
+        delete(dir);
+    }
+
+    @Test
+    public void testDurableRecovery() throws Exception {
+        Path dir = Files.createTempDirectory("spill");
+        try (SpillQueue q = new SpillQueue(dir, 256, true)) {
+            for (int x = 0; x < 20; x++) {
+                q.append(preFlight(x));
+            }
+            for (int x = 0; x < 7; x++) {
+                assertPreFlight(x, q.poll());
+            }
+        }
+
+        // picks up after the last read record and appends after the recovered ones
+        try (SpillQueue q = new SpillQueue(dir, 256, true)) {
+            assertEquals(13, q.size());
+            q.append(preFlight(20));
+            for (int x = 7; x < 10; x++) {
+                PreFlight p = q.poll();
+                assertPreFlight(x, p);
+                assertFalse(p.getInFlightFuture().isDone());
+            }
+        }
+
+        try (SpillQueue q = new SpillQueue(dir, 256, true)) {
+            assertEquals(11, q.size());
+            for (int x = 10; x <= 20; x++) {
+                assertPreFlight(x, q.poll());
+            }
+            assertNull(q.poll());
+        }
+
+        // not durable starts over
+        try (SpillQueue q = new SpillQueue(dir, 256, true)) {
+            q.append(preFlight(1));
+        }
+        try (SpillQueue q = new SpillQueue(dir, 256, false)) {
+            assertTrue(q.isEmpty());
+        }
+        delete(dir);
+    }
+
+    @Test
+    public void testDurableCloseKeepsFrontMessagesFirst() throws Exception {
+        Path dir = Files.createTempDirectory("spill");
+        SpillQueue q = new SpillQueue(dir, 256, true);
+        for (int x = 10; x < 30; x++) {
+            q.append(preFlight(x));
+        }
+        for (int x = 10; x < 15; x++) {
+            assertPreFlight(x, q.poll());
+        }
+
+        // messages still in memory were queued before the spilled ones
+        List<PreFlight> front = new ArrayList<>();
+        for (int x = 0; x < 5; x++) {
+            front.add(preFlight(x));
+        }
+        q.close(front);
+        assertThrows(IOException.class, () -> q.append(preFlight(99)));
+        assertThrows(IOException.class, q::poll);
+        q.close(); // closing again does nothing
+        assertFalse(Files.exists(dir.resolve(SpillQueue.FRONT_FILE)));
+
+        try (SpillQueue q2 = new SpillQueue(dir, 256, true)) {
+            assertEquals(20, q2.size());
+            for (int x = 0; x < 5; x++) {
+                assertPreFlight(x, q2.poll());
+            }
+            for (int x = 15; x < 30; x++) {
+                assertPreFlight(x, q2.poll());
+            }
+            assertNull(q2.poll());
+        }
+
+        // front messages are dropped when not durable, like the spilled ones
+        SpillQueue q3 = new SpillQueue(dir, 256, false);
+        q3.append(preFlight(0));
+        q3.close(front);
+        assertEquals(0, segments(dir).size());
+        delete(dir);
+    }
+}
@@ -0,0 +1,32 @@
+package io.synadia.jnats.extension;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VirtualThreadsTests {
+
+    private static int javaVersion() {
+        String v = System.getProperty("java.specification.version");
+        return v.startsWith("1.") ? Integer.parseInt(v.substring(2)) : Integer.parseInt(v);
+    }
+
+    @Test
+    public void testSupportMatchesRuntime() throws Exception {
+        if (javaVersion() >= 21) {
+            assertTrue(VirtualThreads.isSupported());
+            CountDownLatch ran = new CountDownLatch(1);
+            Thread t = VirtualThreads.factory().newThread(ran::countDown);
+            assertEquals(true, Thread.class.getMethod("isVirtual").invoke(t));
+            t.start();
+            assertTrue(ran.await(5, TimeUnit.SECONDS));
+        }
+        else if (javaVersion() < 19) {
+            assertFalse(VirtualThreads.isSupported());
+            assertNull(VirtualThreads.factory());
+        }
+    }
+}
@@ -0,0 +1,89 @@
+// Copyright 2022 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.synadia.examples;
+
+import io.nats.client.*;
+import io.synadia.rm.RequestMany;
+import io.synadia.rm.RmIterator;
+import io.synadia.rm.RmMessage;
+
+/**
+ * Iterator returns immediately, then each response is pulled as you ask for it, on your thread
+ */
+public class IteratorExample {
+    static final String RESPOND_SUBJECT = "rsvp";
+    static final int RESPONDERS = 100;
+
+    public static void main(String[] args) throws Exception {
+
+        Options options = new Options.Builder()
+            .server("nats://localhost:4222")
+            .errorListener(new ErrorListener() {})
+            .build();
+
+        try (Connection nc = Nats.connect(options)) {
+
+            long connTimeout = nc.getOptions().getConnectionTimeout().toMillis();
+
+            // The default request is to get as many in the default time period
+            System.out.println("Default Connection Timeout: " + connTimeout + "\n");
+
+            // start a responder simulator.
+            Dispatcher dispatcher = nc.createDispatcher(m -> {
+                for (int x = 0; x < RESPONDERS; x++) {
+                    nc.publish(m.getReplyTo(), ("R" + x + "-" + new String(m.getData())).getBytes());
+                }
+            });
+            dispatcher.subscribe(RESPOND_SUBJECT);
+
+            // On an iterator...
+            // Nothing is collected ahead of you, so memory does not grow with the number of responders.
+            // The last message is always an End of Data (EOD), either a RmMessage.NORMAL_EOD
+            // or an RmMessage with a status message or exception if there was an exceptional reason for the completion.
+            RequestMany rm = RequestMany.builder(nc).build();
+            System.out.println("A. Expect " + RESPONDERS + " data messages and 1 EOD in slightly more than " + (connTimeout / 10) + " ms.");
+            System.out.println("   " + rm);
+
+            int ix = 0;
+            long start = System.currentTimeMillis();
+            try (RmIterator it = rm.iterator(RESPOND_SUBJECT, "rqst".getBytes())) {
+                while (it.hasNext()) {
+                    RmMessage rmm = it.next();
+                    if (rmm.isEndOfData() || ix % 20 == 0) {
+                        report(ix, rmm);
+                    }
+                    ix++;
+                }
+            }
+            long elapsed = System.currentTimeMillis() - start;
+            System.out.println("   Count: " + ix + ", Elapsed: " + elapsed + " ms");
+
+            // You can stop any time. Closing the iterator stops the request and no EOD is given.
+            System.out.println("\nB. Expect 5 data messages very quickly, then stop.");
+            ix = 0;
+            start = System.currentTimeMillis();
+            try (RmIterator it = rm.iterator(RESPOND_SUBJECT, "rqst".getBytes())) {
+                while (it.hasNext() && ix < 5) {
+                    report(ix++, it.next());
+                }
+            }
+            elapsed = System.currentTimeMillis() - start;
+            System.out.println("   Count: " + ix + ", Elapsed: " + elapsed + " ms");
+        }
+    }
+
+    private static void report(int ix, RmMessage rmm) {
+        System.out.println("   " + ix + ". " + rmm);
+    }
+}
@@ -33,12 +33,16 @@ public class RequestMany {
     private static final long MAX_NANOS = MAX_MILLIS * NANOS_PER_MILLI;      // "
 
     public static final long DEFAULT_SENTINEL_STRATEGY_TOTAL_WAIT = Duration.ofMinutes(10).toMillis();
+    public static final long DEFAULT_ITERATOR_PENDING_MESSAGES = 1000;
+    public static final long DEFAULT_ITERATOR_PENDING_BYTES = 8 * 1024 * 1024;
 
     private final Connection conn;
     private final long totalWaitTimeNanos;
     private final long stallNanos;
     private final long maxResponses;
     private final boolean standardSentinel;
+    private final long iteratorPendingMessages;
+    private final long iteratorPendingBytes;
 
     @Override
     public String toString() {
@@ -54,6 +58,8 @@ public class RequestMany {
         this.stallNanos = b.stallNanos;
         this.maxResponses = b.maxResponses;
         this.standardSentinel = b.standardSentinel;
+        this.iteratorPendingMessages = b.iteratorPendingMessages;
+        this.iteratorPendingBytes = b.iteratorPendingBytes;
     }
 
     /**
@@ -88,6 +94,22 @@ public class RequestMany {
         return standardSentinel;
     }
 
+    /**
+     * The most responses an iterator holds that have arrived but not been asked for yet
+     * @return the number of messages
+     */
+    public long getIteratorPendingMessages() {
+        return iteratorPendingMessages;
+    }
+
+    /**
+     * The most bytes of responses an iterator holds that have arrived but not been asked for yet
+     * @return the number of bytes
+     */
+    public long getIteratorPendingBytes() {
+        return iteratorPendingBytes;
+    }
+
     /**
      * Helper to start a builder
      * @param conn the connection since a connection is required
@@ -223,6 +245,8 @@ public class RequestMany {
         private long stallNanos = -1;
         private long maxResponses = -1;
         private boolean standardSentinel = false;
+        private long iteratorPendingMessages = DEFAULT_ITERATOR_PENDING_MESSAGES;
+        private long iteratorPendingBytes = DEFAULT_ITERATOR_PENDING_BYTES;
 
         public Builder(Connection conn) {
             this.conn = conn;
@@ -283,6 +307,22 @@ public class RequestMany {
             return this;
         }
 
+        /**
+         * Limit the responses an iterator holds that have arrived but not been asked for yet.
+         * If responses arrive faster than they are asked for and reach either limit,
+         * the subscription drops them as a slow consumer and the iteration ends with an exception EOD.
+         * Defaults to {@value #DEFAULT_ITERATOR_PENDING_MESSAGES} messages
+         * and {@value #DEFAULT_ITERATOR_PENDING_BYTES} bytes. Only applies to the iterator.
+         * @param maxMessages the maximum number of messages, less than 1 means the default
+         * @param maxBytes the maximum number of bytes, less than 1 means the default
+         * @return the builder
+         */
+        public Builder iteratorPendingLimits(long maxMessages, long maxBytes) {
+            iteratorPendingMessages = maxMessages < 1 ? DEFAULT_ITERATOR_PENDING_MESSAGES : maxMessages;
+            iteratorPendingBytes = maxBytes < 1 ? DEFAULT_ITERATOR_PENDING_BYTES : maxBytes;
+            return this;
+        }
+
         public RequestMany build() {
             // fill in defaults.
             if (totalWaitTimeNanos == -1) {
@@ -322,6 +362,15 @@ public class RequestMany {
         return q;
     }
 
+    public RmIterator iterator(String subject, byte[] payload) {
+        return iterator(subject, null, payload);
+    }
+
+    public RmIterator iterator(String subject, Headers headers, byte[] payload) {
+        return new RmIterator(conn, totalWaitTimeNanos, stallNanos, maxResponses, standardSentinel,
+            iteratorPendingMessages, iteratorPendingBytes, subject, headers, payload);
+    }
+
     public void request(String subject, byte[] payload, RmHandler handler) {
         request(subject, null, payload, handler);
     }
@@ -0,0 +1,147 @@
+// Copyright (c) 2024-2025 Synadia Communications Inc. All Rights Reserved.
+// See LICENSE and NOTICE file for details.
+
+package io.synadia.rm;
+
+import io.nats.client.Connection;
+import io.nats.client.Message;
+import io.nats.client.Subscription;
+import io.nats.client.impl.Headers;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * This class is EXPERIMENTAL, meaning it's api is subject to change.
+ * An iterator over the responses of a RequestMany request, made by {@link RequestMany#iterator(String, Headers, byte[])}.
+ * <p>Responses are pulled from the subscription as the user asks for them, on the user's thread.
+ * Nothing is collected ahead of the user, only responses that have arrived but not been asked for yet
+ * are held by the subscription, up to the iterator pending limits of the RequestMany.
+ * Past the limits, the subscription drops responses as a slow consumer, and since the responses
+ * are then incomplete, the iteration ends with an exception EOD.
+ * <p>The last message is always an end of data (EOD), a RmMessage.NORMAL_EOD,
+ * or an RmMessage with a status message or exception if there was an exceptional reason for the completion.
+ * Closing the iterator before the end stops the request and unsubscribes.
+ */
+public class RmIterator implements Iterator<RmMessage>, AutoCloseable {
+    private final long totalWaitTimeNanos;
+    private final long timeoutStall;
+    private final boolean standardSentinel;
+    private final long start;
+
+    private Subscription sub;
+    private long resultsLeft;
+    private boolean received;
+    private RmMessage next;
+    private boolean done;
+
+    RmIterator(Connection conn, long totalWaitTimeNanos, long stallNanos, long maxResponses, boolean standardSentinel,
+               long pendingMessages, long pendingBytes, String subject, Headers headers, byte[] payload) {
+        this.totalWaitTimeNanos = totalWaitTimeNanos;
+        this.timeoutStall = stallNanos == -1 ? totalWaitTimeNanos : stallNanos; // totalWaitTimeNanos is practical since leftover time will always be less
+        this.standardSentinel = standardSentinel;
+        resultsLeft = maxResponses == -1 ? Long.MAX_VALUE : maxResponses; // Long.MAX_VALUE is a practical no limit
+
+        try {
+            String replyTo = conn.createInbox();
+            sub = conn.subscribe(replyTo);
+            sub.setPendingLimits(pendingMessages, pendingBytes);
+            conn.publish(subject, replyTo, headers, payload);
+        }
+        catch (RuntimeException r) {
+            // the request never got going, the exception is the only thing to give them
+            next = end(new RmMessage(r));
+        }
+        start = System.nanoTime();
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !done) {
+            next = pull();
+        }
+        return next != null;
+    }
+
+    @Override
+    public RmMessage next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        RmMessage rmm = next;
+        next = null;
+        return rmm;
+    }
+
+    /**
+     * Stop the request. Responses that have not been asked for yet are dropped and no EOD is given.
+     */
+    @Override
+    public void close() {
+        next = null;
+        if (!done) {
+            end(null);
+        }
+    }
+
+    private RmMessage pull() {
+        try {
+            if (sub.getDroppedCount() > 0) {
+                return end(slowConsumer());
+            }
+            // measured from the start, so the time the user takes between messages counts against the total wait time
+            long timeLeftNanos = totalWaitTimeNanos - (System.nanoTime() - start);
+            if (timeLeftNanos <= 0 || resultsLeft < 1) {
+                // we got the count or we are over time. Uses the default EOD
+                return end(RmMessage.NORMAL_EOD);
+            }
+
+            // first time we wait the whole time left,
+            // subsequent times we wait the shortest of the time left vs the max stall
+            long timeoutNanos = received ? Math.min(timeLeftNanos, timeoutStall) : timeLeftNanos;
+
+            // java sub next message returns null on timeout
+            Message msg = sub.nextMessage(Duration.ofNanos(timeoutNanos));
+            if (msg == null) {
+                // timeout indicates we are done, unless responses were dropped. uses the default EOD
+                return end(sub.getDroppedCount() > 0 ? slowConsumer() : RmMessage.NORMAL_EOD);
+            }
+            if (msg.isStatusMessage()) {
+                // status is terminal. Uses the status EOD so the user can see what happened.
+                return end(new RmMessage(msg));
+            }
+            if (standardSentinel) {
+                if (msg.getData() == null || msg.getData().length == 0) {
+                    return end(RmMessage.NORMAL_EOD);
+                }
+            }
+            resultsLeft--;
+            received = true;
+            return new RmMessage(msg);
+        }
+        catch (RuntimeException r) {
+            return end(new RmMessage(r));
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return end(new RmMessage(e));
+        }
+    }
+
+    private RmMessage slowConsumer() {
+        return new RmMessage(new IllegalStateException(
+            "Slow consumer, " + sub.getDroppedCount() + " responses were dropped past the pending limits."));
+    }
+
+    private RmMessage end(RmMessage eod) {
+        done = true;
+        try {
+            if (sub != null) {
+                sub.unsubscribe();
+            }
+        }
+        catch (Exception ignore) {}
+        return eod;
+    }
+}
@@ -10,6 +10,7 @@ import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
@@ -90,6 +91,18 @@ public class RequestManyTests {
         return result;
     }
 
+    private static Result _iterator(RequestMany rm, String subject) {
+        Result result = new Result();
+        long start = System.currentTimeMillis();
+        try (RmIterator it = rm.iterator(subject, null)) {
+            while (it.hasNext()) {
+                result.list.add(it.next());
+            }
+        }
+        result.elapsed = System.currentTimeMillis() - start;
+        return result;
+    }
+
     public String random() {
         return NUID.nextGlobalSequence();
     }
@@ -119,6 +132,14 @@ public class RequestManyTests {
         assertTrue(result.elapsed < SHORT_CIRCUIT_TIME);
     }
 
+    @Test
+    public void testNoRespondersIterator() throws Exception {
+        RequestMany rm = builder().build();
+        Result result = _iterator(rm, random());
+        assertMessages(0, Last.Status, result.list);
+        assertTrue(result.elapsed < SHORT_CIRCUIT_TIME);
+    }
+
     @Test
     public void testMaxWaitRequest() throws Exception {
         try (Responder responder = new Responder(1, MAX_WAIT_PAUSE, 1)) {
@@ -150,6 +171,16 @@ public class RequestManyTests {
         }
     }
 
+    @Test
+    public void testMaxWaitIterator() throws Exception {
+        try (Responder responder = new Responder(1, MAX_WAIT_PAUSE, 1)) {
+            RequestMany rm = builder().totalWaitTime(TEST_TWT).build();
+            Result result = _iterator(rm, responder.subject);
+            assertMessages(1, Last.Normal, result.list);
+            assertTrue(result.elapsed >= TEST_TWT);
+        }
+    }
+
     @Test
     public void testStallRequest() throws Exception {
         try (Responder responder = new Responder(1, STALL_PAUSE, 1)) {
@@ -191,6 +222,21 @@ public class RequestManyTests {
         }
     }
 
+    @Test
+    public void testStallIterator() throws Exception {
+        try (Responder responder = new Responder(1, STALL_PAUSE, 1)) {
+            RequestMany rm = builder().stallTime(STALL_WAIT).build();
+            Result result = _iterator(rm, responder.subject);
+            assertMessages(1, Last.Normal, result.list);
+            assertTrue(result.elapsed <= DEFAULT_TIMEOUT);
+
+            rm = RequestMany.stall(NC);
+            result = _iterator(rm, responder.subject);
+            assertMessages(1, Last.Normal, result.list);
+            assertTrue(result.elapsed <= DEFAULT_TIMEOUT);
+        }
+    }
+
     @Test
     public void testMaxResponsesRequest() throws Exception {
         try (Responder responder = new Responder(MAX_RESPONSES_RESPONDERS)) {
@@ -232,6 +278,21 @@ public class RequestManyTests {
         }
     }
 
+    @Test
+    public void testMaxResponsesIterator() throws Exception {
+        try (Responder responder = new Responder(MAX_RESPONSES_RESPONDERS)) {
+            RequestMany rm = builder().maxResponses(MAX_RESPONSES).build();
+            Result result = _iterator(rm, responder.subject);
+            assertMessages(MAX_RESPONSES, Last.Normal, result.list);
+            assertTrue(result.elapsed < SHORT_CIRCUIT_TIME);
+
+            rm = RequestMany.maxResponses(NC, MAX_RESPONSES);
+            result = _iterator(rm, responder.subject);
+            assertMessages(MAX_RESPONSES, Last.Normal, result.list);
+            assertTrue(result.elapsed < SHORT_CIRCUIT_TIME);
+        }
+    }
+
     @Test
     public void testSentinelRequest() throws Exception {
         try (Responder responder = new Responder(2, true)) {
@@ -275,6 +336,21 @@ public class RequestManyTests {
         }
     }
 
+    @Test
+    public void testSentinelIterator() throws Exception {
+        try (Responder responder = new Responder(2, true)) {
+            RequestMany rm = builder().standardSentinel().build();
+            Result result = _iterator(rm, responder.subject);
+            assertMessages(2, Last.Normal, result.list);
+            assertTrue(result.elapsed <= DEFAULT_TIMEOUT);
+
+            rm = RequestMany.standardSentinel(NC);
+            result = _iterator(rm, responder.subject);
+            assertMessages(2, Last.Normal, result.list);
+            assertTrue(result.elapsed <= DEFAULT_TIMEOUT);
+        }
+    }
+
     @Test
     public void testUserSentinel() throws Exception {
         try (Responder responder = new Responder(MAX_RESPONSES_RESPONDERS)) {
@@ -288,6 +364,78 @@ public class RequestManyTests {
         }
     }
 
+    @Test
+    public void testIteratorClose() throws Exception {
+        try (Responder responder = new Responder(MAX_RESPONSES_RESPONDERS)) {
+            RequestMany rm = builder().build();
+            List<RmMessage> list = new ArrayList<>();
+            long start = System.currentTimeMillis();
+            RmIterator it = rm.iterator(responder.subject, null);
+            while (it.hasNext() && list.size() < 2) {
+                list.add(it.next());
+            }
+            it.close();
+            assertTrue(System.currentTimeMillis() - start < SHORT_CIRCUIT_TIME);
+            assertMessages(2, Last.None, list);
+            assertFalse(it.hasNext());
+            assertThrows(NoSuchElementException.class, it::next);
+        }
+    }
+
+    @Test
+    public void testIteratorUserTimeCountsAgainstTotalWait() throws Exception {
+        try (Responder responder = new Responder(1, MAX_WAIT_PAUSE, 1)) {
+            RequestMany rm = builder().totalWaitTime(TEST_TWT).build();
+            List<RmMessage> list = new ArrayList<>();
+            long start = System.currentTimeMillis();
+            try (RmIterator it = rm.iterator(responder.subject, null)) {
+                list.add(it.next());
+                Thread.sleep(STALL_PAUSE); // the user's time between messages is deducted from the next wait
+                while (it.hasNext()) {
+                    list.add(it.next());
+                }
+            }
+            long elapsed = System.currentTimeMillis() - start;
+            assertMessages(1, Last.Normal, list);
+            assertTrue(elapsed >= TEST_TWT);
+            assertTrue(elapsed < TEST_TWT + STALL_PAUSE);
+        }
+    }
+
+    @Test
+    public void testIteratorSlowConsumer() throws Exception {
+        try (Responder responder = new Responder(100)) {
+            RequestMany rm = builder().iteratorPendingLimits(5, 0).build();
+            List<RmMessage> list = new ArrayList<>();
+            try (RmIterator it = rm.iterator(responder.subject, null)) {
+                list.add(it.next());
+                Thread.sleep(500); // the responses arrive while we are not asking for them
+                while (it.hasNext()) {
+                    list.add(it.next());
+                }
+            }
+            RmMessage last = list.get(list.size() - 1);
+            assertTrue(last.isException());
+            assertTrue(last.getException().getMessage().contains("Slow consumer"));
+            assertTrue(list.size() < 100);
+        }
+    }
+
+    @Test
+    public void testIteratorPendingLimitsBuilder() {
+        RequestMany rm = builder().build();
+        assertEquals(RequestMany.DEFAULT_ITERATOR_PENDING_MESSAGES, rm.getIteratorPendingMessages());
+        assertEquals(RequestMany.DEFAULT_ITERATOR_PENDING_BYTES, rm.getIteratorPendingBytes());
+
+        rm = builder().iteratorPendingLimits(10, 1000).build();
+        assertEquals(10, rm.getIteratorPendingMessages());
+        assertEquals(1000, rm.getIteratorPendingBytes());
+
+        rm = builder().iteratorPendingLimits(0, -1).build();
+        assertEquals(RequestMany.DEFAULT_ITERATOR_PENDING_MESSAGES, rm.getIteratorPendingMessages());
+        assertEquals(RequestMany.DEFAULT_ITERATOR_PENDING_BYTES, rm.getIteratorPendingBytes());
+    }
+
     @Test
     public void testRequestManyBuilder() {
         // totalWaitTime
@@ -0,0 +1,70 @@
+// Copyright (c) 2024-2025 Synadia Communications Inc. All Rights Reserved.
+// See LICENSE and NOTICE file for details.
+
+package io.synadia.retrier;
+
+/**
+ * Decides how long to wait before each retry.
+ * The jittered strategies spread out the retries of many clients that failed at the same moment,
+ * for instance when a server restarts, so they don't all come back at once.
+ */
+public interface BackoffStrategy {
+    /**
+     * The time to wait before a retry
+     * @param retry the retry number, 1 for the first retry
+     * @param previousBackoff the time waited before the previous retry, 0 before the first retry
+     * @return the time to wait in milliseconds
+     */
+    long backoff(int retry, long previousBackoff);
+
+    /**
+     * Waits the times of the policy in order, repeating the last time once the policy runs out.
+     * This is the strategy of a {@link RetryConfig} backoff policy.
+     * @param backoffPolicy the policy array
+     * @return the strategy
+     */
+    static BackoffStrategy policy(long[] backoffPolicy) {
+        long[] policy = backoffPolicy.clone();
+        return (retry, previousBackoff) -> retry <= policy.length ? policy[retry - 1] : policy[policy.length - 1];
+    }
+
+    /**
+     * Doubles the wait with each retry, starting at the initial time, up to the max time
+     * @param initialMillis the wait before the first retry
+     * @param maxMillis the longest wait
+     * @return the strategy
+     */
+    static BackoffStrategy exponential(long initialMillis, long maxMillis) {
+        BackoffSupport.validate(initialMillis, maxMillis);
+        return (retry, previousBackoff) -> BackoffSupport.exponential(initialMillis, maxMillis, retry);
+    }
+
+    /**
+     * Waits a random time between 0 and the exponential wait for the retry.
+     * This spreads out retries the most, at the cost of some retries coming very soon.
+     * @param initialMillis the exponential wait before the first retry
+     * @param maxMillis the longest wait
+     * @return the strategy
+     */
+    static BackoffStrategy fullJitter(long initialMillis, long maxMillis) {
+        BackoffSupport.validate(initialMillis, maxMillis);
+        return (retry, previousBackoff) -> BackoffSupport.random(0, BackoffSupport.exponential(initialMillis, maxMillis, retry));
+    }
+
+    /**
+     * Waits a random time between the initial time and 3 times the previous wait, at most the max time.
+     * The first retry waits up to 3 times the initial time.
+     * The wait grows about as fast as exponential, but each client's waits drift apart from the others'.
+     * @param initialMillis the shortest wait
+     * @param maxMillis the longest wait
+     * @return the strategy
+     */
+    static BackoffStrategy decorrelatedJitter(long initialMillis, long maxMillis) {
+        BackoffSupport.validate(initialMillis, maxMillis);
+        return (retry, previousBackoff) -> {
+            // the first retry starts from the initial time, as if that had been the previous wait
+            long previous = Math.max(initialMillis, previousBackoff);
+            return BackoffSupport.random(initialMillis, previous > maxMillis / 3 ? maxMillis : previous * 3);
+        };
+    }
+}
@@ -0,0 +1,39 @@
+// Copyright (c) 2024-2025 Synadia Communications Inc. All Rights Reserved.
+// See LICENSE and NOTICE file for details.
+
+package io.synadia.retrier;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The arithmetic of the {@link BackoffStrategy} factories
+ */
+final class BackoffSupport {
+    private BackoffSupport() {}  /* ensures cannot be constructed */
+
+    /**
+     * A random number from low to high, inclusive
+     */
+    static long random(long low, long high) {
+        return high == Long.MAX_VALUE
+            ? ThreadLocalRandom.current().nextLong(low, high)
+            : ThreadLocalRandom.current().nextLong(low, high + 1);
+    }
+
+    static void validate(long initialMillis, long maxMillis) {
+        if (initialMillis < 1 || maxMillis < initialMillis) {
+            throw new IllegalArgumentException("Initial time must be at least 1 and not more than the max time.");
+        }
+    }
+
+    /**
+     * initialMillis * 2^(retry - 1), at most maxMillis
+     */
+    static long exponential(long initialMillis, long maxMillis, int retry) {
+        int shift = retry - 1;
+        if (shift >= 62 || initialMillis > (maxMillis >> shift)) {
+            return maxMillis;
+        }
+        return initialMillis << shift;
+    }
+}
@@ -0,0 +1,252 @@
+// Copyright (c) 2024-2025 Synadia Communications Inc. All Rights Reserved.
+// See LICENSE and NOTICE file for details.
+
+package io.synadia.retrier;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A circuit breaker shared by every execution whose config references it.
+ * <p>
+ * While Closed, the outcome of every attempt goes into a sliding window of the most recent outcomes.
+ * Once the window has at least the minimum number of calls and the failure rate reaches the threshold,
+ * the circuit opens. While Open, executions fail right away with a {@link CircuitOpenException}
+ * and retries stop. After the open duration the circuit is HalfOpen: a few probe calls go through,
+ * and if they all succeed the circuit closes, while any failure opens it again.
+ * <p>
+ * The circuit breaker is thread safe. Checking an open circuit takes no lock.
+ */
+public class CircuitBreaker {
+    public static final int DEFAULT_WINDOW_SIZE = 100;
+    public static final int DEFAULT_MINIMUM_CALLS = 20;
+    public static final int DEFAULT_FAILURE_RATE_THRESHOLD = 50;
+    public static final long DEFAULT_OPEN_DURATION_MILLIS = 5000;
+    public static final int DEFAULT_HALF_OPEN_PROBES = 3;
+
+    private final int windowSize;
+    private final int minimumCalls;
+    private final int failureRateThreshold;
+    private final long openDurationNanos;
+    private final int halfOpenProbes;
+
+    private final boolean[] window; // true is a failure
+    private int windowIx;
+    private int calls;
+    private int failures;
+
+    private volatile CircuitState state;
+    private volatile long openUntilNanos;
+    private int probesStarted;
+    private int probesSucceeded;
+
+    private CircuitBreaker(Builder b) {
+        windowSize = b.windowSize;
+        minimumCalls = Math.min(b.minimumCalls, windowSize);
+        failureRateThreshold = b.failureRateThreshold;
+        openDurationNanos = TimeUnit.MILLISECONDS.toNanos(b.openDurationMillis);
+        halfOpenProbes = b.halfOpenProbes;
+        window = new boolean[windowSize];
+        state = CircuitState.Closed;
+    }
+
+    /**
+     * Ask to make a call
+     * @return true if the call can be made, false if the circuit is open or the half open probes are all taken
+     */
+    public boolean tryAcquire() {
+        if (state == CircuitState.Open && System.nanoTime() - openUntilNanos < 0) {
+            return false;
+        }
+        synchronized (this) {
+            if (state == CircuitState.Open) {
+                if (System.nanoTime() - openUntilNanos < 0) {
+                    return false;
+                }
+                state = CircuitState.HalfOpen;
+                probesStarted = 0;
+                probesSucceeded = 0;
+            }
+            if (state == CircuitState.HalfOpen) {
+                if (probesStarted < halfOpenProbes) {
+                    probesStarted++;
+                    return true;
+                }
+                return false;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Record a call that succeeded
+     */
+    public synchronized void recordSuccess() {
+        if (state == CircuitState.HalfOpen) {
+            if (++probesSucceeded >= halfOpenProbes) {
+                close();
+            }
+        }
+        else if (state == CircuitState.Closed) {
+            record(false);
+        }
+    }
+
+    /**
+     * Record a call that failed
+     */
+    public synchronized void recordFailure() {
+        if (state == CircuitState.HalfOpen) {
+            open();
+        }
+        else if (state == CircuitState.Closed) {
+            record(true);
+            if (calls >= minimumCalls && failures * 100 >= failureRateThreshold * calls) {
+                open();
+            }
+        }
+    }
+
+    /**
+     * The current state. An open circuit whose open duration has passed
+     * reports Open until the next call makes it half open.
+     * @return the state
+     */
+    public CircuitState getState() {
+        return state;
+    }
+
+    /**
+     * Whether calls are currently failing fast
+     * @return true if the circuit is open and the open duration has not passed
+     */
+    public boolean isOpen() {
+        return state == CircuitState.Open && System.nanoTime() - openUntilNanos < 0;
+    }
+
+    /**
+     * The failure rate of the calls in the window
+     * @return the rate in percent, 0 if there have been no calls
+     */
+    public synchronized double getFailureRate() {
+        return calls == 0 ? 0 : failures * 100.0 / calls;
+    }
+
+    private void record(boolean failure) {
+        if (calls == windowSize) {
+            if (window[windowIx]) {
+                failures--;
+            }
+        }
+        else {
+            calls++;
+        }
+        window[windowIx] = failure;
+        if (failure) {
+            failures++;
+        }
+        windowIx = (windowIx + 1) % windowSize;
+    }
+
+    private void open() {
+        openUntilNanos = System.nanoTime() + openDurationNanos;
+        state = CircuitState.Open;
+    }
+
+    private void close() {
+        windowIx = 0;
+        calls = 0;
+        failures = 0;
+        state = CircuitState.Closed;
+    }
+
+    @Override
+    public String toString() {
+        return "CircuitBreaker{" +
+            "state=" + state +
+            ", failureRate=" + getFailureRate() +
+            '}';
+    }
+
+    /**
+     * Creates a builder for the circuit breaker.
+     * @return the builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * The builder class for the CircuitBreaker
+     */
+    public static class Builder {
+        private int windowSize = DEFAULT_WINDOW_SIZE;
+        private int minimumCalls = DEFAULT_MINIMUM_CALLS;
+        private int failureRateThreshold = DEFAULT_FAILURE_RATE_THRESHOLD;
+        private long openDurationMillis = DEFAULT_OPEN_DURATION_MILLIS;
+        private int halfOpenProbes = DEFAULT_HALF_OPEN_PROBES;
+
+        /**
+         * Set the number of most recent calls the failure rate is taken from.
+         * Defaults to {@value #DEFAULT_WINDOW_SIZE}
+         * @param windowSize the number of calls, less than 1 means the default
+         * @return the builder
+         */
+        public Builder windowSize(int windowSize) {
+            this.windowSize = windowSize < 1 ? DEFAULT_WINDOW_SIZE : windowSize;
+            return this;
+        }
+
+        /**
+         * Set the number of calls the window needs before the circuit can open.
+         * Defaults to {@value #DEFAULT_MINIMUM_CALLS}, at most the window size
+         * @param minimumCalls the number of calls, less than 1 means the default
+         * @return the builder
+         */
+        public Builder minimumCalls(int minimumCalls) {
+            this.minimumCalls = minimumCalls < 1 ? DEFAULT_MINIMUM_CALLS : minimumCalls;
+            return this;
+        }
+
+        /**
+         * Set the failure rate that opens the circuit.
+         * Defaults to {@value #DEFAULT_FAILURE_RATE_THRESHOLD}
+         * @param failureRateThreshold the rate in percent, from 1 to 100, otherwise the default
+         * @return the builder
+         */
+        public Builder failureRateThreshold(int failureRateThreshold) {
+            this.failureRateThreshold = failureRateThreshold < 1 || failureRateThreshold > 100
+                ? DEFAULT_FAILURE_RATE_THRESHOLD : failureRateThreshold;
+            return this;
+        }
+
+        /**
+         * Set how long the circuit stays open before probing for recovery.
+         * Defaults to {@value #DEFAULT_OPEN_DURATION_MILLIS}
+         * @param openDurationMillis the time in milliseconds, less than 1 means the default
+         * @return the builder
+         */
+        public Builder openDuration(long openDurationMillis) {
+            this.openDurationMillis = openDurationMillis < 1 ? DEFAULT_OPEN_DURATION_MILLIS : openDurationMillis;
+            return this;
+        }
+
+        /**
+         * Set the number of probe calls allowed while half open, all of which must succeed to close the circuit.
+         * Defaults to {@value #DEFAULT_HALF_OPEN_PROBES}
+         * @param halfOpenProbes the number of calls, less than 1 means the default
+         * @return the builder
+         */
+        public Builder halfOpenProbes(int halfOpenProbes) {
+            this.halfOpenProbes = halfOpenProbes < 1 ? DEFAULT_HALF_OPEN_PROBES : halfOpenProbes;
+            return this;
+        }
+
+        /**
+         * Builds the circuit breaker.
+         * @return CircuitBreaker instance
+         */
+        public CircuitBreaker build() {
+            return new CircuitBreaker(this);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+// Copyright (c) 2024-2025 Synadia Communications Inc. All Rights Reserved.
+// See LICENSE and NOTICE file for details.
+
+package io.synadia.retrier;
+
+import java.io.IOException;
+
+/**
+ * Thrown instead of making a call when its circuit breaker is open.
+ * It is an IOException since it stands in for the communication failures that opened the circuit.
+ */
+public class CircuitOpenException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    public CircuitOpenException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,24 @@
+// Copyright (c) 2024-2025 Synadia Communications Inc. All Rights Reserved.
+// See LICENSE and NOTICE file for details.
+
+package io.synadia.retrier;
+
+/**
+ * The states of a {@link CircuitBreaker}
+ */
+public enum CircuitState {
+    /**
+     * Calls go through and their outcomes are recorded
+     */
+    Closed,
+
+    /**
+     * Calls fail fast without being made
+     */
+    Open,
+
+    /**
+     * A few probe calls go through to test for recovery
+     */
+    HalfOpen
+}
@@ -0,0 +1,94 @@
+// Copyright (c) 2024-2025 Synadia Communications Inc. All Rights Reserved.
+// See LICENSE and NOTICE file for details.
+
+package io.synadia.retrier;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A point in time an execution must finish by, measured on {@link System#nanoTime()}
+ * so changes to the wall clock do not move it. An execution without a deadline
+ * has an unbounded one, whose remaining time is always {@code Long.MAX_VALUE}.
+ */
+public final class Deadline {
+    private static final Deadline UNBOUNDED = new Deadline(false, 0);
+
+    // longer than this and the deadline in nanos overflows, which is the same as no deadline
+    private static final long MAX_MILLIS = TimeUnit.NANOSECONDS.toMillis(Long.MAX_VALUE / 2);
+
+    private final boolean bounded;
+    private final long expiresAtNanos;
+
+    private Deadline(boolean bounded, long expiresAtNanos) {
+        this.bounded = bounded;
+        this.expiresAtNanos = expiresAtNanos;
+    }
+
+    /**
+     * A deadline that never expires
+     * @return the deadline
+     */
+    public static Deadline unbounded() {
+        return UNBOUNDED;
+    }
+
+    /**
+     * A deadline the given time from now
+     * @param millis the time in milliseconds, less than 1 or too long to measure means unbounded
+     * @return the deadline
+     */
+    public static Deadline after(long millis) {
+        if (millis < 1 || millis > MAX_MILLIS) {
+            return UNBOUNDED;
+        }
+        return new Deadline(true, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    /**
+     * Whether there is a deadline
+     * @return false if the deadline never expires
+     */
+    public boolean isBounded() {
+        return bounded;
+    }
+
+    /**
+     * Whether the deadline has passed
+     * @return true if there is no time remaining
+     */
+    public boolean isExpired() {
+        return bounded && expiresAtNanos - System.nanoTime() <= 0;
+    }
+
+    /**
+     * The time remaining
+     * @return the time in nanoseconds, 0 once expired, Long.MAX_VALUE if unbounded
+     */
+    public long remainingNanos() {
+        return bounded ? Math.max(0, expiresAtNanos - System.nanoTime()) : Long.MAX_VALUE;
+    }
+
+    /**
+     * The time remaining
+     * @return the time in milliseconds, 0 once expired, Long.MAX_VALUE if unbounded
+     */
+    public long remainingMillis() {
+        return bounded ? TimeUnit.NANOSECONDS.toMillis(remainingNanos()) : Long.MAX_VALUE;
+    }
+
+    /**
+     * The time remaining, for instance to use as the timeout of an attempt
+     * @param max the most to return, which is also what an unbounded deadline returns
+     * @return the lesser of the time remaining and max, zero once expired
+     */
+    public Duration remaining(Duration max) {
+        long nanos = remainingNanos();
+        return nanos < max.toNanos() ? Duration.ofNanos(nanos) : max;
+    }
+
+    @Override
+    public String toString() {
+        return bounded ? "Deadline{remainingMillis=" + remainingMillis() + '}' : "Deadline{unbounded}";
+    }
+}
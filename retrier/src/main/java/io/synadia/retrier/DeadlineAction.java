@@ -0,0 +1,20 @@
+// Copyright (c) 2024-2025 Synadia Communications Inc. All Rights Reserved.
+// See LICENSE and NOTICE file for details.
+
+package io.synadia.retrier;
+
+/**
+ * The action to execute with retry, given the deadline of the whole execution
+ * so an attempt can bound itself by the time remaining.
+ * @param <T> The return type of the action
+ */
+public interface DeadlineAction<T> {
+    /**
+     * Execute the action
+     * @param deadline the deadline of the execution
+     * @return the result
+     * @throws Exception various execution exceptions; The execution throws the last exception
+     * if all retries failed or the observer declines to retry.
+     */
+    T execute(Deadline deadline) throws Exception;
+}
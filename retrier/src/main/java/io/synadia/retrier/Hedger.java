@@ -0,0 +1,372 @@
+// Copyright (c) 2024-2025 Synadia Communications Inc. All Rights Reserved.
+// See LICENSE and NOTICE file for details.
+
+package io.synadia.retrier;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Executes asynchronous actions with hedging, to cut the tail latency of reads.
+ * If an attempt has not completed after the hedge delay, another attempt is started alongside it.
+ * The first attempt to succeed completes the execution and the others are cancelled.
+ * The execution only fails once every attempt failed, with the exception of the last one.
+ * <p>
+ * The delay can be fixed or follow a percentile of the latencies the hedger has observed,
+ * so only the slowest executions are hedged. Each hedge takes a token from the retry budget, if there is one,
+ * and no hedge is started once it is spent, which keeps the extra load bounded.
+ * <p>
+ * Since attempts run at the same time, the action should be safe to repeat, like a read.
+ * The hedger is thread safe and meant to be shared by all the executions of one kind of action.
+ */
+public class Hedger {
+    public static final long DEFAULT_DELAY_MILLIS = 50;
+    public static final int DEFAULT_MAX_HEDGES = 1;
+    public static final int DEFAULT_WINDOW_SIZE = 1000;
+    public static final int MIN_SAMPLES = 20;
+
+    // the percentile delay is recomputed after this many new samples
+    private static final int RECOMPUTE_EVERY = 64;
+
+    private final double delayPercentile;
+    private final int maxHedges;
+    private final RetryBudget retryBudget;
+    private final ScheduledExecutorService scheduler;
+
+    private final long[] window;
+    private long samples;
+    private volatile long delayMillis;
+
+    private final AtomicLong hedges;
+    private final AtomicLong hedgeWins;
+
+    private Hedger(Builder b) {
+        delayPercentile = b.delayPercentile;
+        maxHedges = b.maxHedges;
+        retryBudget = b.retryBudget;
+        scheduler = b.scheduler == null ? Retrier.SharedScheduler.INSTANCE : b.scheduler;
+        window = new long[b.windowSize];
+        delayMillis = b.delayMillis;
+        hedges = new AtomicLong();
+        hedgeWins = new AtomicLong();
+    }
+
+    /**
+     * Execute the action with hedging
+     * @param action Supplies the future of one attempt
+     * @return the future of the result. Cancelling it cancels the attempts.
+     * @param <T> the return type
+     */
+    public <T> CompletableFuture<T> execute(Supplier<CompletableFuture<T>> action) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        new HedgedExecution<>(action, result).start();
+        return result;
+    }
+
+    /**
+     * The current hedge delay, the fixed delay or the observed percentile
+     * @return the delay in milliseconds
+     */
+    public long getDelayMillis() {
+        return delayMillis;
+    }
+
+    public int getMaxHedges() {
+        return maxHedges;
+    }
+
+    public RetryBudget getRetryBudget() {
+        return retryBudget;
+    }
+
+    /**
+     * The number of hedge attempts started
+     * @return the number
+     */
+    public long getHedgeCount() {
+        return hedges.get();
+    }
+
+    /**
+     * The number of executions completed by a hedge attempt rather than the first attempt
+     * @return the number
+     */
+    public long getHedgeWinCount() {
+        return hedgeWins.get();
+    }
+
+    private void recordLatency(long millis) {
+        if (delayPercentile == 0) {
+            return;
+        }
+        long[] sorted = null;
+        synchronized (window) {
+            window[(int)(samples++ % window.length)] = millis;
+            if (samples == MIN_SAMPLES || (samples > MIN_SAMPLES && samples % RECOMPUTE_EVERY == 0)) {
+                sorted = Arrays.copyOf(window, (int)Math.min(samples, window.length));
+            }
+        }
+        if (sorted != null) {
+            Arrays.sort(sorted);
+            int ix = (int)Math.ceil(delayPercentile / 100 * sorted.length) - 1;
+            delayMillis = Math.max(1, sorted[Math.max(0, ix)]);
+        }
+    }
+
+    private class HedgedExecution<T> {
+        private final Supplier<CompletableFuture<T>> action;
+        private final CompletableFuture<T> result;
+        private final List<CompletableFuture<T>> attempts;
+        private int failed;
+        private boolean won;
+        private boolean hedgePending;
+        private Future<?> hedgeTimer;
+        private final long startedAt;
+
+        HedgedExecution(Supplier<CompletableFuture<T>> action, CompletableFuture<T> result) {
+            this.action = action;
+            this.result = result;
+            attempts = new ArrayList<>();
+            hedgePending = true; // until start has decided
+            startedAt = System.nanoTime();
+        }
+
+        void start() {
+            result.whenComplete((t, ex) -> cancelAll());
+            CompletableFuture<T> attempt;
+            synchronized (this) {
+                attempt = launch();
+            }
+            watch(attempt, 0);
+            scheduleHedge();
+        }
+
+        private void scheduleHedge() {
+            synchronized (this) {
+                if (!result.isDone() && attempts.size() <= maxHedges) {
+                    try {
+                        hedgeTimer = scheduler.schedule(this::hedge, delayMillis, TimeUnit.MILLISECONDS);
+                        return;
+                    }
+                    catch (RejectedExecutionException e) {
+                        // the scheduler is shut down, no hedging
+                    }
+                }
+            }
+            noMoreHedges();
+        }
+
+        private void hedge() {
+            CompletableFuture<T> attempt = null;
+            int index = 0;
+            // under the monitor, so either cancelAll sees the hedge and cancels it,
+            // or the hedge sees the result is done and is not started
+            synchronized (this) {
+                if (won || result.isDone()) {
+                    return;
+                }
+                if (retryBudget == null || retryBudget.tryRetry()) {
+                    hedges.incrementAndGet();
+                    index = attempts.size();
+                    attempt = launch();
+                }
+            }
+            if (attempt == null) {
+                noMoreHedges();
+            }
+            else {
+                watch(attempt, index);
+                scheduleHedge();
+            }
+        }
+
+        private void noMoreHedges() {
+            synchronized (this) {
+                hedgePending = false;
+            }
+            failIfAllFailed(null);
+        }
+
+        /**
+         * Start an attempt. Called holding the monitor.
+         */
+        private CompletableFuture<T> launch() {
+            CompletableFuture<T> attempt;
+            try {
+                attempt = action.get();
+            }
+            catch (Exception e) {
+                attempt = new CompletableFuture<>();
+                attempt.completeExceptionally(e);
+            }
+            attempts.add(attempt);
+            return attempt;
+        }
+
+        private void watch(CompletableFuture<T> attempt, int index) {
+            attempt.whenComplete((t, ex) -> {
+                if (ex == null) {
+                    if (claimWin()) {
+                        // recorded before completing so the caller sees the statistics of its execution.
+                        // the latency is the whole execution's, a winning hedge was started after the delay
+                        recordLatency(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+                        if (retryBudget != null) {
+                            retryBudget.recordSuccess();
+                        }
+                        if (index > 0) {
+                            hedgeWins.incrementAndGet();
+                        }
+                        result.complete(t);
+                    }
+                }
+                else {
+                    synchronized (this) {
+                        failed++;
+                    }
+                    failIfAllFailed(ex);
+                }
+            });
+        }
+
+        private synchronized boolean claimWin() {
+            if (won || result.isDone()) {
+                return false;
+            }
+            won = true;
+            return true;
+        }
+
+        private void failIfAllFailed(Throwable ex) {
+            Throwable last;
+            synchronized (this) {
+                if (hedgePending || failed < attempts.size()) {
+                    return;
+                }
+                last = ex;
+                if (last == null) {
+                    // there are no more hedges and every attempt has already failed, report the last failure
+                    last = attempts.get(attempts.size() - 1).handle((t, e) -> e).join();
+                }
+            }
+            result.completeExceptionally(last);
+        }
+
+        private void cancelAll() {
+            List<CompletableFuture<T>> running;
+            synchronized (this) {
+                hedgePending = false;
+                if (hedgeTimer != null) {
+                    hedgeTimer.cancel(false);
+                }
+                running = new ArrayList<>(attempts);
+            }
+            for (CompletableFuture<T> f : running) {
+                if (!f.isDone()) {
+                    f.cancel(true);
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates a builder for the hedger.
+     * @return the builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * The builder class for the Hedger
+     */
+    public static class Builder {
+        private long delayMillis = DEFAULT_DELAY_MILLIS;
+        private double delayPercentile;
+        private int windowSize = DEFAULT_WINDOW_SIZE;
+        private int maxHedges = DEFAULT_MAX_HEDGES;
+        private RetryBudget retryBudget;
+        private ScheduledExecutorService scheduler;
+
+        /**
+         * Set the time to wait for an attempt before starting a hedge.
+         * With a delay percentile, this is the delay until enough latencies have been observed.
+         * Defaults to {@value #DEFAULT_DELAY_MILLIS}
+         * @param delayMillis the delay in milliseconds, less than 1 means the default
+         * @return the builder
+         */
+        public Builder delay(long delayMillis) {
+            this.delayMillis = delayMillis < 1 ? DEFAULT_DELAY_MILLIS : delayMillis;
+            return this;
+        }
+
+        /**
+         * Follow a percentile of the observed latencies as the hedge delay, for instance 95
+         * to hedge the slowest 5% of executions. The latencies of the most recent executions are kept,
+         * see {@link #windowSize(int)}. Defaults to a fixed delay.
+         * @param delayPercentile the percentile, more than 0 and less than 100, otherwise the fixed delay is used
+         * @return the builder
+         */
+        public Builder delayPercentile(double delayPercentile) {
+            this.delayPercentile = delayPercentile > 0 && delayPercentile < 100 ? delayPercentile : 0;
+            return this;
+        }
+
+        /**
+         * Set how many of the most recent latencies the delay percentile is taken from.
+         * Defaults to {@value #DEFAULT_WINDOW_SIZE}
+         * @param windowSize the number of latencies, less than {@value #MIN_SAMPLES} means the default
+         * @return the builder
+         */
+        public Builder windowSize(int windowSize) {
+            this.windowSize = windowSize < MIN_SAMPLES ? DEFAULT_WINDOW_SIZE : windowSize;
+            return this;
+        }
+
+        /**
+         * Set the most hedges per execution, each one started the hedge delay after the previous attempt.
+         * Defaults to {@value #DEFAULT_MAX_HEDGES}
+         * @param maxHedges the number of hedges, less than 1 means the default
+         * @return the builder
+         */
+        public Builder maxHedges(int maxHedges) {
+            this.maxHedges = maxHedges < 1 ? DEFAULT_MAX_HEDGES : maxHedges;
+            return this;
+        }
+
+        /**
+         * Set the retry budget. Each hedge takes a token and each successful execution puts back part of one.
+         * @param retryBudget the budget
+         * @return the builder
+         */
+        public Builder retryBudget(RetryBudget retryBudget) {
+            this.retryBudget = retryBudget;
+            return this;
+        }
+
+        /**
+         * Set the scheduler for the hedge timers. By default, the retrier's shared scheduler thread.
+         * @param scheduler the scheduler
+         * @return the builder
+         */
+        public Builder scheduler(ScheduledExecutorService scheduler) {
+            this.scheduler = scheduler;
+            return this;
+        }
+
+        /**
+         * Builds the hedger.
+         * @return Hedger instance
+         */
+        public Hedger build() {
+            return new Hedger(this);
+        }
+    }
+}
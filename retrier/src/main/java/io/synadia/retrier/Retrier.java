@@ -3,6 +3,16 @@
 
 package io.synadia.retrier;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
 /**
  * The Retrier is designed to give generic retry ability to retry anything.
  * There are also static methods which are use the generic ability that are built specifically for JetStream publishing.
@@ -33,25 +43,59 @@ public class Retrier {
      * or the observer declines to retry.
      */
     public static <T> T execute(RetryConfig config, RetryAction<T> action, RetryObserver observer) throws Exception {
-        long[] backoffPolicy = config.getBackoffPolicy();
-        int plen = backoffPolicy.length;
+        return executeWithDeadline(config, deadline -> action.execute(), observer);
+    }
+
+    /**
+     * Execute the supplied action with the given retry config,
+     * giving each attempt the deadline of the execution.
+     * @param config The custom retry config
+     * @param action The retry action
+     * @return an instance of the return type
+     * @param <T> the return type
+     * @throws Exception various execution exceptions; only thrown if all retries failed.
+     */
+    public static <T> T executeWithDeadline(RetryConfig config, DeadlineAction<T> action) throws Exception {
+        return executeWithDeadline(config, action, e -> true);
+    }
+
+    /**
+     * Execute the supplied action with the given retry config,
+     * giving each attempt the deadline of the execution, so the attempt can use the time remaining,
+     * for instance as its timeout. The deadline is measured on {@link System#nanoTime()}.
+     * A retry whose backoff would reach the deadline is not made, the execution fails right away instead.
+     * @param config The custom retry config
+     * @param action The retry action
+     * @param observer The retry observer
+     * @return an instance of the return type
+     * @param <T> the return type
+     * @throws Exception various execution exceptions; only thrown if all retries failed,
+     * the deadline is reached or the observer declines to retry.
+     */
+    public static <T> T executeWithDeadline(RetryConfig config, DeadlineAction<T> action, RetryObserver observer) throws Exception {
+        BackoffStrategy backoffStrategy = config.getBackoffStrategy();
         int retries = 0;
-        long deadlineExpiresAt = System.currentTimeMillis() + config.getDeadline();
-        if (deadlineExpiresAt < System.currentTimeMillis()) {
-            deadlineExpiresAt = Long.MAX_VALUE;
-        }
+        long backoff = 0;
+        Deadline deadline = Deadline.after(config.getDeadline());
+        Exception last = null;
 
         while (true) {
+            if (!tryAcquire(config)) {
+                throw last == null ? circuitOpen() : last;
+            }
+            T result;
             try {
-                return action.execute();
+                result = action.execute(deadline);
             }
             catch (Exception e) {
-                if (++retries <= config.getAttempts() && deadlineExpiresAt > System.currentTimeMillis() && observer.shouldRetry(e)) {
+                recordFailure(config);
+                long nextBackoff = backoffStrategy.backoff(retries + 1, backoff);
+                if (shouldRetry(config, ++retries, deadline, nextBackoff, observer, e)) {
                     try {
-                        int ix = retries - 1;
-                        long sleep = ix < backoffPolicy.length ? backoffPolicy[ix] : backoffPolicy[plen-1];
+                        backoff = nextBackoff;
                         //noinspection BusyWait
-                        Thread.sleep(sleep);
+                        Thread.sleep(backoff);
+                        last = e;
                         continue; // goes back to start of while
                     }
                     catch (InterruptedException ie) {
@@ -60,6 +104,228 @@ public class Retrier {
                 }
                 throw e;
             }
+            catch (Error e) {
+                // still a failure of the call, a half open circuit must not wait on its probe forever
+                recordFailure(config);
+                throw e;
+            }
+            recordSuccess(config);
+            return result;
+        }
+    }
+
+    /**
+     * Execute the supplied asynchronous action with the given retry config.
+     * No thread is held between attempts, retries are scheduled on a shared scheduler thread.
+     * @param config The custom retry config
+     * @param action Supplies the future of one attempt
+     * @return the future of the result
+     * @param <T> the return type
+     */
+    public static <T> CompletableFuture<T> executeAsync(RetryConfig config, Supplier<CompletableFuture<T>> action) {
+        return executeAsync(config, action, e -> true);
+    }
+
+    /**
+     * Execute the supplied asynchronous action with the given retry config.
+     * No thread is held between attempts, retries are scheduled on a shared scheduler thread.
+     * @param config The custom retry config
+     * @param action Supplies the future of one attempt
+     * @param observer The retry observer
+     * @return the future of the result
+     * @param <T> the return type
+     */
+    public static <T> CompletableFuture<T> executeAsync(RetryConfig config, Supplier<CompletableFuture<T>> action, RetryObserver observer) {
+        return executeAsync(config, action, observer, SharedScheduler.INSTANCE);
+    }
+
+    /**
+     * Execute the supplied asynchronous action with the given retry config.
+     * No thread is held between attempts, each retry is scheduled on the scheduler
+     * and the action is called on the scheduler's thread, so it should not block.
+     * The returned future completes exceptionally with the exception of the last attempt
+     * if all retries failed or the observer declines to retry.
+     * Cancelling the returned future stops any further retries.
+     * @param config The custom retry config
+     * @param action Supplies the future of one attempt
+     * @param observer The retry observer
+     * @param scheduler the scheduler for the retries
+     * @return the future of the result
+     * @param <T> the return type
+     */
+    public static <T> CompletableFuture<T> executeAsync(RetryConfig config, Supplier<CompletableFuture<T>> action, RetryObserver observer, ScheduledExecutorService scheduler) {
+        return executeAsyncWithDeadline(config, deadline -> action.get(), observer, scheduler);
+    }
+
+    /**
+     * Execute the supplied asynchronous action with the given retry config,
+     * giving each attempt the deadline of the execution.
+     * No thread is held between attempts, retries are scheduled on a shared scheduler thread.
+     * @param config The custom retry config
+     * @param action Makes the future of one attempt from the deadline
+     * @return the future of the result
+     * @param <T> the return type
+     */
+    public static <T> CompletableFuture<T> executeAsyncWithDeadline(RetryConfig config, Function<Deadline, CompletableFuture<T>> action) {
+        return executeAsyncWithDeadline(config, action, e -> true, SharedScheduler.INSTANCE);
+    }
+
+    /**
+     * Execute the supplied asynchronous action with the given retry config,
+     * giving each attempt the deadline of the execution, so the attempt can use the time remaining,
+     * for instance as its timeout. A retry whose backoff would reach the deadline is not scheduled,
+     * the future completes exceptionally right away instead.
+     * See {@link #executeAsync(RetryConfig, Supplier, RetryObserver, ScheduledExecutorService)}
+     * @param config The custom retry config
+     * @param action Makes the future of one attempt from the deadline
+     * @param observer The retry observer
+     * @param scheduler the scheduler for the retries
+     * @return the future of the result
+     * @param <T> the return type
+     */
+    public static <T> CompletableFuture<T> executeAsyncWithDeadline(RetryConfig config, Function<Deadline, CompletableFuture<T>> action, RetryObserver observer, ScheduledExecutorService scheduler) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        new AsyncExecution<>(config, action, observer, scheduler, result).attempt();
+        return result;
+    }
+
+    /**
+     * A retry needs attempts left, time left after its backoff, a circuit that is not open,
+     * the observer's approval and, if there is a budget, a token from it
+     */
+    static boolean shouldRetry(RetryConfig config, int retries, Deadline deadline, long backoff, RetryObserver observer, Exception e) {
+        if (retries > config.getAttempts() || deadline.remainingMillis() <= backoff) {
+            return false;
+        }
+        CircuitBreaker circuitBreaker = config.getCircuitBreaker();
+        if (circuitBreaker != null && circuitBreaker.isOpen()) {
+            return false;
+        }
+        RetryBudget budget = config.getRetryBudget();
+        if (budget == null) {
+            return observer.shouldRetry(e);
+        }
+        if (!budget.tryRetry()) {
+            return false;
+        }
+        if (observer.shouldRetry(e)) {
+            return true;
+        }
+        budget.refund();
+        return false;
+    }
+
+    static void recordSuccess(RetryConfig config) {
+        RetryBudget budget = config.getRetryBudget();
+        if (budget != null) {
+            budget.recordSuccess();
+        }
+        CircuitBreaker circuitBreaker = config.getCircuitBreaker();
+        if (circuitBreaker != null) {
+            circuitBreaker.recordSuccess();
+        }
+    }
+
+    static void recordFailure(RetryConfig config) {
+        CircuitBreaker circuitBreaker = config.getCircuitBreaker();
+        if (circuitBreaker != null) {
+            circuitBreaker.recordFailure();
+        }
+    }
+
+    static boolean tryAcquire(RetryConfig config) {
+        CircuitBreaker circuitBreaker = config.getCircuitBreaker();
+        return circuitBreaker == null || circuitBreaker.tryAcquire();
+    }
+
+    static CircuitOpenException circuitOpen() {
+        return new CircuitOpenException("Circuit breaker is open.");
+    }
+
+    static class SharedScheduler {
+        static final ScheduledExecutorService INSTANCE = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "retrier-scheduler");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    private static class AsyncExecution<T> {
+        private final RetryConfig config;
+        private final Function<Deadline, CompletableFuture<T>> action;
+        private final RetryObserver observer;
+        private final ScheduledExecutorService scheduler;
+        private final CompletableFuture<T> result;
+        private final Deadline deadline;
+        private int retries;
+        private long backoff;
+        private Exception last;
+
+        AsyncExecution(RetryConfig config, Function<Deadline, CompletableFuture<T>> action, RetryObserver observer,
+                       ScheduledExecutorService scheduler, CompletableFuture<T> result) {
+            this.config = config;
+            this.action = action;
+            this.observer = observer;
+            this.scheduler = scheduler;
+            this.result = result;
+            deadline = Deadline.after(config.getDeadline());
+        }
+
+        void attempt() {
+            if (result.isDone()) {
+                return; // cancelled by the caller
+            }
+            if (!tryAcquire(config)) {
+                result.completeExceptionally(last == null ? circuitOpen() : last);
+                return;
+            }
+            try {
+                action.apply(deadline).whenComplete((t, ex) -> {
+                    if (ex == null) {
+                        recordSuccess(config);
+                        result.complete(t);
+                    }
+                    else {
+                        failed(ex);
+                    }
+                });
+            }
+            catch (Throwable t) {
+                failed(t);
+            }
+        }
+
+        private void failed(Throwable t) {
+            while ((t instanceof CompletionException || t instanceof ExecutionException) && t.getCause() != null) {
+                t = t.getCause();
+            }
+            recordFailure(config);
+            if (!(t instanceof Exception)) {
+                result.completeExceptionally(t);
+                return;
+            }
+            boolean retry;
+            long nextBackoff;
+            try {
+                nextBackoff = config.getBackoffStrategy().backoff(retries + 1, backoff);
+                retry = !result.isDone() && shouldRetry(config, ++retries, deadline, nextBackoff, observer, (Exception)t);
+            }
+            catch (RuntimeException e) {
+                result.completeExceptionally(e);
+                return;
+            }
+            if (retry) {
+                try {
+                    backoff = nextBackoff;
+                    last = (Exception)t;
+                    scheduler.schedule(this::attempt, backoff, TimeUnit.MILLISECONDS);
+                    return;
+                }
+                catch (RejectedExecutionException e) {
+                    // the scheduler is shut down, the last failure stands
+                }
+            }
+            result.completeExceptionally(t);
         }
     }
 }
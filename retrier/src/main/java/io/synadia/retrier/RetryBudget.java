@@ -0,0 +1,162 @@
+// Copyright (c) 2024-2025 Synadia Communications Inc. All Rights Reserved.
+// See LICENSE and NOTICE file for details.
+
+package io.synadia.retrier;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A budget of retries shared by every execution whose config references it,
+ * so retries can only add a limited amount of load, however many executions fail at once.
+ * <p>
+ * The budget is a bucket of tokens that starts full. Each retry takes a token, and once the bucket is empty,
+ * retries are refused and the execution fails right away with its last exception.
+ * Each execution that succeeds puts back the retry ratio of a token, so over time,
+ * retries are limited to about that ratio of the successful executions.
+ * <p>
+ * The budget is thread safe.
+ */
+public class RetryBudget {
+    public static final long DEFAULT_MAX_TOKENS = 100;
+    public static final double DEFAULT_RETRY_RATIO = 0.1;
+
+    // tokens are kept in thousandths so the deposits can be fractional
+    private static final long SCALE = 1000;
+
+    private final long maxTokens;
+    private final double retryRatio;
+    private final long maxScaled;
+    private final long depositScaled;
+    private final AtomicLong scaledTokens;
+    private final AtomicLong refused;
+
+    private RetryBudget(Builder b) {
+        maxTokens = b.maxTokens;
+        retryRatio = b.retryRatio;
+        maxScaled = maxTokens * SCALE;
+        depositScaled = Math.max(1, Math.round(retryRatio * SCALE));
+        scaledTokens = new AtomicLong(maxScaled);
+        refused = new AtomicLong();
+    }
+
+    public long getMaxTokens() {
+        return maxTokens;
+    }
+
+    public double getRetryRatio() {
+        return retryRatio;
+    }
+
+    /**
+     * The tokens in the bucket, the number of retries currently allowed
+     * @return the number
+     */
+    public double getAvailableTokens() {
+        return (double)scaledTokens.get() / SCALE;
+    }
+
+    /**
+     * The number of retries the budget has refused
+     * @return the number
+     */
+    public long getRefusedCount() {
+        return refused.get();
+    }
+
+    /**
+     * Take a token for a retry
+     * @return true if there was a token, false if the retry is refused
+     */
+    public boolean tryRetry() {
+        while (true) {
+            long current = scaledTokens.get();
+            if (current < SCALE) {
+                refused.incrementAndGet();
+                return false;
+            }
+            if (scaledTokens.compareAndSet(current, current - SCALE)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Record a successful execution, which puts back the retry ratio of a token
+     */
+    public void recordSuccess() {
+        deposit(depositScaled);
+    }
+
+    /**
+     * Give back the token of a retry that was not made
+     */
+    void refund() {
+        deposit(SCALE);
+    }
+
+    private void deposit(long amount) {
+        while (true) {
+            long current = scaledTokens.get();
+            if (current >= maxScaled || scaledTokens.compareAndSet(current, Math.min(maxScaled, current + amount))) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "RetryBudget{" +
+            "availableTokens=" + getAvailableTokens() +
+            ", maxTokens=" + maxTokens +
+            ", retryRatio=" + retryRatio +
+            ", refused=" + refused.get() +
+            '}';
+    }
+
+    /**
+     * Creates a builder for the budget.
+     * @return the builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * The builder class for the RetryBudget
+     */
+    public static class Builder {
+        private long maxTokens = DEFAULT_MAX_TOKENS;
+        private double retryRatio = DEFAULT_RETRY_RATIO;
+
+        /**
+         * Set the size of the bucket, the most retries that can be made in a burst.
+         * Defaults to {@value #DEFAULT_MAX_TOKENS}
+         * @param maxTokens the number of tokens, less than 1 means the default
+         * @return the builder
+         */
+        public Builder maxTokens(long maxTokens) {
+            this.maxTokens = maxTokens < 1 ? DEFAULT_MAX_TOKENS : maxTokens;
+            return this;
+        }
+
+        /**
+         * Set the part of a token each successful execution puts back,
+         * about the number of retries allowed per successful execution.
+         * Defaults to {@value #DEFAULT_RETRY_RATIO}
+         * @param retryRatio the ratio, not positive means the default
+         * @return the builder
+         */
+        public Builder retryRatio(double retryRatio) {
+            this.retryRatio = retryRatio > 0 ? retryRatio : DEFAULT_RETRY_RATIO;
+            return this;
+        }
+
+        /**
+         * Builds the retry budget.
+         * @return RetryBudget instance
+         */
+        public RetryBudget build() {
+            return new RetryBudget(this);
+        }
+    }
+}
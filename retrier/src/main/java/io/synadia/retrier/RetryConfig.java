@@ -19,13 +19,19 @@ public class RetryConfig {
     public static final RetryConfig DEFAULT_CONFIG = RetryConfig.builder().build();
 
     private final long[] backoffPolicy;
+    private final BackoffStrategy backoffStrategy;
     private final int attempts;
     private final long deadline;
+    private final RetryBudget retryBudget;
+    private final CircuitBreaker circuitBreaker;
 
     private RetryConfig(Builder b) {
         this.backoffPolicy = b.backoffPolicy;
+        this.backoffStrategy = b.backoffStrategy == null ? BackoffStrategy.policy(b.backoffPolicy) : b.backoffStrategy;
         this.attempts = b.attempts;
         this.deadline = b.deadline;
+        this.retryBudget = b.retryBudget;
+        this.circuitBreaker = b.circuitBreaker;
     }
 
     /**
@@ -36,6 +42,14 @@ public class RetryConfig {
         return backoffPolicy;
     }
 
+    /**
+     * The backoff strategy, the configured one, otherwise the strategy of the backoff policy
+     * @return the strategy
+     */
+    public BackoffStrategy getBackoffStrategy() {
+        return backoffStrategy;
+    }
+
     /**
      * The configured number of attempts
      * @return the number of attempts
@@ -52,6 +66,22 @@ public class RetryConfig {
         return deadline;
     }
 
+    /**
+     * The configured retry budget
+     * @return the budget, null if retries are not budgeted
+     */
+    public RetryBudget getRetryBudget() {
+        return retryBudget;
+    }
+
+    /**
+     * The configured circuit breaker
+     * @return the circuit breaker, null if there is none
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
     /**
      * Creates a builder for the config.
      * @return the builder
@@ -65,8 +95,11 @@ public class RetryConfig {
      */
     public static class Builder {
         private long[] backoffPolicy = DEFAULT_BACKOFF_POLICY;
+        private BackoffStrategy backoffStrategy;
         private int attempts = DEFAULT_ATTEMPTS;
         private long deadline = Long.MAX_VALUE;
+        private RetryBudget retryBudget;
+        private CircuitBreaker circuitBreaker;
 
         /**
          * Set the backoff policy
@@ -78,6 +111,17 @@ public class RetryConfig {
             return this;
         }
 
+        /**
+         * Set the backoff strategy, for instance {@link BackoffStrategy#fullJitter(long, long)}.
+         * When set, the backoff policy is not used.
+         * @param backoffStrategy the strategy
+         * @return the builder
+         */
+        public Builder backoffStrategy(BackoffStrategy backoffStrategy) {
+            this.backoffStrategy = backoffStrategy;
+            return this;
+        }
+
         /**
          * Set the number of times to retry
          * @param attempts the number of retry attempts
@@ -99,6 +143,28 @@ public class RetryConfig {
             return this;
         }
 
+        /**
+         * Set the retry budget. The same budget can be set on many configs
+         * to limit the retries of all their executions together.
+         * @param retryBudget the budget
+         * @return the builder
+         */
+        public Builder retryBudget(RetryBudget retryBudget) {
+            this.retryBudget = retryBudget;
+            return this;
+        }
+
+        /**
+         * Set the circuit breaker. While it is open, executions fail right away with a
+         * {@link CircuitOpenException} and retries stop. The same circuit breaker can be set on many configs.
+         * @param circuitBreaker the circuit breaker
+         * @return the builder
+         */
+        public Builder circuitBreaker(CircuitBreaker circuitBreaker) {
+            this.circuitBreaker = circuitBreaker;
+            return this;
+        }
+
         /**
          * Builds the retry config.
          * @return RetryConfig instance
@@ -0,0 +1,92 @@
+package io.synadia.retrier;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BackoffStrategyTests {
+    @Test
+    public void testPolicy() {
+        BackoffStrategy bs = BackoffStrategy.policy(new long[]{100, 200});
+        assertEquals(100, bs.backoff(1, 0));
+        assertEquals(200, bs.backoff(2, 100));
+        assertEquals(200, bs.backoff(3, 200));
+        assertEquals(200, bs.backoff(100, 200));
+
+        assertEquals(RetryConfig.DEFAULT_BACKOFF_POLICY[0], RetryConfig.DEFAULT_CONFIG.getBackoffStrategy().backoff(1, 0));
+    }
+
+    @Test
+    public void testExponential() {
+        BackoffStrategy bs = BackoffStrategy.exponential(100, 1000);
+        assertEquals(100, bs.backoff(1, 0));
+        assertEquals(200, bs.backoff(2, 0));
+        assertEquals(400, bs.backoff(3, 0));
+        assertEquals(800, bs.backoff(4, 0));
+        assertEquals(1000, bs.backoff(5, 0));
+        assertEquals(1000, bs.backoff(Integer.MAX_VALUE, 0));
+
+        bs = BackoffStrategy.exponential(1, Long.MAX_VALUE);
+        assertEquals(1L << 61, bs.backoff(62, 0));
+        assertEquals(Long.MAX_VALUE, bs.backoff(63, 0));
+
+        assertThrows(IllegalArgumentException.class, () -> BackoffStrategy.exponential(0, 1000));
+        assertThrows(IllegalArgumentException.class, () -> BackoffStrategy.exponential(1000, 100));
+    }
+
+    @Test
+    public void testJitterBounds() {
+        BackoffStrategy full = BackoffStrategy.fullJitter(100, 1000);
+        BackoffStrategy decorrelated = BackoffStrategy.decorrelatedJitter(100, 1000);
+        long previous = 0;
+        for (int retry = 1; retry < 1000; retry++) {
+            long b = full.backoff(retry, 0);
+            assertTrue(b >= 0 && b <= Math.min(1000, 100L << Math.min(retry - 1, 10)));
+
+            b = decorrelated.backoff(retry, previous);
+            assertTrue(b >= 100 && b <= Math.min(1000, Math.max(100, previous) * 3));
+            previous = b;
+        }
+
+        // no overflow with the largest values
+        assertTrue(BackoffStrategy.fullJitter(1, Long.MAX_VALUE).backoff(100, 0) >= 0);
+        assertTrue(BackoffStrategy.decorrelatedJitter(1, Long.MAX_VALUE).backoff(100, Long.MAX_VALUE) >= 1);
+    }
+
+    @Test
+    public void testJitterSmoothsTheLoad() {
+        // 1000 clients lose the server at the same moment and each retries 5 times.
+        // Count the retries that land in each 50ms window, the busiest window is the spike the server sees.
+        int lockstep = peakRetries(RetryConfig.DEFAULT_CONFIG.getBackoffStrategy());
+        int exponential = peakRetries(BackoffStrategy.exponential(250, 5000));
+        int fullJitter = peakRetries(BackoffStrategy.fullJitter(250, 5000));
+        int decorrelated = peakRetries(BackoffStrategy.decorrelatedJitter(250, 5000));
+
+        // without jitter every client retries in the same window
+        assertEquals(1000, lockstep);
+        assertEquals(1000, exponential);
+        assertTrue(fullJitter < lockstep / 2, "full jitter peak " + fullJitter);
+        assertTrue(decorrelated < lockstep / 2, "decorrelated jitter peak " + decorrelated);
+    }
+
+    private static int peakRetries(BackoffStrategy bs) {
+        int clients = 1000;
+        int retries = 5;
+        long windowMillis = 50;
+        int[] windows = new int[10_000];
+        for (int c = 0; c < clients; c++) {
+            long at = 0;
+            long backoff = 0;
+            for (int retry = 1; retry <= retries; retry++) {
+                backoff = bs.backoff(retry, backoff);
+                at += backoff;
+                windows[(int)(at / windowMillis)]++;
+            }
+        }
+        int peak = 0;
+        for (int w : windows) {
+            peak = Math.max(peak, w);
+        }
+        return peak;
+    }
+}
@@ -0,0 +1,165 @@
+package io.synadia.retrier;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CircuitBreakerTests {
+    @Test
+    public void testOpensAtTheFailureRate() {
+        CircuitBreaker cb = CircuitBreaker.builder().windowSize(10).minimumCalls(4).failureRateThreshold(50).build();
+        assertEquals(CircuitState.Closed, cb.getState());
+
+        // not enough calls yet
+        cb.recordFailure();
+        cb.recordFailure();
+        cb.recordFailure();
+        assertEquals(CircuitState.Closed, cb.getState());
+
+        cb.recordSuccess();
+        cb.recordSuccess();
+        cb.recordSuccess();
+        cb.recordSuccess();
+        assertEquals(CircuitState.Closed, cb.getState());
+        assertEquals(300.0 / 7, cb.getFailureRate(), 0.001);
+
+        cb.recordFailure(); // 4 of 8
+        assertEquals(CircuitState.Open, cb.getState());
+        assertTrue(cb.isOpen());
+        assertFalse(cb.tryAcquire());
+    }
+
+    @Test
+    public void testWindowSlides() {
+        CircuitBreaker cb = CircuitBreaker.builder().windowSize(4).minimumCalls(4).failureRateThreshold(75).build();
+        cb.recordFailure();
+        cb.recordFailure();
+        for (int i = 0; i < 4; i++) {
+            cb.recordSuccess();
+        }
+        // the early failures have slid out of the window
+        assertEquals(0.0, cb.getFailureRate());
+        cb.recordFailure();
+        cb.recordFailure();
+        assertEquals(CircuitState.Closed, cb.getState());
+        cb.recordFailure();
+        assertEquals(CircuitState.Open, cb.getState());
+    }
+
+    @Test
+    public void testHalfOpenProbes() throws Exception {
+        CircuitBreaker cb = CircuitBreaker.builder().windowSize(2).minimumCalls(2).openDuration(50).halfOpenProbes(2).build();
+        cb.recordFailure();
+        cb.recordFailure();
+        assertFalse(cb.tryAcquire());
+
+        Thread.sleep(60);
+        assertFalse(cb.isOpen());
+        assertTrue(cb.tryAcquire());
+        assertEquals(CircuitState.HalfOpen, cb.getState());
+        assertTrue(cb.tryAcquire());
+        assertFalse(cb.tryAcquire()); // the probes are taken
+
+        cb.recordSuccess();
+        cb.recordFailure(); // a probe failed
+        assertEquals(CircuitState.Open, cb.getState());
+        assertFalse(cb.tryAcquire());
+
+        Thread.sleep(60);
+        assertTrue(cb.tryAcquire());
+        assertTrue(cb.tryAcquire());
+        cb.recordSuccess();
+        cb.recordSuccess();
+        assertEquals(CircuitState.Closed, cb.getState());
+        assertEquals(0.0, cb.getFailureRate());
+    }
+
+    @Test
+    public void testRetrierFailsFast() throws Exception {
+        CircuitBreaker cb = CircuitBreaker.builder().windowSize(4).minimumCalls(4).openDuration(60_000).build();
+        RetryConfig config = RetryConfig.builder()
+            .attempts(10)
+            .backoffPolicy(new long[]{1})
+            .circuitBreaker(cb)
+            .build();
+
+        // the circuit opens during the retries, which stop there
+        AtomicInteger calls = new AtomicInteger();
+        Exception e = assertThrows(Exception.class, () -> Retrier.execute(config, () -> {
+            throw new Exception("Attempt: " + calls.incrementAndGet());
+        }));
+        assertEquals("Attempt: 4", e.getMessage());
+        assertEquals(4, calls.get());
+
+        // now calls are not made
+        long start = System.nanoTime();
+        assertThrows(CircuitOpenException.class, () -> Retrier.execute(config, () -> calls.incrementAndGet()));
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(50));
+        assertEquals(4, calls.get());
+
+        CompletableFuture<Integer> f = Retrier.executeAsync(config, () -> CompletableFuture.completedFuture(calls.incrementAndGet()));
+        ExecutionException ee = assertThrows(ExecutionException.class, () -> f.get(1, TimeUnit.SECONDS));
+        assertTrue(ee.getCause() instanceof CircuitOpenException);
+        assertEquals(4, calls.get());
+    }
+
+    @Test
+    public void testRetrierRecordsOutcomes() throws Exception {
+        CircuitBreaker cb = CircuitBreaker.builder().windowSize(10).build();
+        RetryConfig config = RetryConfig.builder().backoffPolicy(new long[]{1}).circuitBreaker(cb).build();
+        AtomicInteger calls = new AtomicInteger();
+        assertEquals(3, Retrier.execute(config, () -> {
+            if (calls.incrementAndGet() < 3) {
+                throw new Exception("fail");
+            }
+            return calls.get();
+        }));
+        assertEquals(200.0 / 3, cb.getFailureRate(), 0.001);
+
+        AtomicInteger asyncCalls = new AtomicInteger();
+        assertEquals(2, Retrier.executeAsync(config, () -> {
+            CompletableFuture<Integer> attempt = new CompletableFuture<>();
+            if (asyncCalls.incrementAndGet() < 2) {
+                attempt.completeExceptionally(new Exception("fail"));
+            }
+            else {
+                attempt.complete(asyncCalls.get());
+            }
+            return attempt;
+        }).get(1, TimeUnit.SECONDS));
+        assertEquals(60.0, cb.getFailureRate(), 0.001);
+    }
+
+    @Test
+    public void testErrorReleasesTheProbe() throws Exception {
+        CircuitBreaker cb = CircuitBreaker.builder().windowSize(2).minimumCalls(2).openDuration(50).halfOpenProbes(1).build();
+        RetryConfig config = RetryConfig.builder().attempts(0).circuitBreaker(cb).build();
+        cb.recordFailure();
+        cb.recordFailure();
+        Thread.sleep(60);
+
+        // the probe throws an Error, which is recorded as a failure so the circuit opens again
+        assertThrows(AssertionError.class, () -> Retrier.execute(config, () -> {
+            throw new AssertionError("probe");
+        }));
+        assertEquals(CircuitState.Open, cb.getState());
+
+        Thread.sleep(60);
+        CompletableFuture<Integer> f = Retrier.executeAsync(config, () -> {
+            throw new AssertionError("probe");
+        });
+        ExecutionException ee = assertThrows(ExecutionException.class, () -> f.get(1, TimeUnit.SECONDS));
+        assertTrue(ee.getCause() instanceof AssertionError);
+        assertEquals(CircuitState.Open, cb.getState());
+
+        // after the open duration the next probe can be taken
+        Thread.sleep(60);
+        assertEquals(1, Retrier.execute(config, () -> 1));
+        assertEquals(CircuitState.Closed, cb.getState());
+    }
+}
@@ -0,0 +1,139 @@
+package io.synadia.retrier;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.synadia.retrier.Hedger.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HedgerTests {
+    private static final ScheduledExecutorService RESPONDER = Executors.newScheduledThreadPool(2);
+
+    private static <T> CompletableFuture<T> respond(T value, long afterMillis) {
+        CompletableFuture<T> f = new CompletableFuture<>();
+        RESPONDER.schedule(() -> f.complete(value), afterMillis, TimeUnit.MILLISECONDS);
+        return f;
+    }
+
+    private static <T> CompletableFuture<T> fail(String message, long afterMillis) {
+        CompletableFuture<T> f = new CompletableFuture<>();
+        RESPONDER.schedule(() -> f.completeExceptionally(new Exception(message)), afterMillis, TimeUnit.MILLISECONDS);
+        return f;
+    }
+
+    @Test
+    public void testBuilding() {
+        Hedger h = Hedger.builder().build();
+        assertEquals(DEFAULT_DELAY_MILLIS, h.getDelayMillis());
+        assertEquals(DEFAULT_MAX_HEDGES, h.getMaxHedges());
+        assertNull(h.getRetryBudget());
+
+        h = Hedger.builder().delay(0).maxHedges(0).build();
+        assertEquals(DEFAULT_DELAY_MILLIS, h.getDelayMillis());
+        assertEquals(DEFAULT_MAX_HEDGES, h.getMaxHedges());
+    }
+
+    @Test
+    public void testFastAttemptIsNotHedged() throws Exception {
+        Hedger h = Hedger.builder().delay(200).build();
+        AtomicInteger calls = new AtomicInteger();
+        assertEquals("fast", h.execute(() -> { calls.incrementAndGet(); return respond("fast", 10); }).get(1, TimeUnit.SECONDS));
+        Thread.sleep(300);
+        assertEquals(1, calls.get());
+        assertEquals(0, h.getHedgeCount());
+    }
+
+    @Test
+    public void testSlowAttemptIsHedgedAndCancelled() throws Exception {
+        Hedger h = Hedger.builder().delay(20).build();
+        List<CompletableFuture<String>> attempts = new CopyOnWriteArrayList<>();
+        long start = System.currentTimeMillis();
+        String s = h.execute(() -> {
+            CompletableFuture<String> f = attempts.isEmpty() ? respond("slow", 2000) : respond("hedge", 10);
+            attempts.add(f);
+            return f;
+        }).get(1, TimeUnit.SECONDS);
+        assertEquals("hedge", s);
+        assertTrue(System.currentTimeMillis() - start < 1000);
+        assertEquals(2, attempts.size());
+        assertTrue(attempts.get(0).isCancelled());
+        assertEquals(1, h.getHedgeCount());
+        assertEquals(1, h.getHedgeWinCount());
+    }
+
+    @Test
+    public void testFailsOnlyWhenAllAttemptsFail() throws Exception {
+        Hedger h = Hedger.builder().delay(20).maxHedges(2).build();
+        AtomicInteger calls = new AtomicInteger();
+        CompletableFuture<String> f = h.execute(() -> fail("Attempt: " + calls.incrementAndGet(), 5));
+        ExecutionException ee = assertThrows(ExecutionException.class, () -> f.get(1, TimeUnit.SECONDS));
+        assertEquals("Attempt: 3", ee.getCause().getMessage());
+
+        // the primary fails but the hedge succeeds
+        AtomicInteger calls2 = new AtomicInteger();
+        assertEquals("ok", h.execute(() -> calls2.incrementAndGet() == 1 ? fail("first", 5) : respond("ok", 5)).get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testBudgetLimitsHedges() throws Exception {
+        RetryBudget budget = RetryBudget.builder().maxTokens(3).build();
+        Hedger h = Hedger.builder().delay(10).retryBudget(budget).build();
+        CompletableFuture<?>[] all = new CompletableFuture<?>[10];
+        for (int i = 0; i < all.length; i++) {
+            all[i] = h.execute(() -> respond("slow", 100));
+        }
+        CompletableFuture.allOf(all).get(5, TimeUnit.SECONDS);
+        assertEquals(3, h.getHedgeCount());
+        assertEquals(7, budget.getRefusedCount());
+    }
+
+    @Test
+    public void testDelayFollowsThePercentile() throws Exception {
+        Hedger h = Hedger.builder().delay(500).delayPercentile(90).build();
+        for (int i = 0; i < MIN_SAMPLES; i++) {
+            long latency = i < 18 ? 10 : 300; // 90% of the executions are fast
+            h.execute(() -> respond("x", latency)).get(5, TimeUnit.SECONDS);
+        }
+        assertTrue(h.getDelayMillis() < 100, "delay " + h.getDelayMillis());
+    }
+
+    @Test
+    public void testWinningHedgeRecordsTheWholeExecution() throws Exception {
+        Hedger h = Hedger.builder().delay(50).delayPercentile(50).build();
+        for (int i = 0; i < MIN_SAMPLES; i++) {
+            AtomicInteger calls = new AtomicInteger();
+            // the primary never answers, the hedge answers right away
+            h.execute(() -> calls.incrementAndGet() == 1 ? new CompletableFuture<String>() : respond("hedge", 1))
+                .get(5, TimeUnit.SECONDS);
+        }
+        assertEquals(MIN_SAMPLES, h.getHedgeWinCount());
+        // the latency includes the delay before the hedge started
+        assertTrue(h.getDelayMillis() >= 50, "delay " + h.getDelayMillis());
+    }
+
+    @Test
+    public void testCancelCancelsAttempts() throws Exception {
+        Hedger h = Hedger.builder().delay(10).build();
+        List<CompletableFuture<String>> attempts = new CopyOnWriteArrayList<>();
+        CompletableFuture<String> f = h.execute(() -> {
+            CompletableFuture<String> a = new CompletableFuture<>();
+            attempts.add(a);
+            return a;
+        });
+        Thread.sleep(50);
+        f.cancel(false);
+        Thread.sleep(50);
+        assertEquals(2, attempts.size());
+        for (CompletableFuture<String> a : attempts) {
+            assertTrue(a.isCancelled());
+        }
+    }
+}
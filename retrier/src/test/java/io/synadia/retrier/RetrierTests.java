@@ -2,6 +2,12 @@ package io.synadia.retrier;
 
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static io.synadia.retrier.RetryConfig.*;
@@ -65,4 +71,111 @@ public class RetrierTests {
         long elapsed = System.currentTimeMillis() - start;
         assertTrue(elapsed < 300);
     }
+
+    @Test
+    public void testRetryExecuteAsync() throws Exception {
+        AtomicInteger counterExhaustAttempts = new AtomicInteger();
+        CompletableFuture<String> f = Retrier.executeAsync(DEFAULT_CONFIG,
+            () -> failed("Attempt: " + counterExhaustAttempts.incrementAndGet()));
+        ExecutionException ee = assertThrows(ExecutionException.class, () -> f.get(5, TimeUnit.SECONDS));
+        assertEquals("Attempt: 3", ee.getCause().getMessage());
+        assertEquals(3, counterExhaustAttempts.get());
+
+        AtomicInteger counterExhaustObserver = new AtomicInteger();
+        CompletableFuture<String> fo = Retrier.executeAsync(RetryConfig.builder().attempts(Integer.MAX_VALUE).backoffPolicy(new long[]{10}).build(),
+            () -> failed("Attempt: " + counterExhaustObserver.incrementAndGet()),
+            e -> counterExhaustObserver.get() < 5);
+        assertThrows(ExecutionException.class, () -> fo.get(5, TimeUnit.SECONDS));
+        assertEquals(5, counterExhaustObserver.get());
+
+        // an action that throws instead of returning a failed future is retried the same way
+        AtomicInteger counterSucceed = new AtomicInteger();
+        CompletableFuture<String> fs = Retrier.executeAsync(RetryConfig.builder().backoffPolicy(new long[]{10}).build(),
+            () -> {
+                if (counterSucceed.incrementAndGet() < 3) {
+                    throw new IllegalStateException("Attempt: " + counterSucceed.get());
+                }
+                return CompletableFuture.completedFuture("done");
+            });
+        assertEquals("done", fs.get(5, TimeUnit.SECONDS));
+        assertEquals(3, counterSucceed.get());
+
+        // backoff holds no thread, so many executions wait at once
+        long start = System.currentTimeMillis();
+        CompletableFuture<?>[] many = new CompletableFuture<?>[1000];
+        for (int i = 0; i < many.length; i++) {
+            AtomicInteger counter = new AtomicInteger();
+            many[i] = Retrier.executeAsync(RetryConfig.builder().backoffPolicy(new long[]{200}).build(),
+                () -> counter.incrementAndGet() == 1 ? failed("first") : CompletableFuture.completedFuture(counter.get()));
+        }
+        CompletableFuture.allOf(many).get(5, TimeUnit.SECONDS);
+        assertTrue(System.currentTimeMillis() - start < 2000);
+
+        // cancelling stops the retries
+        AtomicInteger counterCancel = new AtomicInteger();
+        CompletableFuture<String> fc = Retrier.executeAsync(RetryConfig.builder().attempts(Integer.MAX_VALUE).backoffPolicy(new long[]{50}).build(),
+            () -> failed("Attempt: " + counterCancel.incrementAndGet()));
+        fc.cancel(false);
+        Thread.sleep(200);
+        assertTrue(counterCancel.get() <= 2);
+    }
+
+    @Test
+    public void testDeadline() throws Exception {
+        assertFalse(Deadline.after(0).isBounded());
+        assertFalse(Deadline.after(Long.MAX_VALUE).isBounded());
+        assertEquals(Long.MAX_VALUE, Deadline.unbounded().remainingMillis());
+        assertEquals(Duration.ofSeconds(2), Deadline.unbounded().remaining(Duration.ofSeconds(2)));
+
+        Deadline d = Deadline.after(50);
+        assertTrue(d.isBounded());
+        assertFalse(d.isExpired());
+        assertTrue(d.remainingMillis() <= 50);
+        assertTrue(d.remaining(Duration.ofSeconds(2)).toMillis() <= 50);
+        assertEquals(Duration.ofMillis(10), d.remaining(Duration.ofMillis(10)));
+        Thread.sleep(60);
+        assertTrue(d.isExpired());
+        assertEquals(0, d.remainingNanos());
+        assertEquals(Duration.ZERO, d.remaining(Duration.ofSeconds(2)));
+    }
+
+    @Test
+    public void testRetryExecuteWithDeadline() throws Exception {
+        // the second backoff would reach the deadline, so the execution fails instead of sleeping past it
+        RetryConfig config = RetryConfig.builder().attempts(Integer.MAX_VALUE).backoffPolicy(new long[]{200}).deadline(300).build();
+        List<Long> remaining = new ArrayList<>();
+        long start = System.nanoTime();
+        Exception e = assertThrows(Exception.class, () -> Retrier.executeWithDeadline(config, deadline -> {
+            assertTrue(deadline.isBounded());
+            remaining.add(deadline.remainingMillis());
+            throw new Exception("Attempt: " + remaining.size());
+        }));
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(300));
+        assertEquals("Attempt: 2", e.getMessage());
+        assertEquals(2, remaining.size());
+        assertTrue(remaining.get(0) <= 300);
+        assertTrue(remaining.get(1) <= 100);
+
+        assertEquals("done", Retrier.executeWithDeadline(DEFAULT_CONFIG, deadline -> {
+            assertFalse(deadline.isBounded());
+            return "done";
+        }));
+
+        List<Long> remainingAsync = new ArrayList<>();
+        start = System.nanoTime();
+        CompletableFuture<String> f = Retrier.executeAsyncWithDeadline(config, deadline -> {
+            remainingAsync.add(deadline.remainingMillis());
+            return failed("Attempt: " + remainingAsync.size());
+        });
+        ExecutionException ee = assertThrows(ExecutionException.class, () -> f.get(5, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(300));
+        assertEquals("Attempt: 2", ee.getCause().getMessage());
+        assertTrue(remainingAsync.get(1) <= 100);
+    }
+
+    private static <T> CompletableFuture<T> failed(String message) {
+        CompletableFuture<T> f = new CompletableFuture<>();
+        f.completeExceptionally(new Exception(message));
+        return f;
+    }
 }
@@ -0,0 +1,104 @@
+package io.synadia.retrier;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.synadia.retrier.RetryBudget.DEFAULT_MAX_TOKENS;
+import static io.synadia.retrier.RetryBudget.DEFAULT_RETRY_RATIO;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RetryBudgetTests {
+    @Test
+    public void testBuilding() {
+        RetryBudget budget = RetryBudget.builder().build();
+        assertEquals(DEFAULT_MAX_TOKENS, budget.getMaxTokens());
+        assertEquals(DEFAULT_RETRY_RATIO, budget.getRetryRatio());
+        assertEquals((double)DEFAULT_MAX_TOKENS, budget.getAvailableTokens());
+
+        budget = RetryBudget.builder().maxTokens(0).retryRatio(0).build();
+        assertEquals(DEFAULT_MAX_TOKENS, budget.getMaxTokens());
+        assertEquals(DEFAULT_RETRY_RATIO, budget.getRetryRatio());
+
+        assertNull(RetryConfig.DEFAULT_CONFIG.getRetryBudget());
+        assertSame(budget, RetryConfig.builder().retryBudget(budget).build().getRetryBudget());
+    }
+
+    @Test
+    public void testTokens() {
+        RetryBudget budget = RetryBudget.builder().maxTokens(2).retryRatio(0.5).build();
+        assertTrue(budget.tryRetry());
+        assertTrue(budget.tryRetry());
+        assertFalse(budget.tryRetry());
+        assertEquals(1, budget.getRefusedCount());
+
+        budget.recordSuccess();
+        assertEquals(0.5, budget.getAvailableTokens());
+        assertFalse(budget.tryRetry());
+        budget.recordSuccess();
+        assertTrue(budget.tryRetry());
+        assertEquals(2, budget.getRefusedCount());
+
+        // never more than the max
+        for (int i = 0; i < 10; i++) {
+            budget.recordSuccess();
+        }
+        assertEquals(2.0, budget.getAvailableTokens());
+
+        budget.refund();
+        assertEquals(2.0, budget.getAvailableTokens());
+    }
+
+    @Test
+    public void testExecutionsShareTheBudget() {
+        RetryBudget budget = RetryBudget.builder().maxTokens(5).build();
+        RetryConfig config = RetryConfig.builder()
+            .attempts(3)
+            .backoffPolicy(new long[]{1})
+            .retryBudget(budget)
+            .build();
+
+        // 10 executions that would retry 3 times each, but the budget only has 5 retries:
+        // the first retries 3 times, the second twice and the rest not at all
+        AtomicInteger calls = new AtomicInteger();
+        for (int i = 0; i < 10; i++) {
+            assertThrows(Exception.class, () -> Retrier.execute(config, () -> {
+                calls.incrementAndGet();
+                throw new Exception("fail");
+            }));
+        }
+        assertEquals(15, calls.get());
+        assertEquals(0.0, budget.getAvailableTokens());
+        assertEquals(9, budget.getRefusedCount());
+
+        // the observer declining does not use up a token
+        budget.refund();
+        assertThrows(Exception.class, () -> Retrier.execute(config, () -> { throw new Exception("fail"); }, e -> false));
+        assertEquals(1.0, budget.getAvailableTokens());
+    }
+
+    @Test
+    public void testSuccessRefillsTheBudget() throws Exception {
+        RetryBudget budget = RetryBudget.builder().maxTokens(1).retryRatio(0.25).build();
+        RetryConfig config = RetryConfig.builder().backoffPolicy(new long[]{1}).retryBudget(budget).build();
+        assertTrue(budget.tryRetry());
+
+        for (int i = 0; i < 4; i++) {
+            assertEquals("ok", Retrier.execute(config, () -> "ok"));
+        }
+        assertEquals(1.0, budget.getAvailableTokens());
+
+        AtomicInteger calls = new AtomicInteger();
+        CompletableFuture<String> f = Retrier.executeAsync(config, () -> {
+            CompletableFuture<String> attempt = new CompletableFuture<>();
+            attempt.completeExceptionally(new Exception("Attempt: " + calls.incrementAndGet()));
+            return attempt;
+        });
+        ExecutionException ee = assertThrows(ExecutionException.class, () -> f.get(5, TimeUnit.SECONDS));
+        assertEquals("Attempt: 2", ee.getCause().getMessage());
+        assertEquals(0.0, budget.getAvailableTokens());
+    }
+}